@@ -0,0 +1,110 @@
+package com.codealpha.trading;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Accounts over the user and portfolio stores with a cache that holds about
+// 1% of them: opening the stores, as at startup, looking up accounts already
+// resident, and looking up random ones, nearly all read in from disk with a
+// clean account evicted to make room.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AccountStoreBenchmark {
+    private static final int TRADES_PER_ACCOUNT = 10;
+    private static final int HOT_ACCOUNTS = 100;
+    
+    @Param({"20000"})
+    public int accounts;
+    
+    private Path dataDir;
+    private UserStore userStore;
+    private PortfolioStore portfolioStore;
+    private AccountStore store;
+    
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        dataDir = Files.createTempDirectory("trading-bench");
+        userStore = UserStore.open(dataDir.resolve("users.dat"), dataDir.resolve("users.idx"));
+        portfolioStore = PortfolioStore.open(dataDir, userStore);
+        List<Stock> stocks = Universe.stocks(TRADES_PER_ACCOUNT);
+        List<Portfolio> written = new ArrayList<>();
+        for (int i = 0; i < accounts; i++) {
+            User user = new User("USER" + i, "user" + i, "", new BigDecimal("1000000"));
+            userStore.append(user);
+            for (Stock stock : stocks) {
+                user.getPortfolio().buyStock(stock, 1);
+            }
+            written.add(user.getPortfolio());
+            if (written.size() == 1000) {
+                portfolioStore.write(written);
+                written.clear();
+            }
+        }
+        portfolioStore.write(written);
+        portfolioStore.sync();
+        
+        long accountBytes = new User("X", "x", "", BigDecimal.ONE).getPortfolio().estimateBytes()
+                + TRADES_PER_ACCOUNT * 200;
+        store = new AccountStore(AccountStore.DEFAULT_SHARDS, userStore, portfolioStore,
+                                 accountBytes * accounts / 100);
+        for (int i = 0; i < HOT_ACCOUNTS; i++) {
+            store.findByUsername("user" + i);
+        }
+    }
+    
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        store.close();
+        userStore.close();
+    }
+    
+    @Benchmark
+    public int open() throws IOException {
+        UserStore users = UserStore.open(dataDir.resolve("users.dat"), dataDir.resolve("users.idx"));
+        PortfolioStore portfolios = PortfolioStore.open(dataDir, users);
+        AccountStore opened = new AccountStore(AccountStore.DEFAULT_SHARDS, users, portfolios,
+                                               AccountStore.DEFAULT_CACHE_BYTES);
+        int size = opened.size();
+        opened.close();
+        users.close();
+        return size;
+    }
+    
+    @Benchmark
+    public User residentLookup() {
+        User user = store.acquire("user" + ThreadLocalRandom.current().nextInt(HOT_ACCOUNTS));
+        store.release(user);
+        return user;
+    }
+    
+    @Benchmark
+    public User randomLookup() {
+        User user = store.acquire("user" + ThreadLocalRandom.current().nextInt(accounts));
+        store.release(user);
+        return user;
+    }
+}
@@ -0,0 +1,82 @@
+package com.codealpha.trading;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Replay throughput of BacktestRunner: BACKTESTS seeded synthetic backtests
+// of TICKS ticks each over a SYMBOLS-symbol universe, scored in ticks per second
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BacktestBenchmark {
+    private static final int BACKTESTS = 8;
+    private static final int TICKS = 2000;
+    private static final int SYMBOLS = 100;
+    private static final LocalDateTime START = LocalDateTime.of(2024, 1, 1, 9, 30);
+    
+    @Param({"1", "4"})
+    public int threads;
+    
+    private String[] symbols;
+    private long[] startPrices;
+    
+    @Setup
+    public void setup() {
+        List<Stock> stocks = Universe.stocks(SYMBOLS);
+        symbols = new String[SYMBOLS];
+        startPrices = new long[SYMBOLS];
+        for (int i = 0; i < SYMBOLS; i++) {
+            symbols[i] = stocks.get(i).getSymbol();
+            startPrices[i] = stocks.get(i).getCurrentPriceCents();
+        }
+    }
+    
+    @Benchmark
+    @OperationsPerInvocation(BACKTESTS * TICKS)
+    public long runAll() {
+        List<Backtest> backtests = new ArrayList<>(BACKTESTS);
+        for (int i = 0; i < BACKTESTS; i++) {
+            TickSource source = new SyntheticTickSource(symbols, startPrices, i, TICKS, START, 1_000_000_000L);
+            backtests.add(new Backtest("BT" + i, source, new MeanReversion(), new BigDecimal("1000000")));
+        }
+        return BacktestRunner.runAll(backtests, threads).getTotalTicks();
+    }
+    
+    // Buys a symbol after it falls and sells it after it rises, a few symbols per tick
+    static final class MeanReversion implements Strategy {
+        private int next;
+        
+        @Override
+        public void onTick(MarketSnapshot market, Backtest.Account account) {
+            for (int k = 0; k < 4; k++) {
+                int index = next++ % market.size();
+                Stock stock = market.getStock(index);
+                Quote quote = market.getQuote(index);
+                if (quote.getPriceCents() < quote.getPreviousPriceCents()) {
+                    account.buy(stock, 10);
+                } else if (account.getPortfolio().getAvailableShares(stock.getSymbolId()) >= 10) {
+                    account.sell(stock, 10);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package com.codealpha.trading;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Durable trades per second: a 1000-order TradeBatch applied in one pass and
+// one journal commit, against the same orders submitted one at a time
+// through the matching engine, each waiting for its own journal fsync as the
+// console and HTTP order paths do.
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BatchTradeBenchmark {
+    private static final int ORDERS = 1000;
+    private static final int ACCOUNTS = 100;
+    private static final int SYMBOLS = 20;
+    
+    private List<Stock> stocks;
+    private MarketData marketData;
+    private TradeJournal journal;
+    private AccountStore accounts;
+    private MatchingEngine engine;
+    
+    @Setup(Level.Trial)
+    public void setupMarket() throws IOException {
+        stocks = Universe.stocks(SYMBOLS);
+        marketData = new MarketData(stocks);
+        journal = TradeJournal.open(Files.createTempDirectory("trading-bench").resolve("trades.journal"));
+    }
+    
+    // Fresh accounts each iteration so ledgers stay bounded
+    @Setup(Level.Iteration)
+    public void setupAccounts() {
+        accounts = new AccountStore();
+        for (int i = 0; i < ACCOUNTS; i++) {
+            accounts.add(new User("USER" + i, "user" + i, "", new BigDecimal("1000000000")));
+        }
+        engine = new MatchingEngine(marketData, 1,
+                                    (portfolio, transaction) -> journal.append(portfolio.getUserId(), transaction));
+    }
+    
+    @TearDown(Level.Iteration)
+    public void tearDownEngine() {
+        engine.shutdown();
+    }
+    
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        journal.close();
+        marketData.stopPriceUpdates();
+    }
+    
+    // Orders come in buy/sell pairs on one account and symbol, so holdings stay flat
+    @Benchmark
+    @OperationsPerInvocation(ORDERS)
+    public int batch() {
+        TradeBatch batch = new TradeBatch();
+        for (int i = 0; i < ORDERS; i++) {
+            int pair = i / 2;
+            batch.add("user" + pair % ACCOUNTS, stocks.get(pair % SYMBOLS).getSymbol(),
+                      i % 2 == 0 ? Transaction.Type.BUY : Transaction.Type.SELL, 1);
+        }
+        journal.holdCommits();
+        try {
+            batch.execute(accounts, marketData.getSnapshot(), (portfolio, transaction) ->
+                    journal.append(portfolio.getUserId(), transaction));
+        } finally {
+            journal.releaseCommits();
+        }
+        journal.awaitDurable(journal.getLastSeq());
+        return batch.getFilled();
+    }
+    
+    @Benchmark
+    @OperationsPerInvocation(ORDERS)
+    public int perTrade() {
+        int filled = 0;
+        for (int i = 0; i < ORDERS; i++) {
+            int pair = i / 2;
+            Portfolio portfolio = accounts.findByUsername("user" + pair % ACCOUNTS).getPortfolio();
+            Order order = engine.submitMarket(portfolio, stocks.get(pair % SYMBOLS),
+                                              i % 2 == 0 ? Transaction.Type.BUY : Transaction.Type.SELL, 1)
+                                .processed().join();
+            journal.awaitDurable(journal.getLastSeq());
+            filled += order.getFilled();
+        }
+        return filled;
+    }
+}
@@ -0,0 +1,102 @@
+package com.codealpha.trading;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.text.DecimalFormat;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Writing a whole transaction history to a discarding console, row by row
+// with printf as the history view used to, and through ConsoleRenderer
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ConsoleRendererBenchmark {
+    private static final int SYMBOLS = 100;
+    private static final LocalDateTime START = LocalDateTime.of(2024, 1, 1, 0, 0);
+    
+    @Param({"10000", "100000"})
+    public int records;
+    
+    private TransactionLedger ledger;
+    private PrintStream console;
+    private ConsoleRenderer renderer;
+    private DecimalFormat currencyFormat;
+    private DateTimeFormatter dateFormat;
+    
+    @Setup
+    public void setup() {
+        ledger = new TransactionLedger();
+        long startTime = TransactionLedger.toTime(START);
+        for (int i = 0; i < records; i++) {
+            Transaction.Type type = i % 3 == 2 ? Transaction.Type.SELL : Transaction.Type.BUY;
+            ledger.append(i, SymbolTable.idOf(Universe.symbol(i % SYMBOLS)), type, 10, 10_000 + i % 5_000,
+                          LotMethod.FIFO, type == Transaction.Type.SELL ? i % 2_000 - 1_000 : 0,
+                          startTime + i * 1_000_000_000L);
+        }
+        console = new PrintStream(OutputStream.nullOutputStream());
+        renderer = new ConsoleRenderer(console);
+        currencyFormat = new DecimalFormat("$#,##0.00");
+        dateFormat = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    }
+    
+    @Benchmark
+    public void printf() {
+        for (int index = 0; index < ledger.size(); index++) {
+            long price = ledger.priceAt(index);
+            int quantity = ledger.quantityAt(index);
+            console.printf("TXN%d | %s | %s %d shares of %s at %s | %s",
+                           ledger.idAt(index),
+                           ledger.timestampAt(index).format(dateFormat),
+                           ledger.typeAt(index),
+                           quantity,
+                           SymbolTable.symbolOf(ledger.symbolIdAt(index)),
+                           currencyFormat.format(Money.toBigDecimal(price)),
+                           currencyFormat.format(Money.toBigDecimal(Money.times(price, quantity))));
+            if (ledger.typeAt(index) == Transaction.Type.SELL) {
+                long realized = ledger.realizedPnlAt(index);
+                console.printf(" | P&L %s%s (%s)", realized >= 0 ? "+" : "",
+                               currencyFormat.format(Money.toBigDecimal(realized)), ledger.lotMethodAt(index));
+            }
+            console.println();
+        }
+    }
+    
+    @Benchmark
+    public void renderer() {
+        for (int index = 0; index < ledger.size(); index++) {
+            long price = ledger.priceAt(index);
+            int quantity = ledger.quantityAt(index);
+            Transaction.Type type = ledger.typeAt(index);
+            renderer.text("TXN").number(ledger.idAt(index))
+                    .text(" | ").time(ledger.timeAt(index))
+                    .text(" | ").text(type.name()).text(" ").number(quantity)
+                    .text(" shares of ").text(SymbolTable.symbolOf(ledger.symbolIdAt(index)))
+                    .text(" at ").cents(price)
+                    .text(" | ").cents(Money.times(price, quantity));
+            if (type == Transaction.Type.SELL) {
+                long realized = ledger.realizedPnlAt(index);
+                renderer.text(" | P&L ").sign(realized).cents(realized)
+                        .text(" (").text(ledger.lotMethodAt(index).name()).text(")");
+            }
+            renderer.newline();
+        }
+        renderer.flush();
+    }
+}
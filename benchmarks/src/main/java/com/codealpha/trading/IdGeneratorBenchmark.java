@@ -0,0 +1,37 @@
+package com.codealpha.trading;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+// IdGenerator.nextId against the string ids it replaced, uncontended and
+// with several threads drawing from the same generator
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class IdGeneratorBenchmark {
+    @Benchmark
+    public long nextId() {
+        return IdGenerator.nextId();
+    }
+    
+    @Benchmark
+    @Threads(4)
+    public long nextIdContended() {
+        return IdGenerator.nextId();
+    }
+    
+    @Benchmark
+    public String millisString() {
+        return "TXN" + System.currentTimeMillis();
+    }
+}
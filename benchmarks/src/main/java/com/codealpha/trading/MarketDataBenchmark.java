@@ -0,0 +1,56 @@
+package com.codealpha.trading;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// One MarketData.updateAllPrices cycle across universe sizes, bare and with
+// held positions being re-marked through the holder index
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MarketDataBenchmark {
+    @Param({"8", "1000", "100000"})
+    public int symbols;
+    
+    // Portfolios each holding a few symbols from the universe
+    @Param({"0", "1000"})
+    public int portfolios;
+    
+    private MarketData marketData;
+    
+    @Setup
+    public void setup() {
+        List<Stock> universe = Universe.stocks(symbols);
+        marketData = new MarketData(universe);
+        HolderIndex holderIndex = new HolderIndex();
+        marketData.addSnapshotListener(holderIndex::onSnapshot);
+        for (int p = 0; p < portfolios; p++) {
+            Portfolio portfolio = new Portfolio("BENCH" + p, new BigDecimal("1000000000000"));
+            for (int k = 0; k < 5; k++) {
+                portfolio.buyStock(universe.get((p * 7 + k * 131) % universe.size()), 10);
+            }
+            portfolio.attach(holderIndex, marketData);
+        }
+    }
+    
+    @Benchmark
+    public void updateAllPrices() {
+        marketData.updateAllPrices();
+    }
+}
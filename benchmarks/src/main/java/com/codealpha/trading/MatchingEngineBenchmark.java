@@ -0,0 +1,96 @@
+package com.codealpha.trading;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Order events per second through MatchingEngine. Each round per symbol is a
+// resting limit buy, a marketable buy, a marketable sell and a cancel of the
+// resting order, spread over many accounts.
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgs = "-Xmx2g")
+@State(Scope.Benchmark)
+public class MatchingEngineBenchmark {
+    private static final int ROUNDS = 2_500;
+    private static final int EVENTS = ROUNDS * 4;
+    
+    @Param({"1", "4"})
+    public int shards;
+    
+    @Param({"100"})
+    public int symbols;
+    
+    private Stock[] stocks;
+    private MarketData marketData;
+    private Portfolio[] accounts;
+    private MatchingEngine engine;
+    private int next;
+    
+    @Setup(Level.Trial)
+    public void setupMarket() {
+        List<Stock> universe = Universe.stocks(symbols);
+        stocks = universe.toArray(new Stock[0]);
+        marketData = new MarketData(universe);
+    }
+    
+    // Fresh accounts each iteration so transaction lists stay bounded
+    @Setup(Level.Iteration)
+    public void setupEngine() {
+        engine = new MatchingEngine(marketData, shards, (portfolio, transaction) -> { });
+        accounts = new Portfolio[1024];
+        for (int i = 0; i < accounts.length; i++) {
+            accounts[i] = new Portfolio("BENCH" + i, new BigDecimal("1000000000000"));
+            for (Stock stock : stocks) {
+                accounts[i].buyStock(stock, 1_000_000);
+            }
+        }
+    }
+    
+    @TearDown(Level.Iteration)
+    public void tearDown() {
+        engine.shutdown();
+    }
+    
+    @Benchmark
+    @OperationsPerInvocation(EVENTS)
+    public void orderEvents() {
+        // Shards process in submission order, so waiting on each symbol's
+        // last cancel covers everything submitted for it
+        CompletableFuture<?>[] lastBySymbol = new CompletableFuture<?>[stocks.length];
+        for (int i = 0; i < ROUNDS; i++) {
+            int s = next % stocks.length;
+            Stock stock = stocks[s];
+            Portfolio account = accounts[next % accounts.length];
+            next++;
+            long below = stock.getCurrentPriceCents() - 1;
+            Order resting = engine.submitLimit(account, stock, Transaction.Type.BUY, 10, below);
+            engine.submitMarket(account, stock, Transaction.Type.BUY, 10);
+            engine.submitMarket(account, stock, Transaction.Type.SELL, 10);
+            lastBySymbol[s] = engine.cancel(resting);
+        }
+        for (CompletableFuture<?> last : lastBySymbol) {
+            if (last != null) {
+                last.join();
+            }
+        }
+    }
+}
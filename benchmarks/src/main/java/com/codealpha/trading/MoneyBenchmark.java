@@ -0,0 +1,118 @@
+package com.codealpha.trading;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Long-cents arithmetic against the BigDecimal code it replaced, on the
+// valuation, average-cost and price-tick paths
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class MoneyBenchmark {
+    @Param({"100"})
+    public int positions;
+    
+    private BigDecimal[] decimalPrices;
+    private long[] centPrices;
+    private int[] quantities;
+    private double[] changes;
+    
+    @Setup
+    public void setup() {
+        Random random = new Random(7);
+        decimalPrices = new BigDecimal[positions];
+        centPrices = new long[positions];
+        quantities = new int[positions];
+        changes = new double[positions];
+        for (int i = 0; i < positions; i++) {
+            centPrices[i] = 100 + random.nextInt(500_000);
+            decimalPrices[i] = BigDecimal.valueOf(centPrices[i], 2);
+            quantities[i] = 1 + random.nextInt(1000);
+            changes[i] = (random.nextDouble() - 0.5) * 0.1;
+        }
+    }
+    
+    @Benchmark
+    public BigDecimal valuationBigDecimal() {
+        BigDecimal total = BigDecimal.ZERO;
+        for (int i = 0; i < positions; i++) {
+            total = total.add(decimalPrices[i].multiply(BigDecimal.valueOf(quantities[i])));
+        }
+        return total;
+    }
+    
+    @Benchmark
+    public long valuationCents() {
+        long total = 0;
+        for (int i = 0; i < positions; i++) {
+            total += Money.times(centPrices[i], quantities[i]);
+        }
+        return total;
+    }
+    
+    @Benchmark
+    public BigDecimal averageCostBigDecimal() {
+        BigDecimal avg = BigDecimal.ZERO;
+        int held = 0;
+        for (int i = 0; i < positions; i++) {
+            BigDecimal cost = decimalPrices[i].multiply(BigDecimal.valueOf(quantities[i]));
+            BigDecimal total = avg.multiply(BigDecimal.valueOf(held)).add(cost);
+            held += quantities[i];
+            avg = total.divide(BigDecimal.valueOf(held), 2, RoundingMode.HALF_UP);
+        }
+        return avg;
+    }
+    
+    @Benchmark
+    public long averageCostCents() {
+        long avg = 0;
+        int held = 0;
+        for (int i = 0; i < positions; i++) {
+            long total = Money.times(avg, held) + Money.times(centPrices[i], quantities[i]);
+            held += quantities[i];
+            avg = Money.divideHalfUp(total, held);
+        }
+        return avg;
+    }
+    
+    @Benchmark
+    public BigDecimal priceTickBigDecimal() {
+        BigDecimal last = null;
+        for (int i = 0; i < positions; i++) {
+            BigDecimal price = decimalPrices[i];
+            price = price.add(price.multiply(BigDecimal.valueOf(changes[i])));
+            if (price.compareTo(BigDecimal.ONE) < 0) {
+                price = BigDecimal.ONE;
+            }
+            last = price.setScale(2, RoundingMode.HALF_UP);
+        }
+        return last;
+    }
+    
+    @Benchmark
+    public long priceTickCents() {
+        long sum = 0;
+        for (int i = 0; i < positions; i++) {
+            long price = Money.applyChange(centPrices[i], changes[i]);
+            sum += Math.max(price, Money.ONE);
+        }
+        return sum;
+    }
+}
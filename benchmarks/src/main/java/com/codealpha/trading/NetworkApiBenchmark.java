@@ -0,0 +1,93 @@
+package com.codealpha.trading;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Round trips for one quote over loopback, through the JSON API and the
+// binary protocol, against a headless platform in its own data directory
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class NetworkApiBenchmark {
+    private TradingPlatform platform;
+    private HttpClient http;
+    private HttpRequest quoteRequest;
+    private SocketChannel binary;
+    private final ByteBuffer request = ByteBuffer.allocate(13);
+    private final ByteBuffer reply = ByteBuffer.allocate(64);
+    
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        Path dataDir = Files.createTempDirectory("trading-bench");
+        System.setProperty("trading.dataDir", dataDir.toString());
+        platform = new TradingPlatform();
+        platform.registerUser("bench", "bench@example.com", new BigDecimal("1000000"));
+        platform.serve(0, 0, 4);
+        
+        http = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        quoteRequest = HttpRequest.newBuilder(
+                URI.create("http://localhost:" + platform.getHttpPort() + "/quotes?symbols=AAPL")).build();
+        
+        binary = SocketChannel.open(new InetSocketAddress("localhost", platform.getBinaryPort()));
+        binary.socket().setTcpNoDelay(true);
+        request.putInt(9).put(TradingBinaryServer.QUOTES).putInt(1).putInt(SymbolTable.find("AAPL"));
+    }
+    
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        binary.close();
+        platform.shutdown();
+    }
+    
+    @Benchmark
+    public String httpQuote() throws IOException, InterruptedException {
+        return http.send(quoteRequest, HttpResponse.BodyHandlers.ofString()).body();
+    }
+    
+    @Benchmark
+    public long binaryQuote() throws IOException {
+        request.rewind();
+        while (request.hasRemaining()) {
+            binary.write(request);
+        }
+        reply.clear().limit(Integer.BYTES);
+        readFully();
+        reply.limit(Integer.BYTES + reply.getInt(0));
+        readFully();
+        return reply.getLong(Integer.BYTES + 1 + 2 * Integer.BYTES);
+    }
+    
+    private void readFully() throws IOException {
+        while (reply.hasRemaining()) {
+            if (binary.read(reply) < 0) {
+                throw new IOException("Connection closed");
+            }
+        }
+    }
+}
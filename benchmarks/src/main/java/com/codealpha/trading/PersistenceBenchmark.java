@@ -0,0 +1,95 @@
+package com.codealpha.trading;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Checkpointing changed accounts to the portfolio store, reading one back,
+// opening the stores at startup and per-trade journaling across user counts.
+// Each fork gets its own data directory through the trading.dataDir property.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PersistenceBenchmark {
+    private static final int TRADES_PER_USER = 10;
+    
+    @Param({"1000", "100000"})
+    public int users;
+    
+    private AccountStore directory;
+    private TradeJournal journal;
+    private Transaction trade;
+    private Stock stock;
+    
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        Path dataDir = Files.createTempDirectory("trading-bench");
+        System.setProperty("trading.dataDir", dataDir.toString());
+        
+        List<Stock> stocks = Universe.stocks(TRADES_PER_USER);
+        stock = stocks.get(0);
+        directory = FileManager.openAccounts();
+        for (int i = 0; i < users; i++) {
+            User user = new User("USER" + i, "user" + i, "user" + i + "@example.com",
+                    new BigDecimal("1000000"));
+            FileManager.saveUser(user);
+            directory.add(user);
+            for (Stock each : stocks) {
+                user.getPortfolio().buyStock(each, 1);
+            }
+        }
+        directory.checkpoint(() -> 0);
+        journal = FileManager.openJournal();
+        trade = directory.findById("USER0").getPortfolio().getLastTransaction();
+    }
+    
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        journal.close();
+    }
+    
+    // One account in a thousand has traded since the last checkpoint
+    @Benchmark
+    public long checkpoint() {
+        for (int i = 0; i < users; i += 1000) {
+            Portfolio portfolio = directory.findById("USER" + i).getPortfolio();
+            portfolio.buyStock(stock, 1);
+            portfolio.sellStock(stock, 1);
+        }
+        return directory.checkpoint(() -> 0);
+    }
+    
+    @Benchmark
+    public int openAccounts() throws IOException {
+        AccountStore opened = FileManager.openAccounts();
+        int size = opened.size();
+        opened.close();
+        return size;
+    }
+    
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public boolean journalTrade() {
+        return journal.awaitDurable(journal.append("USER0", trade));
+    }
+}
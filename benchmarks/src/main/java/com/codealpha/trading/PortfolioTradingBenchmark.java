@@ -0,0 +1,52 @@
+package com.codealpha.trading;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Round-trip buy + sell throughput through Portfolio
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class PortfolioTradingBenchmark {
+    @Param({"1", "100"})
+    public int symbols;
+    
+    private Stock[] stocks;
+    private Portfolio portfolio;
+    private int next;
+    
+    @Setup
+    public void setup() {
+        List<Stock> universe = Universe.stocks(symbols);
+        stocks = universe.toArray(new Stock[0]);
+        portfolio = new Portfolio("BENCH", new BigDecimal("1000000000000"));
+    }
+    
+    @Benchmark
+    public boolean buyThenSell() {
+        Stock stock = stocks[next++ % stocks.length];
+        portfolio.buyStock(stock, 10);
+        boolean sold = portfolio.sellStock(stock, 10);
+        if ((next & 0xFFFF) == 0) {
+            // Keep the transaction list from growing without bound
+            portfolio = new Portfolio("BENCH", new BigDecimal("1000000000000"));
+        }
+        return sold;
+    }
+}
@@ -0,0 +1,57 @@
+package com.codealpha.trading;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Cached Portfolio.getPortfolioValue against a full re-mark, across portfolio sizes
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PortfolioValuationBenchmark {
+    @Param({"1", "10", "100", "1000"})
+    public int positions;
+    
+    private MarketData marketData;
+    private Portfolio portfolio;
+    
+    @Setup
+    public void setup() {
+        List<Stock> universe = Universe.stocks(positions);
+        marketData = new MarketData(universe);
+        portfolio = new Portfolio("BENCH", new BigDecimal("1000000000000"));
+        for (Stock stock : universe) {
+            portfolio.buyStock(stock, 10);
+        }
+        HolderIndex holderIndex = new HolderIndex();
+        marketData.addSnapshotListener(holderIndex::onSnapshot);
+        portfolio.attach(holderIndex, marketData);
+        marketData.updateAllPrices();
+    }
+    
+    @Benchmark
+    public BigDecimal portfolioValue() {
+        return portfolio.getPortfolioValue();
+    }
+    
+    @Benchmark
+    public long fullRevaluation() {
+        portfolio.revalue(marketData.getSnapshot());
+        return portfolio.getPortfolioValueCents();
+    }
+}
@@ -0,0 +1,65 @@
+package com.codealpha.trading;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// One single-threaded PriceModel.step over a whole universe of prices, per
+// model, and the shared applyReturns loop on its own
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PriceModelBenchmark {
+    @Param({"uniform", "gbm", "meanReverting", "jumpDiffusion", "factor"})
+    public String model;
+    
+    @Param({"100000"})
+    public int symbols;
+    
+    private PriceModel priceModel;
+    private double[] prices;
+    private double[] scratch;
+    private double[] returns;
+    private SplittableRandom random;
+    
+    @Setup
+    public void setup() {
+        priceModel = PriceModels.load(model);
+        prices = new double[symbols];
+        scratch = new double[symbols];
+        returns = new double[symbols];
+        random = new SplittableRandom(42);
+        for (int i = 0; i < symbols; i++) {
+            prices[i] = 10_000 + random.nextInt(490_000);
+            returns[i] = (random.nextDouble() - 0.5) * 1e-9; // keeps prices steady across invocations
+        }
+        priceModel.init(prices);
+    }
+    
+    @Benchmark
+    public double step() {
+        priceModel.beginTick(random);
+        priceModel.step(prices, 0, prices.length, random, scratch);
+        return prices[0];
+    }
+    
+    @Benchmark
+    public double applyReturns() {
+        PriceModel.applyReturns(prices, returns, 0, prices.length);
+        return prices[0];
+    }
+}
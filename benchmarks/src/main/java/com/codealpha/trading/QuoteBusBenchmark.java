@@ -0,0 +1,65 @@
+package com.codealpha.trading;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Publishing a 1000-symbol snapshot to QuoteBus subscribers that each
+// filter five symbols. The tick thread's cost stays flat as subscribers are
+// added; conflation keeps slow subscribers from falling behind.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class QuoteBusBenchmark {
+    @Param({"0", "1", "64"})
+    public int subscribers;
+    
+    @Param({"true", "false"})
+    public boolean conflate;
+    
+    private MarketData marketData;
+    private QuoteBus bus;
+    private final LongAdder quotes = new LongAdder();
+    
+    @Setup(Level.Trial)
+    public void setup() {
+        List<Stock> universe = Universe.stocks(1000);
+        marketData = new MarketData(universe);
+        bus = new QuoteBus(1024, 2);
+        for (int s = 0; s < subscribers; s++) {
+            int[] symbolIds = new int[5];
+            for (int k = 0; k < symbolIds.length; k++) {
+                symbolIds[k] = universe.get((s * 37 + k * 101) % universe.size()).getSymbolId();
+            }
+            bus.subscribe(symbolIds, conflate, (symbolId, quote) -> quotes.increment());
+        }
+    }
+    
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        bus.shutdown();
+        marketData.stopPriceUpdates();
+    }
+    
+    @Benchmark
+    public void publish() {
+        bus.publish(marketData.getSnapshot());
+    }
+}
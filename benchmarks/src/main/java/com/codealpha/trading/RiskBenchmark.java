@@ -0,0 +1,127 @@
+package com.codealpha.trading;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Full-book risk over stored accounts of a few positions each: building a
+// window's model from the return history, measuring a book already gathered,
+// and the whole run as the /risk/book endpoint does it, reading every account
+// from the portfolio store first. The larger universe checks that a model
+// costs what the symbols held need, not what the universe holds.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 3, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@State(Scope.Benchmark)
+public class RiskBenchmark {
+    private static final int POSITIONS = 10;
+    
+    @Param({"100000"})
+    public int accounts;
+    
+    @Param({"100", "100000"})
+    public int symbols;
+    
+    private MarketData marketData;
+    private double[] returns;
+    private ForkJoinPool pool;
+    private RiskEngine engine;
+    private RiskModel model;
+    private RiskEngine.Book book;
+    private UserStore userStore;
+    private AccountStore store;
+    
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        List<Stock> stocks = Universe.stocks(symbols);
+        marketData = new MarketData(stocks);
+        
+        // A market factor plus noise, about 1% a step
+        SplittableRandom random = new SplittableRandom(42);
+        int observations = RiskEngine.OBSERVATIONS;
+        returns = new double[symbols * observations];
+        for (int t = 0; t < observations; t++) {
+            double market = random.nextGaussian() * 0.006;
+            for (int s = 0; s < symbols; s++) {
+                returns[s * observations + t] = market + random.nextGaussian() * 0.008;
+            }
+        }
+        pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+        engine = new RiskEngine(null, marketData::getSnapshot, Runtime.getRuntime().availableProcessors());
+        model = RiskModel.fromReturns(marketData.getSnapshot(), returns, observations, RiskEngine.SCENARIOS, 1, pool);
+        
+        Path dataDir = Files.createTempDirectory("trading-bench");
+        userStore = UserStore.open(dataDir.resolve("users.dat"), dataDir.resolve("users.idx"));
+        PortfolioStore portfolioStore = PortfolioStore.open(dataDir, userStore);
+        book = new RiskEngine.Book(model);
+        List<Portfolio> written = new ArrayList<>();
+        for (int i = 0; i < accounts; i++) {
+            User user = new User("USER" + i, "user" + i, "", new BigDecimal("100000000"));
+            userStore.append(user);
+            for (int p = 0; p < POSITIONS; p++) {
+                user.getPortfolio().buyStock(stocks.get(random.nextInt(symbols)), 1 + random.nextInt(100));
+            }
+            book.add(user.getPortfolio());
+            written.add(user.getPortfolio());
+            if (written.size() == 1000) {
+                portfolioStore.write(written);
+                written.clear();
+            }
+        }
+        portfolioStore.write(written);
+        portfolioStore.sync();
+        store = new AccountStore(AccountStore.DEFAULT_SHARDS, userStore, portfolioStore,
+                                 AccountStore.DEFAULT_CACHE_BYTES);
+    }
+    
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        store.close();
+        userStore.close();
+        engine.shutdown();
+        pool.shutdownNow();
+        marketData.stopPriceUpdates();
+    }
+    
+    @Benchmark
+    public RiskModel model() {
+        return RiskModel.fromReturns(marketData.getSnapshot(), returns, RiskEngine.OBSERVATIONS,
+                                     RiskEngine.SCENARIOS, 1, pool);
+    }
+    
+    @Benchmark
+    public long measure() {
+        engine.measure(book);
+        return book.getBookMonteCarloVarCents();
+    }
+    
+    @Benchmark
+    public long fullBook() {
+        RiskEngine.Book gathered = new RiskEngine.Book(model);
+        store.forEachPortfolio(gathered::add);
+        engine.measure(gathered);
+        return gathered.getBookMonteCarloVarCents();
+    }
+}
@@ -0,0 +1,61 @@
+package com.codealpha.trading;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// A sell matched against a position of many one-share lots. Each invocation
+// consumes sharesSold lots from one end and buys them back, so the deque
+// stays the same size; run with -prof gc to confirm nothing is allocated.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TaxLotBenchmark {
+    @Param({"10000"})
+    public int lots;
+    
+    @Param({"1", "1000"})
+    public int sharesSold;
+    
+    private LotDeque deque;
+    private long price;
+    
+    @Setup
+    public void setup() {
+        deque = new LotDeque();
+        for (int i = 0; i < lots; i++) {
+            deque.addLast(1, 10_000 + i);
+        }
+    }
+    
+    @Benchmark
+    public long fifoSell() {
+        long cost = deque.removeFirst(sharesSold);
+        for (int i = 0; i < sharesSold; i++) {
+            deque.addLast(1, 10_000 + (price++ & 1023));
+        }
+        return cost;
+    }
+    
+    @Benchmark
+    public long lifoSell() {
+        long cost = deque.removeLast(sharesSold);
+        for (int i = 0; i < sharesSold; i++) {
+            deque.addLast(1, 10_000 + (price++ & 1023));
+        }
+        return cost;
+    }
+}
@@ -0,0 +1,93 @@
+package com.codealpha.trading;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Appending ticks of the whole universe to a TickStore, and rolling one
+// symbol's stored history into minute bars. Stores live in temporary
+// directories that are deleted after the trial. Appends are timed in batches
+// of APPEND_BATCH ticks, since at 100k symbols every tick writes 1.6 MB.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TickStoreBenchmark {
+    private static final int HISTORY_TICKS = 3600;
+    private static final int APPEND_BATCH = 50;
+    
+    @Param({"8", "1000", "100000"})
+    public int symbols;
+    
+    private MarketData marketData;
+    private Path directory;
+    private Path historyDirectory;
+    private TickStore store;
+    private TickStore history;
+    private int symbolId;
+    
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        marketData = new MarketData(Universe.stocks(symbols));
+        directory = Files.createTempDirectory("trading-ticks");
+        store = TickStore.open(directory);
+        
+        // A few thousand ticks of a small universe
+        List<Stock> small = Universe.stocks(8);
+        MarketData smallMarket = new MarketData(small);
+        historyDirectory = Files.createTempDirectory("trading-ticks");
+        history = TickStore.open(historyDirectory);
+        smallMarket.addSnapshotListener(history::append);
+        for (int i = 0; i < HISTORY_TICKS; i++) {
+            smallMarket.updateAllPrices();
+        }
+        symbolId = small.get(0).getSymbolId();
+    }
+    
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        marketData.stopPriceUpdates();
+        for (Path dir : new Path[] {directory, historyDirectory}) {
+            try (Stream<Path> files = Files.list(dir)) {
+                for (Path file : (Iterable<Path>) files::iterator) {
+                    Files.delete(file);
+                }
+            }
+            Files.delete(dir);
+        }
+    }
+    
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @Warmup(iterations = 3, batchSize = APPEND_BATCH)
+    @Measurement(iterations = 5, batchSize = APPEND_BATCH)
+    public void appendTicks() {
+        store.append(marketData.getSnapshot());
+    }
+    
+    @Benchmark
+    public int minuteBars() {
+        LocalDateTime now = LocalDateTime.now();
+        return history.bars(symbolId, now.minusHours(2), now.plusSeconds(1), BarSize.MINUTE).size();
+    }
+}
@@ -0,0 +1,72 @@
+package com.codealpha.trading;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// History queries against a TransactionLedger holding one account's fills,
+// one per second across 100 symbols
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TransactionLedgerBenchmark {
+    private static final int SYMBOLS = 100;
+    private static final LocalDateTime START = LocalDateTime.of(2024, 1, 1, 0, 0);
+    
+    @Param({"10000", "1000000"})
+    public int records;
+    
+    private TransactionLedger ledger;
+    private int[] symbolIds;
+    private int next;
+    
+    @Setup
+    public void setup() {
+        symbolIds = new int[SYMBOLS];
+        for (int i = 0; i < SYMBOLS; i++) {
+            symbolIds[i] = SymbolTable.idOf(Universe.symbol(i));
+        }
+        ledger = new TransactionLedger();
+        long startTime = TransactionLedger.toTime(START);
+        for (int i = 0; i < records; i++) {
+            ledger.append(i, symbolIds[i % SYMBOLS], Transaction.Type.BUY, 10, 10_000, LotMethod.FIFO, 0,
+                          startTime + i * 1_000_000_000L);
+        }
+    }
+    
+    // One page of the most recent history
+    @Benchmark
+    public long latestPage() {
+        long sum = 0;
+        for (int i = Math.max(0, ledger.size() - 20); i < ledger.size(); i++) {
+            sum += ledger.priceAt(i) * ledger.quantityAt(i);
+        }
+        return sum;
+    }
+    
+    // One hour of fills anywhere in the history
+    @Benchmark
+    public int[] hourRange() {
+        LocalDateTime from = START.plusSeconds((next++ * 7919L) % records);
+        return ledger.between(from, from.plusHours(1));
+    }
+    
+    @Benchmark
+    public int[] oneSymbol() {
+        return ledger.ofSymbol(symbolIds[next++ % SYMBOLS]);
+    }
+}
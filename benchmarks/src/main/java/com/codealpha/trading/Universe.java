@@ -0,0 +1,25 @@
+package com.codealpha.trading;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+// Synthetic symbol universes for the benchmarks
+final class Universe {
+    private Universe() {}
+    
+    static List<Stock> stocks(int size) {
+        Random random = new Random(42);
+        List<Stock> stocks = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            BigDecimal price = BigDecimal.valueOf(100 + random.nextInt(500_000), 2);
+            stocks.add(new Stock(symbol(i), "Company " + i, price));
+        }
+        return stocks;
+    }
+    
+    static String symbol(int i) {
+        return "S" + i;
+    }
+}
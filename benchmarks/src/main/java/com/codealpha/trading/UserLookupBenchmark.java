@@ -0,0 +1,90 @@
+package com.codealpha.trading;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Login and registration checks against accounts backed by the user and
+// portfolio stores, as the platform runs them; latency should not depend on
+// how many users are registered. The stores are built once per user count in
+// the temp directory and reused by later runs.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class UserLookupBenchmark {
+    private static final int BATCH = 100_000;
+    
+    @Param({"10", "10000000"})
+    public int users;
+    
+    private UserStore userStore;
+    private AccountStore directory;
+    private String[] probes;
+    private String[] misses;
+    private int next;
+    
+    @Setup
+    public void setup() throws IOException {
+        Path dataDir = Path.of(System.getProperty("java.io.tmpdir"), "trading-user-lookup-" + users);
+        Files.createDirectories(dataDir);
+        userStore = UserStore.open(dataDir.resolve("users.dat"), dataDir.resolve("users.idx"));
+        if (userStore.size() != users) {
+            BigDecimal cash = new BigDecimal("1000");
+            List<User> batch = new ArrayList<>(BATCH);
+            for (int i = userStore.size(); i < users; i++) {
+                batch.add(new User("USER" + i, "user" + i, "", cash));
+                if (batch.size() == BATCH || i == users - 1) {
+                    userStore.append(batch);
+                    batch.clear();
+                }
+            }
+            if (userStore.size() != users) {
+                throw new IOException("User store holds " + userStore.size() + " users, not " + users);
+            }
+        }
+        directory = new AccountStore(AccountStore.DEFAULT_SHARDS, userStore,
+                                     PortfolioStore.open(dataDir, userStore), AccountStore.DEFAULT_CACHE_BYTES);
+        probes = new String[1024];
+        misses = new String[probes.length];
+        for (int i = 0; i < probes.length; i++) {
+            probes[i] = "user" + (int) ((long) i * users / probes.length);
+            misses[i] = "new-" + probes[i];
+        }
+    }
+    
+    @TearDown
+    public void tearDown() {
+        directory.close();
+        userStore.close();
+    }
+    
+    @Benchmark
+    public User login() {
+        return directory.findByUsername(probes[next++ & (probes.length - 1)]);
+    }
+    
+    @Benchmark
+    public boolean registrationCheck() {
+        return directory.containsUsername(misses[next++ & (misses.length - 1)]);
+    }
+}
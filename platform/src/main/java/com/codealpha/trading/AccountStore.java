@@ -0,0 +1,362 @@
+package com.codealpha.trading;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+
+// Accounts partitioned into shards by userId. Backed by a UserStore and a
+// PortfolioStore, only the accounts in use are resident: an account is read
+// in on first lookup and kept in its shard's LRU until the shard's share of
+// the cache budget is exceeded, when the least recently used accounts are
+// evicted and, if changed, written back. Without stores every account added
+// stays resident, as tools and benchmarks need.
+//
+// An evicted account must have no live references, or trades on the stale
+// copy would be lost. Anyone holding an account across calls pins it with
+// acquire() until release(); accounts with open orders are never evicted
+// either, since the matching engine holds their portfolios. Trades on one
+// account are serialized by the portfolio's own lock, and a checkpoint only
+// takes that lock for the moment it copies the portfolio.
+class AccountStore {
+    static final int DEFAULT_SHARDS = Integer.getInteger("trading.accountShards",
+            4 * Runtime.getRuntime().availableProcessors());
+    static final long DEFAULT_CACHE_BYTES = Long.getLong("trading.accountCacheBytes",
+            Runtime.getRuntime().maxMemory() / 4);
+    
+    private final Shard[] shards;
+    private final Map<String, User> residentByUsername = new ConcurrentHashMap<>();
+    private final UserStore userStore;           // null when every account is resident
+    private final PortfolioStore portfolioStore;
+    private final long shardBudget;              // bytes
+    private volatile HolderIndex holderIndex;
+    private volatile MarketData marketData;
+    
+    AccountStore() {
+        this(DEFAULT_SHARDS);
+    }
+    
+    AccountStore(int shardCount) {
+        this(shardCount, null, null, Long.MAX_VALUE);
+    }
+    
+    AccountStore(int shardCount, UserStore userStore, PortfolioStore portfolioStore, long cacheBytes) {
+        shards = new Shard[Math.max(1, shardCount)];
+        for (int i = 0; i < shards.length; i++) {
+            shards[i] = new Shard();
+        }
+        this.userStore = userStore;
+        this.portfolioStore = portfolioStore;
+        this.shardBudget = Math.max(1, cacheBytes / shards.length);
+    }
+    
+    // Makes a new account resident; returns false if the username is already taken
+    public boolean add(User user) {
+        if (residentByUsername.putIfAbsent(user.getUsername(), user) != null) {
+            return false;
+        }
+        Shard shard = shardFor(user.getUserId());
+        List<User> victims;
+        synchronized (shard) {
+            victims = insert(shard, user);
+        }
+        writeBack(shard, victims);
+        return true;
+    }
+    
+    // Lookups read the account in if it is not resident. The result is not
+    // pinned: use it for reads, or acquire() it to keep and trade on it.
+    public User findById(String userId) {
+        return find(userId, null, false);
+    }
+    
+    public User findByUsername(String username) {
+        User user = residentByUsername.get(username);
+        if (userStore == null) {
+            return user;
+        }
+        return findByUsername(username, user, false);
+    }
+    
+    // Pins the account until release(); null if there is no such user
+    public User acquire(String username) {
+        return findByUsername(username, residentByUsername.get(username), true);
+    }
+    
+    public User acquireById(String userId) {
+        return find(userId, null, true);
+    }
+    
+    public void release(User user) {
+        synchronized (shardFor(user.getUserId())) {
+            user.unpin();
+        }
+    }
+    
+    public boolean containsUsername(String username) {
+        return residentByUsername.containsKey(username)
+                || (userStore != null && userStore.containsUsername(username));
+    }
+    
+    // Accounts currently in memory
+    public List<User> resident() {
+        List<User> users = new ArrayList<>();
+        for (Shard shard : shards) {
+            synchronized (shard) {
+                for (Entry entry : shard.lru.values()) {
+                    users.add(entry.user);
+                }
+            }
+        }
+        return users;
+    }
+    
+    public int size() {
+        return userStore == null ? residentByUsername.size() : userStore.size();
+    }
+    
+    // Visits every account's portfolio without reading any in: resident ones
+    // live, the rest as last written to the portfolio store. An account read
+    // in and traded on during the visit may be seen as it was stored.
+    void forEachPortfolio(Consumer<Portfolio> visitor) {
+        Set<String> visited = new HashSet<>();
+        for (Shard shard : shards) {
+            List<Portfolio> portfolios = new ArrayList<>();
+            synchronized (shard) {
+                for (Entry entry : shard.lru.values()) {
+                    portfolios.add(entry.user.getPortfolio());
+                }
+                for (User user : shard.writingBack.values()) {
+                    portfolios.add(user.getPortfolio());
+                }
+            }
+            for (Portfolio portfolio : portfolios) {
+                visited.add(portfolio.getUserId());
+                visitor.accept(portfolio);
+            }
+        }
+        if (portfolioStore == null) {
+            return;
+        }
+        try {
+            portfolioStore.forEach(portfolio -> {
+                if (!visited.contains(portfolio.getUserId())) {
+                    visitor.accept(portfolio);
+                }
+            });
+        } catch (IOException e) {
+            System.err.println("Error reading portfolios: " + e.getMessage());
+        }
+    }
+    
+    // Keeps resident portfolios, and any read in later, marked to the market
+    void attach(HolderIndex index, MarketData marketData) {
+        this.holderIndex = index;
+        this.marketData = marketData;
+        for (User user : resident()) {
+            user.getPortfolio().attach(index, marketData);
+        }
+    }
+    
+    // Writes every changed account to the portfolio store, re-weighs the
+    // resident ones and trims shards that grew past their budget. Returns the
+    // journal sequence read before starting, up to which every trade is now
+    // in the store, or -1 if a write failed.
+    long checkpoint(LongSupplier journalSeq) {
+        long seq = journalSeq.getAsLong();
+        try {
+            for (Shard shard : shards) {
+                List<Portfolio> changed = new ArrayList<>();
+                synchronized (shard) {
+                    shard.weight = 0;
+                    for (Entry entry : shard.lru.values()) {
+                        Portfolio portfolio = entry.user.getPortfolio();
+                        entry.weight = portfolio.estimateBytes();
+                        shard.weight += entry.weight;
+                        if (portfolio.isDirty()) {
+                            changed.add(portfolio);
+                        }
+                    }
+                    // Evictions still being written must be durable before the journal is compacted
+                    for (User user : shard.writingBack.values()) {
+                        changed.add(user.getPortfolio());
+                    }
+                }
+                portfolioStore.write(changed);
+                List<User> victims;
+                synchronized (shard) {
+                    victims = evict(shard, null);
+                }
+                writeBack(shard, victims);
+            }
+            portfolioStore.sync();
+            return seq;
+        } catch (IOException e) {
+            System.err.println("Error saving portfolio data: " + e.getMessage());
+            return -1;
+        }
+    }
+    
+    void close() {
+        if (portfolioStore != null) {
+            portfolioStore.close();
+        }
+    }
+    
+    int getShardCount() {
+        return shards.length;
+    }
+    
+    static int shardOf(String userId, int shardCount) {
+        int hash = userId.hashCode();
+        return Math.floorMod(hash ^ (hash >>> 16), shardCount);
+    }
+    
+    private User findByUsername(String username, User resident, boolean pin) {
+        if (resident != null) {
+            return find(resident.getUserId(), null, pin); // refreshes its place in the LRU
+        }
+        User stored = userStore == null ? null : userStore.findByUsername(username);
+        return stored == null ? null : find(stored.getUserId(), stored, pin);
+    }
+    
+    // stored is a fresh copy of the user's record if the caller already read it
+    private User find(String userId, User stored, boolean pin) {
+        Shard shard = shardFor(userId);
+        User user;
+        List<User> victims = null;
+        synchronized (shard) {
+            Entry entry = shard.lru.get(userId);
+            if (entry != null) {
+                user = entry.user;
+            } else if ((user = shard.writingBack.remove(userId)) != null) {
+                victims = insert(shard, user); // evicted but not yet written; still the live copy
+            } else if (userStore == null) {
+                return null;
+            } else {
+                user = stored != null ? stored : userStore.findById(userId);
+                if (user == null) {
+                    return null;
+                }
+                try {
+                    Portfolio portfolio = portfolioStore.read(userId);
+                    if (portfolio != null) {
+                        user.restorePortfolio(portfolio);
+                    }
+                } catch (IOException e) {
+                    System.err.println("Error loading portfolio: " + e.getMessage());
+                    return null;
+                }
+                Metrics.ACCOUNT_LOADS.increment();
+                victims = insert(shard, user);
+            }
+            if (pin) {
+                user.pin();
+            }
+        }
+        writeBack(shard, victims);
+        return user;
+    }
+    
+    // Caller holds the shard's lock; returns the accounts evicted to make room
+    private List<User> insert(Shard shard, User user) {
+        makeResident(shard, user);
+        return evict(shard, user);
+    }
+    
+    private void makeResident(Shard shard, User user) {
+        Entry entry = new Entry(user, user.getPortfolio().estimateBytes());
+        shard.lru.put(user.getUserId(), entry);
+        shard.weight += entry.weight;
+        residentByUsername.put(user.getUsername(), user);
+        HolderIndex index = holderIndex;
+        if (index != null) {
+            user.getPortfolio().attach(index, marketData);
+        }
+    }
+    
+    // Evicts least recently used accounts, other than keep, until the shard is
+    // within budget. Pinned accounts and those with open orders are passed
+    // over. Clean accounts are dropped; changed ones move to writingBack and
+    // are returned for the caller to write once it has released the shard.
+    private List<User> evict(Shard shard, User keep) {
+        List<User> victims = null;
+        Iterator<Entry> eldest = shard.lru.values().iterator();
+        while (shard.weight > shardBudget && eldest.hasNext() && userStore != null) {
+            Entry entry = eldest.next();
+            User user = entry.user;
+            Portfolio portfolio = user.getPortfolio();
+            if (user == keep || user.isPinned() || portfolio.hasReservations()) {
+                continue;
+            }
+            eldest.remove();
+            Metrics.ACCOUNT_EVICTIONS.increment();
+            shard.weight -= entry.weight;
+            residentByUsername.remove(user.getUsername(), user);
+            portfolio.detach();
+            if (portfolio.isDirty()) {
+                shard.writingBack.put(user.getUserId(), user);
+                if (victims == null) {
+                    victims = new ArrayList<>();
+                }
+                victims.add(user);
+            }
+        }
+        return victims;
+    }
+    
+    private void writeBack(Shard shard, List<User> victims) {
+        if (victims == null) {
+            return;
+        }
+        List<Portfolio> portfolios = new ArrayList<>(victims.size());
+        for (User user : victims) {
+            portfolios.add(user.getPortfolio());
+        }
+        try {
+            portfolioStore.write(portfolios);
+        } catch (IOException e) {
+            // Keep them resident, over budget, rather than lose their changes
+            System.err.println("Error writing back portfolios: " + e.getMessage());
+            synchronized (shard) {
+                for (User user : victims) {
+                    if (shard.writingBack.remove(user.getUserId(), user)) {
+                        makeResident(shard, user);
+                    }
+                }
+            }
+            return;
+        }
+        for (User user : victims) {
+            shard.writingBack.remove(user.getUserId(), user);
+        }
+    }
+    
+    private Shard shardFor(String userId) {
+        return shards[shardOf(userId, shards.length)];
+    }
+    
+    private static final class Entry {
+        final User user;
+        long weight; // bytes, as estimated when read in or last checkpointed
+        
+        Entry(User user, long weight) {
+            this.user = user;
+            this.weight = weight;
+        }
+    }
+    
+    // Guarded by its own monitor
+    private static final class Shard {
+        final LinkedHashMap<String, Entry> lru = new LinkedHashMap<>(16, 0.75f, true);
+        final Map<String, User> writingBack = new ConcurrentHashMap<>();
+        long weight;
+    }
+}
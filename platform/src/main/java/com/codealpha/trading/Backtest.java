@@ -0,0 +1,138 @@
+package com.codealpha.trading;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// One strategy run against one tick source, as fast as the ticks can be
+// replayed. Each backtest has its own stocks, market and portfolio, so any
+// number can run side by side; given a deterministic source and strategy,
+// the result is the same on every run.
+final class Backtest {
+    private final String name;
+    private final TickSource source;
+    private final Strategy strategy;
+    private final long initialCash; // cents
+    
+    Backtest(String name, TickSource source, Strategy strategy, BigDecimal initialCash) {
+        this.name = name;
+        this.source = source;
+        this.strategy = strategy;
+        this.initialCash = Money.of(initialCash);
+    }
+    
+    Result run() {
+        long start = System.nanoTime();
+        String[] symbols = source.getSymbols();
+        long[] prices = new long[symbols.length];
+        long time = source.next(prices);
+        Portfolio portfolio = new Portfolio(name, initialCash);
+        Account account = new Account(portfolio);
+        if (time == TickSource.END) {
+            return new Result(name, 0, portfolio, System.nanoTime() - start);
+        }
+        
+        // The first tick opens the market; replayed ticks follow in snapshot order
+        List<Stock> stocks = new ArrayList<>(symbols.length);
+        for (int i = 0; i < symbols.length; i++) {
+            stocks.add(new Stock(symbols[i], symbols[i], Money.toBigDecimal(prices[i])));
+        }
+        MarketData market = new MarketData(stocks);
+        MarketSnapshot opening = market.getSnapshot();
+        Map<String, Integer> columnBySymbol = new HashMap<>();
+        for (int column = 0; column < symbols.length; column++) {
+            columnBySymbol.put(symbols[column], column);
+        }
+        int[] columnOf = new int[symbols.length]; // snapshot index -> source column
+        for (int index = 0; index < columnOf.length; index++) {
+            columnOf[index] = columnBySymbol.get(opening.getStock(index).getSymbol());
+        }
+        HolderIndex holderIndex = new HolderIndex();
+        market.addSnapshotListener(holderIndex::onSnapshot);
+        portfolio.attach(holderIndex, market);
+        
+        long ticks = 0;
+        long[] ordered = new long[symbols.length];
+        try {
+            while (time != TickSource.END) {
+                for (int i = 0; i < ordered.length; i++) {
+                    ordered[i] = prices[columnOf[i]];
+                }
+                account.time = toTimestamp(time);
+                market.replayTick(ordered, account.time);
+                strategy.onTick(market.getSnapshot(), account);
+                ticks++;
+                time = source.next(prices);
+            }
+        } finally {
+            market.stopPriceUpdates();
+        }
+        return new Result(name, ticks, portfolio, System.nanoTime() - start);
+    }
+    
+    private static LocalDateTime toTimestamp(long time) {
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(time, 1_000_000_000L),
+                                           (int) Math.floorMod(time, 1_000_000_000L), ZoneOffset.UTC);
+    }
+    
+    // What a strategy trades through. Fills are at the snapshot's prices,
+    // stamped with the replayed tick time and numbered from 1 per backtest.
+    static final class Account {
+        private final Portfolio portfolio;
+        private long nextTransactionId = 1;
+        private LocalDateTime time;
+        
+        Account(Portfolio portfolio) {
+            this.portfolio = portfolio;
+        }
+        
+        public boolean buy(Stock stock, int quantity) {
+            long price = stock.getCurrentPriceCents();
+            if (portfolio.getAvailableCashCents() < Money.times(price, quantity)) {
+                return false; // Insufficient funds
+            }
+            portfolio.executeBuy(stock.getSymbolId(), quantity, price, nextTransactionId++, time);
+            return true;
+        }
+        
+        public boolean sell(Stock stock, int quantity) {
+            if (portfolio.getAvailableShares(stock.getSymbolId()) < quantity) {
+                return false; // Insufficient shares
+            }
+            portfolio.executeSell(stock.getSymbolId(), quantity, stock.getCurrentPriceCents(), nextTransactionId++,
+                                  time);
+            return true;
+        }
+        
+        // Getters
+        public Portfolio getPortfolio() { return portfolio; }
+        public LocalDateTime getTime() { return time; }
+    }
+    
+    static final class Result {
+        private final String name;
+        private final long ticks;
+        private final Portfolio portfolio;
+        private final long elapsedNanos;
+        
+        Result(String name, long ticks, Portfolio portfolio, long elapsedNanos) {
+            this.name = name;
+            this.ticks = ticks;
+            this.portfolio = portfolio;
+            this.elapsedNanos = elapsedNanos;
+        }
+        
+        // Getters
+        public String getName() { return name; }
+        public long getTicks() { return ticks; }
+        public Portfolio getPortfolio() { return portfolio; }
+        public BigDecimal getFinalValue() { return portfolio.getPortfolioValue(); }
+        public BigDecimal getRealizedPnl() { return portfolio.getRealizedPnl(); }
+        public int getTrades() { return portfolio.getLedger().size(); }
+        public long getElapsedNanos() { return elapsedNanos; }
+    }
+}
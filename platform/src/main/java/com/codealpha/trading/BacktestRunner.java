@@ -0,0 +1,70 @@
+package com.codealpha.trading;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+// Runs independent backtests in parallel, one per worker at a time, and
+// reports their combined replay throughput
+final class BacktestRunner {
+    private BacktestRunner() {}
+    
+    static Report runAll(List<Backtest> backtests, int threads) {
+        ExecutorService pool = Executors.newFixedThreadPool(Math.max(1, Math.min(threads, backtests.size())),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "backtest");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        long start = System.nanoTime();
+        try {
+            List<Callable<Backtest.Result>> tasks = new ArrayList<>(backtests.size());
+            for (Backtest backtest : backtests) {
+                tasks.add(backtest::run);
+            }
+            List<Backtest.Result> results = new ArrayList<>(backtests.size());
+            for (Future<Backtest.Result> result : pool.invokeAll(tasks)) {
+                results.add(result.get());
+            }
+            return new Report(results, System.nanoTime() - start);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted during backtests", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Backtest failed", e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+    
+    static final class Report {
+        private final List<Backtest.Result> results;
+        private final long elapsedNanos;
+        
+        Report(List<Backtest.Result> results, long elapsedNanos) {
+            this.results = results;
+            this.elapsedNanos = elapsedNanos;
+        }
+        
+        public long getTotalTicks() {
+            long ticks = 0;
+            for (Backtest.Result result : results) {
+                ticks += result.getTicks();
+            }
+            return ticks;
+        }
+        
+        // Ticks replayed per wall-clock second across all backtests
+        public double getTicksPerSecond() {
+            return elapsedNanos == 0 ? 0 : getTotalTicks() * 1e9 / elapsedNanos;
+        }
+        
+        // Getters
+        public List<Backtest.Result> getResults() { return results; }
+        public long getElapsedNanos() { return elapsedNanos; }
+    }
+}
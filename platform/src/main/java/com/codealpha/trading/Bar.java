@@ -0,0 +1,30 @@
+package com.codealpha.trading;
+
+import java.time.LocalDateTime;
+
+// One OHLCV bar rolled up from stored ticks; prices in cents, volume in shares traded
+final class Bar {
+    private final LocalDateTime start;
+    private final long open;
+    private final long high;
+    private final long low;
+    private final long close;
+    private final long volume;
+    
+    Bar(LocalDateTime start, long open, long high, long low, long close, long volume) {
+        this.start = start;
+        this.open = open;
+        this.high = high;
+        this.low = low;
+        this.close = close;
+        this.volume = volume;
+    }
+    
+    // Getters
+    public LocalDateTime getStart() { return start; }
+    public long getOpenCents() { return open; }
+    public long getHighCents() { return high; }
+    public long getLowCents() { return low; }
+    public long getCloseCents() { return close; }
+    public long getVolume() { return volume; }
+}
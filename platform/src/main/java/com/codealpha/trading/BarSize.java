@@ -0,0 +1,16 @@
+package com.codealpha.trading;
+
+// Bar widths for OHLCV rollups of the tick store
+enum BarSize {
+    SECOND(1_000_000_000L),
+    MINUTE(60_000_000_000L),
+    HOUR(3_600_000_000_000L);
+    
+    private final long nanos;
+    
+    BarSize(long nanos) {
+        this.nanos = nanos;
+    }
+    
+    long getNanos() { return nanos; }
+}
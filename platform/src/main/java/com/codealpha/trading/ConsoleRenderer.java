@@ -0,0 +1,199 @@
+package com.codealpha.trading;
+
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+// Formats table rows into one reusable buffer and writes it to the console in
+// large blocks, instead of a synchronized printf per row. Money, dates and
+// percentages are written digit by digit with the same output as the
+// "$#,##0.00", "yyyy-MM-dd HH:mm:ss" and "%.2f%%" formats they replace.
+//
+// Rows are built cell by cell: pad(width) left-justifies everything written
+// since the previous cell, like %-<width>s. The buffer goes out when it grows
+// past FLUSH_CHARS at the end of a row, so long listings stream in blocks,
+// and on flush(), which must be called before prompting. One renderer belongs
+// to one thread.
+final class ConsoleRenderer {
+    private static final int FLUSH_CHARS = 64 * 1024;
+    private static final long NANOS_PER_SECOND = 1_000_000_000L;
+    private static final int SECONDS_PER_DAY = 86_400;
+    
+    private final PrintStream out;
+    private final StringBuilder buffer = new StringBuilder(FLUSH_CHARS + 1024);
+    private final CharsetEncoder encoder;
+    private final char[] chunk = new char[8 * 1024];
+    private final ByteBuffer bytes = ByteBuffer.allocate(32 * 1024);
+    private int cellStart;
+    // "yyyy-MM-dd " of the last epoch day formatted; history rows mostly share a day
+    private long cachedDay = Long.MIN_VALUE;
+    private final char[] cachedDate = new char[11];
+    
+    ConsoleRenderer(PrintStream out) {
+        this(out, Charset.defaultCharset());
+    }
+    
+    ConsoleRenderer(PrintStream out, Charset charset) {
+        this.out = out;
+        this.encoder = charset.newEncoder()
+                              .onMalformedInput(CodingErrorAction.REPLACE)
+                              .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    }
+    
+    ConsoleRenderer text(CharSequence text) {
+        buffer.append(text);
+        return this;
+    }
+    
+    ConsoleRenderer number(long value) {
+        buffer.append(value);
+        return this;
+    }
+    
+    // "+" for zero and gains, nothing for losses, outside the next cell's width
+    ConsoleRenderer sign(long value) {
+        if (value >= 0) {
+            buffer.append('+');
+        }
+        cellStart = buffer.length();
+        return this;
+    }
+    
+    // $#,##0.00
+    ConsoleRenderer cents(long cents) {
+        if (cents < 0) {
+            buffer.append('-');
+        }
+        buffer.append('$');
+        long whole = Math.abs(cents / Money.ONE);
+        int fraction = (int) Math.abs(cents % Money.ONE);
+        appendGrouped(whole);
+        buffer.append('.').append((char) ('0' + fraction / 10)).append((char) ('0' + fraction % 10));
+        return this;
+    }
+    
+    // Hundredths of a percent as %.2f%%
+    ConsoleRenderer percent(long hundredths) {
+        if (hundredths < 0) {
+            buffer.append('-');
+        }
+        int fraction = (int) Math.abs(hundredths % 100);
+        buffer.append(Math.abs(hundredths / 100)).append('.')
+              .append((char) ('0' + fraction / 10)).append((char) ('0' + fraction % 10)).append('%');
+        return this;
+    }
+    
+    // yyyy-MM-dd HH:mm:ss
+    ConsoleRenderer dateTime(LocalDateTime timestamp) {
+        return time(TransactionLedger.toTime(timestamp));
+    }
+    
+    // yyyy-MM-dd HH:mm:ss of a TransactionLedger time
+    ConsoleRenderer time(long time) {
+        long seconds = Math.floorDiv(time, NANOS_PER_SECOND);
+        long day = Math.floorDiv(seconds, SECONDS_PER_DAY);
+        if (day != cachedDay) {
+            LocalDate date = LocalDate.ofEpochDay(day);
+            int year = date.getYear();
+            for (int i = 3; i >= 0; i--, year /= 10) {
+                cachedDate[i] = (char) ('0' + year % 10);
+            }
+            cachedDate[4] = '-';
+            putTwoDigits(cachedDate, 5, date.getMonthValue());
+            cachedDate[7] = '-';
+            putTwoDigits(cachedDate, 8, date.getDayOfMonth());
+            cachedDate[10] = ' ';
+            cachedDay = day;
+        }
+        int secondOfDay = Math.floorMod(seconds, SECONDS_PER_DAY);
+        buffer.append(cachedDate);
+        appendTwoDigits(secondOfDay / 3600).append(':');
+        appendTwoDigits(secondOfDay / 60 % 60).append(':');
+        appendTwoDigits(secondOfDay % 60);
+        return this;
+    }
+    
+    // Left-justifies the current cell to width and starts the next one
+    ConsoleRenderer pad(int width) {
+        for (int n = cellStart + width - buffer.length(); n > 0; n--) {
+            buffer.append(' ');
+        }
+        buffer.append(' ');
+        cellStart = buffer.length();
+        return this;
+    }
+    
+    ConsoleRenderer rule(int width) {
+        for (int i = 0; i < width; i++) {
+            buffer.append('-');
+        }
+        return newline();
+    }
+    
+    ConsoleRenderer newline() {
+        buffer.append(System.lineSeparator());
+        cellStart = buffer.length();
+        if (buffer.length() >= FLUSH_CHARS) {
+            flush();
+        }
+        return this;
+    }
+    
+    void flush() {
+        int length = buffer.length();
+        if (length > 0) {
+            encoder.reset();
+            for (int start = 0; start < length; ) {
+                int end = Math.min(length, start + chunk.length);
+                if (end < length && Character.isHighSurrogate(buffer.charAt(end - 1))) {
+                    end--; // keep surrogate pairs in one chunk
+                }
+                buffer.getChars(start, end, chunk, 0);
+                CharBuffer chars = CharBuffer.wrap(chunk, 0, end - start);
+                while (encoder.encode(chars, bytes, end == length).isOverflow()) {
+                    drainBytes();
+                }
+                start = end;
+            }
+            while (encoder.flush(bytes).isOverflow()) {
+                drainBytes();
+            }
+            drainBytes();
+            buffer.setLength(0);
+            cellStart = 0;
+        }
+        out.flush();
+    }
+    
+    private void drainBytes() {
+        if (bytes.position() > 0) {
+            out.write(bytes.array(), 0, bytes.position());
+            bytes.clear();
+        }
+    }
+    
+    private void appendGrouped(long value) {
+        if (value >= 1000) {
+            appendGrouped(value / 1000);
+            int group = (int) (value % 1000);
+            buffer.append(',').append((char) ('0' + group / 100)).append((char) ('0' + group / 10 % 10))
+                  .append((char) ('0' + group % 10));
+        } else {
+            buffer.append(value);
+        }
+    }
+    
+    private StringBuilder appendTwoDigits(int value) {
+        return buffer.append((char) ('0' + value / 10)).append((char) ('0' + value % 10));
+    }
+    
+    private static void putTwoDigits(char[] target, int offset, int value) {
+        target[offset] = (char) ('0' + value / 10);
+        target[offset + 1] = (char) ('0' + value % 10);
+    }
+}
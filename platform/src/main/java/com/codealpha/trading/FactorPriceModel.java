@@ -0,0 +1,36 @@
+package com.codealpha.trading;
+
+import java.util.SplittableRandom;
+
+// Correlated GBM with one market factor: each symbol's shock is
+// beta * market + sqrt(1 - beta^2) * own noise, so any two symbols have
+// correlation beta^2. The market shock is drawn once per tick.
+public final class FactorPriceModel implements PriceModel {
+    private final double drift = PriceModels.parameter("drift", 0.0);
+    private final double volatility = PriceModels.parameter("volatility", 0.02);
+    private final double beta = Math.max(-1, Math.min(1, PriceModels.parameter("beta", 0.6)));
+    private double marketShock;
+    
+    @Override
+    public String name() {
+        return "factor";
+    }
+    
+    @Override
+    public void beginTick(SplittableRandom random) {
+        marketShock = random.nextGaussian();
+    }
+    
+    @Override
+    public void step(double[] prices, int from, int to, SplittableRandom random, double[] scratch) {
+        double mean = drift - volatility * volatility / 2;
+        double common = beta * marketShock;
+        double idiosyncratic = Math.sqrt(1 - beta * beta);
+        int count = to - from;
+        for (int i = 0; i < count; i++) {
+            scratch[i] = mean + volatility * (common + idiosyncratic * random.nextGaussian());
+        }
+        PriceModel.expm1(scratch, count);
+        PriceModel.applyReturns(prices, scratch, from, to);
+    }
+}
@@ -0,0 +1,70 @@
+package com.codealpha.trading;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+
+class FileManager {
+    private static final Path DATA_DIR = Paths.get(System.getProperty("trading.dataDir", "."));
+    private static final Path USERS_FILE = DATA_DIR.resolve("users.dat");
+    private static final Path PORTFOLIOS_FILE = DATA_DIR.resolve("portfolios.dat");
+    private static final Path JOURNAL_FILE = DATA_DIR.resolve("trades.journal");
+    private static final Path USER_INDEX_FILE = DATA_DIR.resolve("users.idx");
+    private static final Path TICKS_DIR = DATA_DIR.resolve("ticks");
+    private static final int SERIALIZED_MAGIC = 0xACED0005; // java.io object stream header
+    
+    private static UserStore userStore;
+    
+    public static synchronized UserStore openUserStore() throws IOException {
+        if (userStore == null) {
+            moveAsideIfSerialized(USERS_FILE);
+            userStore = UserStore.open(USERS_FILE, USER_INDEX_FILE);
+        }
+        return userStore;
+    }
+    
+    public static boolean saveUser(User user) {
+        try {
+            return openUserStore().append(user);
+        } catch (IOException e) {
+            System.err.println("Error saving user: " + e.getMessage());
+            return false;
+        }
+    }
+    
+    // Accounts over the user and portfolio stores, read in as they are used
+    public static AccountStore openAccounts() throws IOException {
+        UserStore users = openUserStore();
+        moveAsideIfSerialized(PORTFOLIOS_FILE);
+        PortfolioStore portfolios = PortfolioStore.open(DATA_DIR, users);
+        return new AccountStore(AccountStore.DEFAULT_SHARDS, users, portfolios, AccountStore.DEFAULT_CACHE_BYTES);
+    }
+    
+    public static TradeJournal openJournal() throws IOException {
+        return TradeJournal.open(JOURNAL_FILE);
+    }
+    
+    public static TickStore openTickStore() throws IOException {
+        return TickStore.open(TICKS_DIR);
+    }
+    
+    // Versions before the user store wrote users.dat and portfolios.dat as Java
+    // object streams of classes that were not Serializable, so those files hold
+    // only the exceptions that writing them threw. They are renamed to .old so
+    // the stores can start fresh in their place.
+    private static void moveAsideIfSerialized(Path file) throws IOException {
+        if (!Files.exists(file) || Files.size(file) < Integer.BYTES) {
+            return;
+        }
+        try (DataInputStream in = new DataInputStream(Files.newInputStream(file))) {
+            if (in.readInt() != SERIALIZED_MAGIC) {
+                return;
+            }
+        }
+        Path old = file.resolveSibling(file.getFileName() + ".old");
+        Files.move(file, old, StandardCopyOption.REPLACE_EXISTING);
+        System.err.println(file + " is from an earlier version and holds no account data; moved it to " + old);
+    }
+}
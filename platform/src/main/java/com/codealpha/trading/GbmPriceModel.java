@@ -0,0 +1,26 @@
+package com.codealpha.trading;
+
+import java.util.SplittableRandom;
+
+// Geometric Brownian motion: log returns are normal with the given per-tick
+// drift and volatility
+public final class GbmPriceModel implements PriceModel {
+    private final double drift = PriceModels.parameter("drift", 0.0);
+    private final double volatility = PriceModels.parameter("volatility", 0.02);
+    
+    @Override
+    public String name() {
+        return "gbm";
+    }
+    
+    @Override
+    public void step(double[] prices, int from, int to, SplittableRandom random, double[] scratch) {
+        double mean = drift - volatility * volatility / 2;
+        int count = to - from;
+        for (int i = 0; i < count; i++) {
+            scratch[i] = mean + volatility * random.nextGaussian();
+        }
+        PriceModel.expm1(scratch, count);
+        PriceModel.applyReturns(prices, scratch, from, to);
+    }
+}
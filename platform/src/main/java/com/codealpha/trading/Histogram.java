@@ -0,0 +1,100 @@
+package com.codealpha.trading;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+// Log-linear histogram of non-negative values, laid out like HdrHistogram:
+// values below SUB_BUCKETS are counted exactly and every power of two above
+// that is split into SUB_BUCKETS / 2 linear buckets, so percentiles come back
+// within about 3% of the recorded value. Recording is lock-free and does not
+// allocate: one atomic increment, one LongAdder add and a max check that only
+// writes when the maximum grows. Readers see counts that may be mid-update,
+// which is fine for monitoring.
+final class Histogram {
+    private static final int SUB_BITS = 6;
+    private static final int SUB_BUCKETS = 1 << SUB_BITS;
+    private static final int HALF = SUB_BUCKETS >> 1;
+    private static final int BUCKETS = SUB_BUCKETS + (Long.SIZE - SUB_BITS) * HALF;
+    
+    private final String name;
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final LongAdder sum = new LongAdder();
+    private final AtomicLong max = new AtomicLong();
+    
+    Histogram(String name) {
+        this.name = name;
+    }
+    
+    void record(long value) {
+        if (value < 0) {
+            value = 0;
+        }
+        counts.getAndIncrement(indexOf(value));
+        sum.add(value);
+        long current;
+        while (value > (current = max.get()) && !max.compareAndSet(current, value)) {
+            // lost a race with a larger or concurrent maximum; re-check
+        }
+    }
+    
+    // Records the nanoseconds elapsed since a Metrics.start() reading
+    void recordSince(long startNanos) {
+        if (Metrics.ENABLED) {
+            record(System.nanoTime() - startNanos);
+        }
+    }
+    
+    long getCount() {
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            total += counts.get(i);
+        }
+        return total;
+    }
+    
+    // Highest value of the bucket holding the given percentile (0..100), capped at the maximum
+    long valueAtPercentile(double percentile) {
+        long total = getCount();
+        if (total == 0) {
+            return 0;
+        }
+        long target = Math.max(1, (long) Math.ceil(percentile / 100 * total));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts.get(i);
+            if (seen >= target) {
+                return Math.min(highestValueOf(i), max.get());
+            }
+        }
+        return max.get();
+    }
+    
+    double getMean() {
+        long total = getCount();
+        return total == 0 ? 0 : sum.sum() / (double) total;
+    }
+    
+    static int indexOf(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int shift = Long.SIZE - Long.numberOfLeadingZeros(value) - SUB_BITS;
+        return SUB_BUCKETS + (shift - 1) * HALF + (int) (value >>> shift) - HALF;
+    }
+    
+    static long highestValueOf(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        int shift = (index - SUB_BUCKETS) / HALF + 1;
+        long magnitude = (index - SUB_BUCKETS) % HALF + HALF + 1;
+        long highest = (magnitude << shift) - 1;
+        return highest < 0 ? Long.MAX_VALUE : highest; // top buckets run past Long.MAX_VALUE
+    }
+    
+    // Getters
+    public String getName() { return name; }
+    public long getSum() { return sum.sum(); }
+    public long getMax() { return max.get(); }
+}
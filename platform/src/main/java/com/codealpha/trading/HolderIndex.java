@@ -0,0 +1,39 @@
+package com.codealpha.trading;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Symbol id -> portfolios currently holding that symbol. Each published snapshot
+// re-marks only those holders, so a tick costs nothing for portfolios that are
+// not exposed to the symbols that moved.
+final class HolderIndex {
+    private final Map<Integer, Set<Portfolio>> holders = new ConcurrentHashMap<>();
+    
+    void add(int symbolId, Portfolio portfolio) {
+        holders.computeIfAbsent(symbolId, id -> ConcurrentHashMap.newKeySet()).add(portfolio);
+    }
+    
+    void remove(int symbolId, Portfolio portfolio) {
+        Set<Portfolio> set = holders.get(symbolId);
+        if (set != null) {
+            set.remove(portfolio);
+        }
+    }
+    
+    void onSnapshot(MarketSnapshot market) {
+        holders.forEach((symbolId, set) -> {
+            if (set.isEmpty()) {
+                return;
+            }
+            Quote quote = market.getQuoteBySymbolId(symbolId);
+            if (quote == null) {
+                return;
+            }
+            long price = quote.getPriceCents();
+            for (Portfolio portfolio : set) {
+                portfolio.mark(symbolId, price);
+            }
+        });
+    }
+}
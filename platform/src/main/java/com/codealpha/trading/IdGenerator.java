@@ -0,0 +1,28 @@
+package com.codealpha.trading;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+// Snowflake-style 63-bit ids: milliseconds since EPOCH, a node id and a
+// per-millisecond sequence. The clock and sequence live in one AtomicLong,
+// so ids are unique and strictly increasing across threads without locking.
+// When a millisecond's 4096 sequence values run out, the sequence carries
+// into the next millisecond instead of waiting for the clock.
+final class IdGenerator {
+    private static final long EPOCH = 1704067200000L; // 2024-01-01T00:00:00Z
+    private static final int NODE_BITS = 10;
+    private static final int SEQUENCE_BITS = 12;
+    private static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+    private static final long NODE = Long.getLong("trading.nodeId", 0) & ((1L << NODE_BITS) - 1);
+    
+    // (milliseconds since EPOCH << SEQUENCE_BITS) | sequence of the last id issued
+    private static final AtomicLong state = new AtomicLong();
+    
+    private IdGenerator() {}
+    
+    static long nextId() {
+        long now = (System.currentTimeMillis() - EPOCH) << SEQUENCE_BITS;
+        long next = state.updateAndGet(last -> Math.max(now, last + 1));
+        long millis = next >>> SEQUENCE_BITS;
+        return (millis << (NODE_BITS + SEQUENCE_BITS)) | (NODE << SEQUENCE_BITS) | (next & SEQUENCE_MASK);
+    }
+}
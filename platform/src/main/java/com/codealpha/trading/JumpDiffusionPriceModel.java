@@ -0,0 +1,33 @@
+package com.codealpha.trading;
+
+import java.util.SplittableRandom;
+
+// Merton jump diffusion: GBM plus, with probability jumpProbability per tick,
+// a normally distributed jump in the log price
+public final class JumpDiffusionPriceModel implements PriceModel {
+    private final double drift = PriceModels.parameter("drift", 0.0);
+    private final double volatility = PriceModels.parameter("volatility", 0.01);
+    private final double jumpProbability = PriceModels.parameter("jumpProbability", 0.01);
+    private final double jumpMean = PriceModels.parameter("jumpMean", 0.0);
+    private final double jumpVolatility = PriceModels.parameter("jumpVolatility", 0.1);
+    
+    @Override
+    public String name() {
+        return "jumpDiffusion";
+    }
+    
+    @Override
+    public void step(double[] prices, int from, int to, SplittableRandom random, double[] scratch) {
+        double mean = drift - volatility * volatility / 2;
+        int count = to - from;
+        for (int i = 0; i < count; i++) {
+            double logReturn = mean + volatility * random.nextGaussian();
+            if (random.nextDouble() < jumpProbability) {
+                logReturn += jumpMean + jumpVolatility * random.nextGaussian();
+            }
+            scratch[i] = logReturn;
+        }
+        PriceModel.expm1(scratch, count);
+        PriceModel.applyReturns(prices, scratch, from, to);
+    }
+}
@@ -0,0 +1,78 @@
+package com.codealpha.trading;
+
+// Open tax lots of one position, oldest first, in a ring buffer of parallel
+// primitive arrays. Consuming lots from either end allocates nothing and
+// costs O(lots consumed); a partially consumed lot is shrunk in place.
+final class LotDeque {
+    private int[] quantities = new int[4];
+    private long[] prices = new long[4]; // cents per share
+    private int head;
+    private int count;
+    
+    void addLast(int quantity, long price) {
+        if (count == quantities.length) {
+            grow();
+        }
+        int i = (head + count) & (quantities.length - 1);
+        quantities[i] = quantity;
+        prices[i] = price;
+        count++;
+    }
+    
+    // Removes quantity shares from the oldest lots and returns their cost in cents
+    long removeFirst(int quantity) {
+        long cost = 0;
+        int mask = quantities.length - 1;
+        while (quantity > 0 && count > 0) {
+            int taken = Math.min(quantity, quantities[head]);
+            cost += Money.times(prices[head], taken);
+            quantity -= taken;
+            quantities[head] -= taken;
+            if (quantities[head] == 0) {
+                head = (head + 1) & mask;
+                count--;
+            }
+        }
+        return cost;
+    }
+    
+    // Removes quantity shares from the newest lots and returns their cost in cents
+    long removeLast(int quantity) {
+        long cost = 0;
+        int mask = quantities.length - 1;
+        while (quantity > 0 && count > 0) {
+            int tail = (head + count - 1) & mask;
+            int taken = Math.min(quantity, quantities[tail]);
+            cost += Money.times(prices[tail], taken);
+            quantity -= taken;
+            quantities[tail] -= taken;
+            if (quantities[tail] == 0) {
+                count--;
+            }
+        }
+        return cost;
+    }
+    
+    void clear() {
+        head = 0;
+        count = 0;
+    }
+    
+    int size() { return count; }
+    // i counts from the oldest lot
+    int quantityAt(int i) { return quantities[(head + i) & (quantities.length - 1)]; }
+    long priceAt(int i) { return prices[(head + i) & (quantities.length - 1)]; }
+    
+    private void grow() {
+        int capacity = quantities.length * 2;
+        int[] newQuantities = new int[capacity];
+        long[] newPrices = new long[capacity];
+        for (int i = 0; i < count; i++) {
+            newQuantities[i] = quantityAt(i);
+            newPrices[i] = priceAt(i);
+        }
+        quantities = newQuantities;
+        prices = newPrices;
+        head = 0;
+    }
+}
@@ -0,0 +1,8 @@
+package com.codealpha.trading;
+
+// How a sell is matched against the open tax lots of a position
+enum LotMethod {
+    FIFO,    // oldest lots first
+    LIFO,    // newest lots first
+    AVERAGE  // average cost of the whole position
+}
@@ -0,0 +1,147 @@
+package com.codealpha.trading;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+class MarketData {
+    private static final long TICK_INTERVAL_MILLIS = Long.getLong("trading.tickMillis", 5000);
+    private static final int SYNTHETIC_SYMBOLS = Integer.getInteger("trading.syntheticSymbols", 0);
+    private static final int TICK_THREADS = Integer.getInteger("trading.tickThreads",
+            Runtime.getRuntime().availableProcessors());
+    // Fixed seed for reproducible live ticks (with the same tickThreads); random by default
+    private static final Long TICK_SEED = Long.getLong("trading.tickSeed");
+    private static final String PRICE_MODEL = System.getProperty("trading.priceModel", PriceModels.DEFAULT);
+    
+    private Map<String, Stock> stocks;
+    private Stock[] universe;
+    private Map<String, Integer> indexBySymbol;
+    private int[] indexBySymbolId;
+    private volatile MarketSnapshot snapshot;
+    private TickEngine tickEngine;
+    private final List<Consumer<MarketSnapshot>> snapshotListeners = new CopyOnWriteArrayList<>();
+    
+    public MarketData() {
+        stocks = new HashMap<>();
+        initializeStocks();
+        addSyntheticStocks(SYNTHETIC_SYMBOLS);
+        publishUniverse();
+        startPriceUpdates();
+    }
+    
+    // Fixed universe without scheduled ticks; callers drive updateAllPrices()
+    MarketData(Collection<Stock> universe) {
+        stocks = new HashMap<>();
+        for (Stock stock : universe) {
+            stocks.put(stock.getSymbol(), stock);
+        }
+        publishUniverse();
+    }
+    
+    // The symbol set is fixed from here on, so the map can be shared without copying
+    private void publishUniverse() {
+        stocks = Collections.unmodifiableMap(stocks);
+        universe = stocks.values().toArray(new Stock[0]);
+        Map<String, Integer> index = new HashMap<>();
+        Quote[] quotes = new Quote[universe.length];
+        for (int i = 0; i < universe.length; i++) {
+            index.put(universe[i].getSymbol(), i);
+            quotes[i] = universe[i].getQuote();
+        }
+        indexBySymbol = Collections.unmodifiableMap(index);
+        int maxSymbolId = -1;
+        for (Stock stock : universe) {
+            maxSymbolId = Math.max(maxSymbolId, stock.getSymbolId());
+        }
+        indexBySymbolId = new int[maxSymbolId + 1];
+        Arrays.fill(indexBySymbolId, -1);
+        for (int i = 0; i < universe.length; i++) {
+            indexBySymbolId[universe[i].getSymbolId()] = i;
+        }
+        snapshot = new MarketSnapshot(universe, indexBySymbol, indexBySymbolId, quotes, 0);
+        tickEngine = new TickEngine(universe, TICK_THREADS, TICK_SEED != null ? TICK_SEED : System.nanoTime(),
+                                    PriceModels.load(PRICE_MODEL));
+    }
+    
+    private void initializeStocks() {
+        stocks.put("AAPL", new Stock("AAPL", "Apple Inc.", new BigDecimal("150.00")));
+        stocks.put("GOOGL", new Stock("GOOGL", "Alphabet Inc.", new BigDecimal("2500.00")));
+        stocks.put("MSFT", new Stock("MSFT", "Microsoft Corp.", new BigDecimal("300.00")));
+        stocks.put("AMZN", new Stock("AMZN", "Amazon.com Inc.", new BigDecimal("3200.00")));
+        stocks.put("TSLA", new Stock("TSLA", "Tesla Inc.", new BigDecimal("800.00")));
+        stocks.put("META", new Stock("META", "Meta Platforms Inc.", new BigDecimal("320.00")));
+        stocks.put("NVDA", new Stock("NVDA", "NVIDIA Corp.", new BigDecimal("220.00")));
+        stocks.put("NFLX", new Stock("NFLX", "Netflix Inc.", new BigDecimal("450.00")));
+    }
+    
+    // Extra generated symbols for exercising large universes
+    private void addSyntheticStocks(int count) {
+        for (int i = 0; i < count; i++) {
+            String symbol = String.format("SYN%06d", i);
+            stocks.put(symbol, new Stock(symbol, "Synthetic " + i, BigDecimal.valueOf(10000 + i % 90000, 2)));
+        }
+    }
+    
+    private void startPriceUpdates() {
+        tickEngine.start(TICK_INTERVAL_MILLIS, this::publish);
+    }
+    
+    void updateAllPrices() {
+        publish(tickEngine.tick());
+    }
+    
+    // Replay mode: prices every symbol from prices (cents, in snapshot order)
+    // and publishes, bypassing the tick engine
+    void replayTick(long[] prices, LocalDateTime timestamp) {
+        Quote[] quotes = new Quote[universe.length];
+        for (int i = 0; i < universe.length; i++) {
+            quotes[i] = universe[i].setPrice(prices[i], timestamp);
+        }
+        publish(quotes);
+    }
+    
+    private void publish(Quote[] quotes) {
+        long start = Metrics.start();
+        MarketSnapshot published = new MarketSnapshot(universe, indexBySymbol, indexBySymbolId, quotes,
+                snapshot.getSequence() + 1);
+        snapshot = published;
+        for (Consumer<MarketSnapshot> listener : snapshotListeners) {
+            listener.accept(published);
+        }
+        Metrics.TICK_PUBLISH.recordSince(start);
+    }
+    
+    // Called on the tick thread after each snapshot is published
+    void addSnapshotListener(Consumer<MarketSnapshot> listener) {
+        snapshotListeners.add(listener);
+    }
+    
+    public Stock getStock(String symbol) {
+        return stocks.get(symbol.toUpperCase());
+    }
+    
+    // Read-only view; no copy is made
+    public Map<String, Stock> getAllStocks() {
+        return stocks;
+    }
+    
+    // Consistent quotes for every symbol as of the latest update cycle
+    public MarketSnapshot getSnapshot() {
+        return snapshot;
+    }
+    
+    public TickMetrics getTickMetrics() {
+        return tickEngine.getMetrics();
+    }
+    
+    public void stopPriceUpdates() {
+        tickEngine.shutdown();
+    }
+}
@@ -0,0 +1,40 @@
+package com.codealpha.trading;
+
+import java.util.Map;
+
+// Quotes for the whole universe as of one update cycle. Published atomically
+// by MarketData and never modified, so readers can hold on to it freely.
+final class MarketSnapshot {
+    private final Stock[] stocks;
+    private final Map<String, Integer> indexBySymbol;
+    private final int[] indexBySymbolId; // -1 for symbols outside the universe
+    private final Quote[] quotes;
+    private final long sequence;
+    
+    MarketSnapshot(Stock[] stocks, Map<String, Integer> indexBySymbol, int[] indexBySymbolId,
+                   Quote[] quotes, long sequence) {
+        this.stocks = stocks;
+        this.indexBySymbol = indexBySymbol;
+        this.indexBySymbolId = indexBySymbolId;
+        this.quotes = quotes;
+        this.sequence = sequence;
+    }
+    
+    public Quote getQuote(String symbol) {
+        Integer index = indexBySymbol.get(symbol);
+        return index == null ? null : quotes[index];
+    }
+    
+    public Quote getQuoteBySymbolId(int symbolId) {
+        if (symbolId < 0 || symbolId >= indexBySymbolId.length) {
+            return null;
+        }
+        int index = indexBySymbolId[symbolId];
+        return index < 0 ? null : quotes[index];
+    }
+    
+    public int size() { return quotes.length; }
+    public Stock getStock(int index) { return stocks[index]; }
+    public Quote getQuote(int index) { return quotes[index]; }
+    public long getSequence() { return sequence; }
+}
@@ -0,0 +1,242 @@
+package com.codealpha.trading;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Routes orders to per-symbol order books. Symbols are sharded across a fixed
+// set of single-threaded executors, so each book has exactly one writer and
+// needs no locking; throughput scales with the number of shards.
+//
+// Liquidity comes from two places: other users' resting orders, matched with
+// price-time priority at the resting price, and the simulated market, which
+// takes any size at the current quote. An incoming order first crosses the
+// book at prices no worse than the quote, then fills the rest against the
+// market if its limit allows, and rests otherwise. Market orders are
+// immediate-or-cancel with the quote seen at submission as their limit.
+// Resting orders fill against the market when a tick moves the quote through
+// their limit. Cash and shares are reserved on submission, so every
+// execution settles without further checks. An execution is applied and
+// handed to the fill listener as one step under the portfolio's lock, so a
+// checkpoint never sees it half done.
+class MatchingEngine {
+    interface FillListener {
+        // Called on a shard thread for each settled execution
+        void onFill(Portfolio portfolio, Transaction transaction);
+    }
+    
+    private final MarketData marketData;
+    private final FillListener listener;
+    private final Shard[] shards;
+    private final AtomicLong nextOrderId = new AtomicLong(1);
+    // Resting orders of each portfolio by order id. Shards add and remove
+    // orders of the same portfolio concurrently, so each inner map is only
+    // touched inside a compute call on its key.
+    private final Map<Portfolio, TreeMap<Long, Order>> openOrders = new ConcurrentHashMap<>();
+    
+    MatchingEngine(MarketData marketData, int shardCount, FillListener listener) {
+        this.marketData = marketData;
+        this.listener = listener;
+        this.shards = new Shard[shardCount];
+        for (int i = 0; i < shardCount; i++) {
+            shards[i] = new Shard(i);
+        }
+    }
+    
+    // Returns the order at once; processed() completes once it has been
+    // matched, rested or rejected
+    Order submitLimit(Portfolio portfolio, Stock stock, Transaction.Type side,
+                      int quantity, long limitPrice) {
+        return submit(new Order(nextOrderId.getAndIncrement(), portfolio, stock.getSymbolId(),
+                                side, false, limitPrice, quantity));
+    }
+    
+    Order submitMarket(Portfolio portfolio, Stock stock, Transaction.Type side, int quantity) {
+        // Protect at the same published quote the shard will compare against
+        long quote = marketData.getSnapshot().getQuoteBySymbolId(stock.getSymbolId()).getPriceCents();
+        return submit(new Order(nextOrderId.getAndIncrement(), portfolio, stock.getSymbolId(),
+                                side, true, quote, quantity));
+    }
+    
+    private Order submit(Order order) {
+        long start = Metrics.start();
+        Metrics.ORDERS.increment();
+        Portfolio portfolio = order.getPortfolio();
+        boolean reserved = order.isBuy()
+                ? portfolio.reserveCash(Money.times(order.getLimitPriceCents(), order.getQuantity()))
+                : portfolio.reserveShares(order.getSymbolId(), order.getQuantity());
+        if (!reserved) {
+            Metrics.ORDERS_REJECTED.increment();
+            order.setStatus(Order.Status.REJECTED);
+            order.processed().complete(order);
+            return order;
+        }
+        shardFor(order.getSymbolId()).executor.execute(() -> {
+            process(order);
+            Metrics.ORDER_LATENCY.recordSince(start);
+        });
+        return order;
+    }
+    
+    // Completes with true if the order was still resting and has been cancelled
+    CompletableFuture<Boolean> cancel(Order order) {
+        CompletableFuture<Boolean> result = new CompletableFuture<>();
+        Shard shard = shardFor(order.getSymbolId());
+        shard.executor.execute(() -> {
+            OrderBook book = shard.books.get(order.getSymbolId());
+            boolean removed = book != null && book.remove(order);
+            if (removed) {
+                cancelRemainder(order);
+            }
+            result.complete(removed);
+        });
+        return result;
+    }
+    
+    List<Order> getOpenOrders(Portfolio portfolio) {
+        List<Order> orders = new ArrayList<>();
+        openOrders.computeIfPresent(portfolio, (key, byId) -> {
+            orders.addAll(byId.values());
+            return byId;
+        });
+        return orders;
+    }
+    
+    // Snapshot listener: lets each shard fill resting orders the new quotes crossed
+    void onSnapshot(MarketSnapshot market) {
+        for (Shard shard : shards) {
+            shard.executor.execute(() -> shard.sweep(market));
+        }
+    }
+    
+    // Stops the shards after the orders already queued have been processed.
+    // Open orders are not persisted; their reservations simply lapse.
+    void shutdown() {
+        for (Shard shard : shards) {
+            shard.executor.shutdown();
+        }
+        try {
+            for (Shard shard : shards) {
+                shard.executor.awaitTermination(5, TimeUnit.SECONDS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+    
+    private Shard shardFor(int symbolId) {
+        return shards[symbolId % shards.length];
+    }
+    
+    // Runs on the shard thread that owns the order's symbol
+    private void process(Order order) {
+        Shard shard = shardFor(order.getSymbolId());
+        OrderBook book = shard.books.computeIfAbsent(order.getSymbolId(), id -> new OrderBook());
+        Quote quote = marketData.getSnapshot().getQuoteBySymbolId(order.getSymbolId());
+        long marketPrice = quote.getPriceCents();
+        long limit = order.getLimitPriceCents();
+        boolean marketable = order.isBuy() ? limit >= marketPrice : limit <= marketPrice;
+        long bookCap = marketable ? marketPrice : limit;
+        
+        int remaining = book.match(order, order.getRemaining(), bookCap, this::onMatch);
+        if (remaining > 0 && marketable) {
+            execute(order, remaining, marketPrice);
+            remaining = 0;
+        }
+        if (remaining > 0) {
+            if (order.isMarket()) {
+                cancelRemainder(order);
+            } else {
+                book.rest(order);
+                addOpen(order);
+            }
+        }
+        order.processed().complete(order);
+    }
+    
+    // incoming is null when a sweep fills the resting order against the market
+    private void onMatch(Order resting, Order incoming, int quantity, long price) {
+        execute(resting, quantity, price);
+        if (incoming != null) {
+            execute(incoming, quantity, price);
+        }
+        if (resting.getRemaining() == 0) {
+            removeOpen(resting);
+        }
+    }
+    
+    private void execute(Order order, int quantity, long price) {
+        Portfolio portfolio = order.getPortfolio();
+        // The portfolio lock also spans the listener, so an account's trades
+        // are journaled in the order they were applied
+        synchronized (portfolio) {
+            Transaction transaction = order.isBuy()
+                    ? portfolio.settleBuy(order.getSymbolId(), quantity, price, order.getLimitPriceCents())
+                    : portfolio.settleSell(order.getSymbolId(), quantity, price);
+            order.fill(quantity, price);
+            Metrics.FILLS.increment();
+            listener.onFill(portfolio, transaction);
+        }
+    }
+    
+    private void cancelRemainder(Order order) {
+        int remaining = order.getRemaining();
+        if (order.isBuy()) {
+            order.getPortfolio().releaseCash(Money.times(order.getLimitPriceCents(), remaining));
+        } else {
+            order.getPortfolio().releaseShares(order.getSymbolId(), remaining);
+        }
+        order.setStatus(Order.Status.CANCELLED);
+        removeOpen(order);
+    }
+    
+    private void addOpen(Order order) {
+        openOrders.compute(order.getPortfolio(), (portfolio, byId) -> {
+            TreeMap<Long, Order> orders = byId == null ? new TreeMap<>() : byId;
+            orders.put(order.getOrderId(), order);
+            return orders;
+        });
+    }
+    
+    // Drops the portfolio's map with its last order, so closed accounts are not held
+    private void removeOpen(Order order) {
+        openOrders.computeIfPresent(order.getPortfolio(), (portfolio, byId) -> {
+            byId.remove(order.getOrderId());
+            return byId.isEmpty() ? null : byId;
+        });
+    }
+    
+    private final class Shard {
+        final ExecutorService executor;
+        final Map<Integer, OrderBook> books = new HashMap<>(); // shard thread only
+        
+        Shard(int index) {
+            executor = Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "matching-" + index);
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        
+        void sweep(MarketSnapshot market) {
+            for (Map.Entry<Integer, OrderBook> entry : books.entrySet()) {
+                OrderBook book = entry.getValue();
+                if (book.isEmpty()) {
+                    continue;
+                }
+                Quote quote = market.getQuoteBySymbolId(entry.getKey());
+                if (quote != null) {
+                    book.sweep(quote.getPriceCents(), MatchingEngine.this::onMatch);
+                }
+            }
+        }
+    }
+}
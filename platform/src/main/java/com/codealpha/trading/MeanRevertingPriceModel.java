@@ -0,0 +1,35 @@
+package com.codealpha.trading;
+
+import java.util.SplittableRandom;
+
+// Ornstein-Uhlenbeck on the log price: each tick pulls the price a fraction
+// meanReversion of the way back toward its opening price, plus normal noise
+public final class MeanRevertingPriceModel implements PriceModel {
+    private final double meanReversion = PriceModels.parameter("meanReversion", 0.05);
+    private final double volatility = PriceModels.parameter("volatility", 0.02);
+    private double[] logAnchors;
+    
+    @Override
+    public String name() {
+        return "meanReverting";
+    }
+    
+    @Override
+    public void init(double[] prices) {
+        logAnchors = new double[prices.length];
+        for (int i = 0; i < prices.length; i++) {
+            logAnchors[i] = Math.log(prices[i]);
+        }
+    }
+    
+    @Override
+    public void step(double[] prices, int from, int to, SplittableRandom random, double[] scratch) {
+        int count = to - from;
+        for (int i = 0; i < count; i++) {
+            double deviation = Math.log(prices[from + i]) - logAnchors[from + i];
+            scratch[i] = -meanReversion * deviation + volatility * random.nextGaussian();
+        }
+        PriceModel.expm1(scratch, count);
+        PriceModel.applyReturns(prices, scratch, from, to);
+    }
+}
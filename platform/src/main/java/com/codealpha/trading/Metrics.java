@@ -0,0 +1,239 @@
+package com.codealpha.trading;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.DynamicMBean;
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanInfo;
+import javax.management.MBeanOperationInfo;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.ReflectionException;
+
+// Process-wide counters and latency histograms for the trading, market data
+// and persistence hot paths. Counters are LongAdders and histograms are
+// lock-free, so recording costs tens of nanoseconds and never blocks; timed
+// sections pay for two System.nanoTime() reads on top. -Dtrading.metrics=false
+// turns the timers off.
+//
+// Everything registered here is published three ways: as attributes of the
+// com.codealpha.trading:type=Metrics MBean, as Prometheus-style text from
+// writeText() (served at /metrics in headless mode), and as a dump file
+// written at shutdown when -Dtrading.metricsFile is set.
+final class Metrics {
+    static final boolean ENABLED = !"false".equals(System.getProperty("trading.metrics"));
+    private static final String METRICS_FILE = System.getProperty("trading.metricsFile");
+    private static final double[] PERCENTILES = {50, 90, 99, 99.9};
+    private static final String[] QUANTILES = {"0.5", "0.9", "0.99", "0.999"};
+    private static final Map<String, Object> REGISTRY = new LinkedHashMap<>(); // Histogram or LongAdder
+    
+    // Trading
+    static final Histogram PORTFOLIO_BUY = histogram("portfolio_buy_nanos");
+    static final Histogram PORTFOLIO_SELL = histogram("portfolio_sell_nanos");
+    static final Histogram ORDER_LATENCY = histogram("order_latency_nanos"); // submission to processed
+    static final LongAdder ORDERS = counter("orders_total");
+    static final LongAdder ORDERS_REJECTED = counter("orders_rejected_total");
+    static final LongAdder FILLS = counter("fills_total");
+    static final Histogram BATCH_EXECUTE = histogram("batch_execute_nanos");
+    // Market data
+    static final Histogram TICK = histogram("tick_nanos");
+    static final Histogram TICK_LAG = histogram("tick_lag_nanos");
+    static final Histogram TICK_PUBLISH = histogram("tick_publish_nanos");
+    // Persistence
+    static final Histogram JOURNAL_FSYNC = histogram("journal_fsync_nanos");
+    static final Histogram JOURNAL_BATCH = histogram("journal_batch_records");
+    static final Histogram SNAPSHOT_SAVE = histogram("snapshot_save_nanos");
+    static final LongAdder ACCOUNT_LOADS = counter("account_loads_total"); // read in from the stores
+    static final LongAdder ACCOUNT_EVICTIONS = counter("account_evictions_total");
+    // Network
+    static final Histogram HTTP_REQUEST = histogram("http_request_nanos");
+    // Risk
+    static final Histogram RISK_MODEL = histogram("risk_model_nanos"); // history and scenarios for a window
+    static final Histogram RISK_BOOK = histogram("risk_book_nanos");
+    
+    private static boolean registered;
+    
+    private Metrics() {}
+    
+    // Start of a timed section; pass to Histogram.recordSince
+    static long start() {
+        return ENABLED ? System.nanoTime() : 0;
+    }
+    
+    private static Histogram histogram(String name) {
+        Histogram histogram = new Histogram(name);
+        REGISTRY.put(name, histogram);
+        return histogram;
+    }
+    
+    private static LongAdder counter(String name) {
+        LongAdder counter = new LongAdder();
+        REGISTRY.put(name, counter);
+        return counter;
+    }
+    
+    static void writeText(StringBuilder out) {
+        for (Map.Entry<String, Object> entry : REGISTRY.entrySet()) {
+            String name = "trading_" + entry.getKey();
+            if (entry.getValue() instanceof LongAdder) {
+                out.append("# TYPE ").append(name).append(" counter\n");
+                out.append(name).append(' ').append(((LongAdder) entry.getValue()).sum()).append('\n');
+                continue;
+            }
+            Histogram histogram = (Histogram) entry.getValue();
+            out.append("# TYPE ").append(name).append(" summary\n");
+            for (int i = 0; i < PERCENTILES.length; i++) {
+                out.append(name).append("{quantile=\"").append(QUANTILES[i]).append("\"} ")
+                   .append(histogram.valueAtPercentile(PERCENTILES[i])).append('\n');
+            }
+            out.append(name).append("_max ").append(histogram.getMax()).append('\n');
+            out.append(name).append("_sum ").append(histogram.getSum()).append('\n');
+            out.append(name).append("_count ").append(histogram.getCount()).append('\n');
+        }
+    }
+    
+    static void writeFile() {
+        if (METRICS_FILE == null) {
+            return;
+        }
+        StringBuilder text = new StringBuilder();
+        writeText(text);
+        try {
+            Files.write(Paths.get(METRICS_FILE), text.toString().getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            System.err.println("Error writing metrics: " + e.getMessage());
+        }
+    }
+    
+    // Idempotent; later platforms in the same process share the one MBean
+    static synchronized void registerMBean() {
+        if (registered) {
+            return;
+        }
+        registered = true;
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            server.registerMBean(new MetricsMBean(), new ObjectName("com.codealpha.trading:type=Metrics"));
+        } catch (InstanceAlreadyExistsException e) {
+            // registered by another class loader
+        } catch (JMException e) {
+            System.err.println("Error registering metrics MBean: " + e.getMessage());
+        }
+    }
+    
+    // One read-only attribute per counter, and count/mean/percentiles/max per histogram
+    private static final class MetricsMBean implements DynamicMBean {
+        @Override
+        public Object getAttribute(String attribute) throws AttributeNotFoundException {
+            for (Map.Entry<String, Object> entry : REGISTRY.entrySet()) {
+                String name = entry.getKey();
+                if (!attribute.startsWith(name)) {
+                    continue;
+                }
+                if (entry.getValue() instanceof LongAdder) {
+                    if (attribute.equals(name)) {
+                        return ((LongAdder) entry.getValue()).sum();
+                    }
+                    continue;
+                }
+                Histogram histogram = (Histogram) entry.getValue();
+                String suffix = attribute.substring(name.length());
+                switch (suffix) {
+                    case "_count":
+                        return histogram.getCount();
+                    case "_mean":
+                        return histogram.getMean();
+                    case "_max":
+                        return histogram.getMax();
+                    default:
+                        for (double percentile : PERCENTILES) {
+                            if (suffix.equals(percentileSuffix(percentile))) {
+                                return histogram.valueAtPercentile(percentile);
+                            }
+                        }
+                }
+            }
+            throw new AttributeNotFoundException(attribute);
+        }
+        
+        @Override
+        public AttributeList getAttributes(String[] attributes) {
+            AttributeList list = new AttributeList();
+            for (String attribute : attributes) {
+                try {
+                    list.add(new Attribute(attribute, getAttribute(attribute)));
+                } catch (AttributeNotFoundException e) {
+                    // skipped, as the DynamicMBean contract allows
+                }
+            }
+            return list;
+        }
+        
+        @Override
+        public void setAttribute(Attribute attribute) throws AttributeNotFoundException {
+            throw new AttributeNotFoundException("Metrics are read-only");
+        }
+        
+        @Override
+        public AttributeList setAttributes(AttributeList attributes) {
+            return new AttributeList();
+        }
+        
+        @Override
+        public Object invoke(String actionName, Object[] params, String[] signature) throws ReflectionException {
+            if (actionName.equals("dump")) {
+                StringBuilder text = new StringBuilder();
+                writeText(text);
+                return text.toString();
+            }
+            throw new ReflectionException(new NoSuchMethodException(actionName));
+        }
+        
+        @Override
+        public MBeanInfo getMBeanInfo() {
+            List<MBeanAttributeInfo> attributes = new ArrayList<>();
+            for (Map.Entry<String, Object> entry : REGISTRY.entrySet()) {
+                String name = entry.getKey();
+                if (entry.getValue() instanceof LongAdder) {
+                    attributes.add(attribute(name, "long"));
+                    continue;
+                }
+                attributes.add(attribute(name + "_count", "long"));
+                attributes.add(attribute(name + "_mean", "double"));
+                for (double percentile : PERCENTILES) {
+                    attributes.add(attribute(name + percentileSuffix(percentile), "long"));
+                }
+                attributes.add(attribute(name + "_max", "long"));
+            }
+            MBeanOperationInfo dump = new MBeanOperationInfo("dump", "All metrics as text", null,
+                                                             "java.lang.String", MBeanOperationInfo.INFO);
+            return new MBeanInfo(MetricsMBean.class.getName(), "Trading platform metrics",
+                                 attributes.toArray(new MBeanAttributeInfo[0]), null,
+                                 new MBeanOperationInfo[] {dump}, null);
+        }
+        
+        private static MBeanAttributeInfo attribute(String name, String type) {
+            return new MBeanAttributeInfo(name, type, name, true, false, false);
+        }
+        
+        // 99.9 -> "_p999"
+        private static String percentileSuffix(double percentile) {
+            return "_p" + (percentile == Math.rint(percentile)
+                    ? String.valueOf((long) percentile) : String.valueOf(percentile).replace(".", ""));
+        }
+    }
+}
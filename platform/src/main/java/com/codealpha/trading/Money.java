@@ -0,0 +1,54 @@
+package com.codealpha.trading;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+// Amounts and prices are carried as long cents (scale 2). Rounding is HALF_UP,
+// matching the setScale(2, HALF_UP) arithmetic this replaces; BigDecimal is
+// only used when converting at the display and input edges.
+final class Money {
+    static final int SCALE = 2;
+    static final long ONE = 100;
+    
+    private Money() {}
+    
+    static long of(BigDecimal amount) {
+        return amount.setScale(SCALE, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+    
+    static BigDecimal toBigDecimal(long cents) {
+        return BigDecimal.valueOf(cents, SCALE);
+    }
+    
+    static long times(long cents, int quantity) {
+        return Math.multiplyExact(cents, (long) quantity);
+    }
+    
+    static long divideHalfUp(long dividend, long divisor) {
+        long quotient = dividend / divisor;
+        long remainder = dividend % divisor;
+        if (Math.abs(remainder) * 2 >= Math.abs(divisor)) {
+            quotient += Long.signum(dividend) * Long.signum(divisor);
+        }
+        return quotient;
+    }
+    
+    // amount * numerator / denominator, rounded HALF_UP; falls back to
+    // BigDecimal only when the product overflows a long
+    static long scaleHalfUp(long amount, long numerator, long denominator) {
+        long high = Math.multiplyHigh(amount, numerator);
+        long low = amount * numerator;
+        if ((high == 0 && low >= 0) || (high == -1 && low < 0)) {
+            return divideHalfUp(low, denominator);
+        }
+        return BigDecimal.valueOf(amount).multiply(BigDecimal.valueOf(numerator))
+                         .divide(BigDecimal.valueOf(denominator), 0, RoundingMode.HALF_UP)
+                         .longValueExact();
+    }
+    
+    // cents * (1 + change), rounded HALF_UP to a whole cent
+    static long applyChange(long cents, double change) {
+        double result = cents + cents * change;
+        return result >= 0 ? (long) Math.floor(result + 0.5) : -(long) Math.floor(-result + 0.5);
+    }
+}
@@ -0,0 +1,73 @@
+package com.codealpha.trading;
+
+import java.math.BigDecimal;
+import java.util.concurrent.CompletableFuture;
+
+// A limit or market order. After submission its fill state is written only by
+// the matching shard that owns the symbol; other threads read it through the
+// volatile fields or wait on processed().
+class Order {
+    enum Status { NEW, PARTIALLY_FILLED, FILLED, CANCELLED, REJECTED }
+    
+    private final long orderId;
+    private final Portfolio portfolio;
+    private final int symbolId;
+    private final Transaction.Type side;
+    private final boolean market;
+    private final long limitPrice; // cents; for market orders, the quote at submission
+    private final int quantity;
+    private volatile int filled;
+    private volatile long filledValue; // cents
+    private volatile Status status;
+    private final CompletableFuture<Order> processed;
+    
+    Order(long orderId, Portfolio portfolio, int symbolId, Transaction.Type side,
+          boolean market, long limitPrice, int quantity) {
+        this.orderId = orderId;
+        this.portfolio = portfolio;
+        this.symbolId = symbolId;
+        this.side = side;
+        this.market = market;
+        this.limitPrice = limitPrice;
+        this.quantity = quantity;
+        this.status = Status.NEW;
+        this.processed = new CompletableFuture<>();
+    }
+    
+    void fill(int shares, long price) {
+        filled += shares;
+        filledValue += Money.times(price, shares);
+        status = filled == quantity ? Status.FILLED : Status.PARTIALLY_FILLED;
+    }
+    
+    void setStatus(Status status) {
+        this.status = status;
+    }
+    
+    boolean isBuy() {
+        return side == Transaction.Type.BUY;
+    }
+    
+    boolean isOpen() {
+        return status == Status.NEW || status == Status.PARTIALLY_FILLED;
+    }
+    
+    // Getters
+    public long getOrderId() { return orderId; }
+    Portfolio getPortfolio() { return portfolio; }
+    int getSymbolId() { return symbolId; }
+    public String getSymbol() { return SymbolTable.symbolOf(symbolId); }
+    public Transaction.Type getSide() { return side; }
+    public boolean isMarket() { return market; }
+    public BigDecimal getLimitPrice() { return Money.toBigDecimal(limitPrice); }
+    long getLimitPriceCents() { return limitPrice; }
+    public int getQuantity() { return quantity; }
+    public int getFilled() { return filled; }
+    public int getRemaining() { return quantity - filled; }
+    public BigDecimal getAverageFillPrice() {
+        return filled == 0 ? BigDecimal.ZERO : Money.toBigDecimal(Money.divideHalfUp(filledValue, filled));
+    }
+    public Status getStatus() { return status; }
+    // Completes once the order has been matched, rested or rejected
+    CompletableFuture<Order> processed() { return processed; }
+}
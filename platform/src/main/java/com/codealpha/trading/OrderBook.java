@@ -0,0 +1,104 @@
+package com.codealpha.trading;
+
+import java.util.ArrayDeque;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.TreeMap;
+
+// Resting orders for one symbol, price-time priority: best price first, then
+// arrival order within a price level. Only the owning shard thread touches it.
+final class OrderBook {
+    interface FillSink {
+        // Called once per execution against a resting order, at the resting price
+        void onMatch(Order resting, Order incoming, int quantity, long price);
+    }
+    
+    private final TreeMap<Long, ArrayDeque<Order>> bids = new TreeMap<>(Comparator.reverseOrder());
+    private final TreeMap<Long, ArrayDeque<Order>> asks = new TreeMap<>();
+    private int restingCount;
+    
+    // Crosses incoming against the opposite side at prices no worse than
+    // priceCap and returns the quantity left over
+    int match(Order incoming, int remaining, long priceCap, FillSink sink) {
+        TreeMap<Long, ArrayDeque<Order>> opposite = incoming.isBuy() ? asks : bids;
+        
+        while (remaining > 0 && !opposite.isEmpty()) {
+            Map.Entry<Long, ArrayDeque<Order>> level = opposite.firstEntry();
+            long price = level.getKey();
+            if (incoming.isBuy() ? price > priceCap : price < priceCap) {
+                break;
+            }
+            
+            ArrayDeque<Order> queue = level.getValue();
+            while (remaining > 0 && !queue.isEmpty()) {
+                Order resting = queue.peekFirst();
+                int quantity = Math.min(remaining, resting.getRemaining());
+                sink.onMatch(resting, incoming, quantity, price);
+                remaining -= quantity;
+                if (resting.getRemaining() == 0) {
+                    queue.pollFirst();
+                    restingCount--;
+                }
+            }
+            if (queue.isEmpty()) {
+                opposite.pollFirstEntry();
+            }
+        }
+        return remaining;
+    }
+    
+    void rest(Order order) {
+        TreeMap<Long, ArrayDeque<Order>> side = order.isBuy() ? bids : asks;
+        side.computeIfAbsent(order.getLimitPriceCents(), price -> new ArrayDeque<>()).addLast(order);
+        restingCount++;
+    }
+    
+    boolean remove(Order order) {
+        TreeMap<Long, ArrayDeque<Order>> side = order.isBuy() ? bids : asks;
+        ArrayDeque<Order> queue = side.get(order.getLimitPriceCents());
+        if (queue == null || !queue.remove(order)) {
+            return false;
+        }
+        if (queue.isEmpty()) {
+            side.remove(order.getLimitPriceCents());
+        }
+        restingCount--;
+        return true;
+    }
+    
+    // Drains resting orders that the reference price has moved through, best
+    // price first; each is handed to the sink in full at the reference price
+    void sweep(long referencePrice, FillSink sink) {
+        sweepSide(bids, true, referencePrice, sink);
+        sweepSide(asks, false, referencePrice, sink);
+    }
+    
+    private void sweepSide(TreeMap<Long, ArrayDeque<Order>> side, boolean buys,
+                           long referencePrice, FillSink sink) {
+        Iterator<Map.Entry<Long, ArrayDeque<Order>>> levels = side.entrySet().iterator();
+        while (levels.hasNext()) {
+            Map.Entry<Long, ArrayDeque<Order>> level = levels.next();
+            if (buys ? level.getKey() < referencePrice : level.getKey() > referencePrice) {
+                return;
+            }
+            for (Order resting : level.getValue()) {
+                sink.onMatch(resting, null, resting.getRemaining(), referencePrice);
+                restingCount--;
+            }
+            levels.remove();
+        }
+    }
+    
+    boolean isEmpty() {
+        return restingCount == 0;
+    }
+    
+    Long bestBid() {
+        return bids.isEmpty() ? null : bids.firstKey();
+    }
+    
+    Long bestAsk() {
+        return asks.isEmpty() ? null : asks.firstKey();
+    }
+}
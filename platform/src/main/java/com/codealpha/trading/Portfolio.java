@@ -0,0 +1,511 @@
+package com.codealpha.trading;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+class Portfolio {
+    // Rough footprints for estimateBytes()
+    private static final int BASE_BYTES = 512; // this and the owning User with their fixed structures
+    private static final int POSITION_BYTES = 96;
+    private static final int LOT_BYTES = 12;
+    
+    private String userId;
+    private PositionBook positions; // quantity, cost basis and tax lots per symbol id
+    private long cash; // cents
+    private long reservedCash; // cents committed to open buy orders
+    private long marketValue; // sum of quantity * last mark over open positions, in cents
+    private TransactionLedger ledger;
+    // Running aggregates over the whole ledger, in cents
+    private long netInvested; // buys minus sells
+    private long realizedPnl; // sell proceeds minus the cost of the lots they closed
+    private long turnover; // buys plus sells
+    private SymbolTotals turnoverBySymbol;
+    private HolderIndex holderIndex; // set once attached to a live market
+    private LotMethod lotMethod = LotMethod.FIFO; // applied to future sells
+    private long journalSeq; // of the last journal record applied
+    private boolean dirty; // changed since last written to the portfolio store
+    private int checkpointedRecords; // ledger records as of the last checkpoint
+    
+    public Portfolio(String userId, BigDecimal initialCash) {
+        this(userId, Money.of(initialCash));
+    }
+    
+    Portfolio(String userId, long initialCash) {
+        this.userId = userId;
+        this.positions = new PositionBook();
+        this.cash = initialCash;
+        this.ledger = new TransactionLedger();
+        this.turnoverBySymbol = new SymbolTotals();
+    }
+    
+    public synchronized boolean buyStock(Stock stock, int quantity) {
+        long start = Metrics.start();
+        long price = stock.getCurrentPriceCents();
+        long totalCost = Money.times(price, quantity);
+        
+        if (cash - reservedCash < totalCost) {
+            return false; // Insufficient funds
+        }
+        
+        applyBuy(stock.getSymbolId(), quantity, price);
+        record(stock.getSymbol(), Transaction.Type.BUY, quantity, price, 0);
+        Metrics.PORTFOLIO_BUY.recordSince(start);
+        
+        return true;
+    }
+    
+    public synchronized boolean sellStock(Stock stock, int quantity) {
+        long start = Metrics.start();
+        if (getAvailableShares(stock.getSymbolId()) < quantity) {
+            return false; // Insufficient shares
+        }
+        
+        long price = stock.getCurrentPriceCents();
+        long realized = applySell(stock.getSymbolId(), quantity, price, lotMethod);
+        record(stock.getSymbol(), Transaction.Type.SELL, quantity, price, realized);
+        Metrics.PORTFOLIO_SELL.recordSince(start);
+        
+        return true;
+    }
+    
+    // Order reservations: cash held for open buy orders and shares held for
+    // open sell orders, so resting orders can always settle
+    synchronized boolean reserveCash(long cents) {
+        if (cash - reservedCash < cents) {
+            return false;
+        }
+        reservedCash += cents;
+        return true;
+    }
+    
+    synchronized void releaseCash(long cents) {
+        reservedCash -= cents;
+    }
+    
+    synchronized boolean reserveShares(int symbolId, int quantity) {
+        int slot = positions.slotOf(symbolId);
+        if (slot < 0 || positions.quantityAt(slot) - positions.reservedAt(slot) < quantity) {
+            return false;
+        }
+        positions.setReservedAt(slot, positions.reservedAt(slot) + quantity);
+        return true;
+    }
+    
+    synchronized void releaseShares(int symbolId, int quantity) {
+        int slot = positions.slotOf(symbolId);
+        if (slot >= 0) {
+            positions.setReservedAt(slot, positions.reservedAt(slot) - quantity);
+        }
+    }
+    
+    // True while open orders hold cash or shares
+    synchronized boolean hasReservations() {
+        if (reservedCash != 0) {
+            return true;
+        }
+        for (int slot = 0; slot < positions.size(); slot++) {
+            if (positions.reservedAt(slot) != 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    // Executes part of a buy order whose cash was reserved at reservedPrice per share
+    synchronized Transaction settleBuy(int symbolId, int quantity, long price, long reservedPrice) {
+        long start = Metrics.start();
+        reservedCash -= Money.times(reservedPrice, quantity);
+        applyBuy(symbolId, quantity, price);
+        Transaction transaction = record(SymbolTable.symbolOf(symbolId), Transaction.Type.BUY, quantity, price, 0);
+        Metrics.PORTFOLIO_BUY.recordSince(start);
+        return transaction;
+    }
+    
+    // Executes part of a sell order whose shares were reserved
+    synchronized Transaction settleSell(int symbolId, int quantity, long price) {
+        long start = Metrics.start();
+        releaseShares(symbolId, quantity);
+        long realized = applySell(symbolId, quantity, price, lotMethod);
+        Transaction transaction = record(SymbolTable.symbolOf(symbolId), Transaction.Type.SELL, quantity, price,
+                                         realized);
+        Metrics.PORTFOLIO_SELL.recordSince(start);
+        return transaction;
+    }
+    
+    // Executes a trade at the given price; the caller has checked the cash or shares
+    synchronized Transaction executeBuy(int symbolId, int quantity, long price) {
+        return executeBuy(symbolId, quantity, price, IdGenerator.nextId(), LocalDateTime.now());
+    }
+    
+    synchronized Transaction executeSell(int symbolId, int quantity, long price) {
+        return executeSell(symbolId, quantity, price, IdGenerator.nextId(), LocalDateTime.now());
+    }
+    
+    // As above, stamped with the caller's id and time; backtests pass the
+    // replayed tick time and their own ids so reruns give identical ledgers
+    synchronized Transaction executeBuy(int symbolId, int quantity, long price, long transactionId,
+                                        LocalDateTime time) {
+        long start = Metrics.start();
+        applyBuy(symbolId, quantity, price);
+        Transaction transaction = record(SymbolTable.symbolOf(symbolId), Transaction.Type.BUY, quantity, price, 0,
+                                         transactionId, time);
+        Metrics.PORTFOLIO_BUY.recordSince(start);
+        return transaction;
+    }
+    
+    synchronized Transaction executeSell(int symbolId, int quantity, long price, long transactionId,
+                                         LocalDateTime time) {
+        long start = Metrics.start();
+        long realized = applySell(symbolId, quantity, price, lotMethod);
+        Transaction transaction = record(SymbolTable.symbolOf(symbolId), Transaction.Type.SELL, quantity, price,
+                                         realized, transactionId, time);
+        Metrics.PORTFOLIO_SELL.recordSince(start);
+        return transaction;
+    }
+    
+    private Transaction record(String symbol, Transaction.Type type, int quantity, long price, long realized) {
+        return record(symbol, type, quantity, price, realized, IdGenerator.nextId(), LocalDateTime.now());
+    }
+    
+    private Transaction record(String symbol, Transaction.Type type, int quantity, long price, long realized,
+                               long transactionId, LocalDateTime time) {
+        Transaction transaction = new Transaction(transactionId, symbol, type, quantity, price,
+                                                  lotMethod, realized, time);
+        ledger.append(transaction);
+        dirty = true;
+        return transaction;
+    }
+    
+    synchronized void replay(long seq, Transaction transaction) {
+        replay(transaction);
+        journalSeq = seq;
+    }
+    
+    // Re-applies a journaled trade at its recorded price and lot method
+    synchronized void replay(Transaction transaction) {
+        int symbolId = SymbolTable.idOf(transaction.getStockSymbol());
+        if (transaction.getType() == Transaction.Type.BUY) {
+            applyBuy(symbolId, transaction.getQuantity(), transaction.getPriceCents());
+        } else {
+            applySell(symbolId, transaction.getQuantity(), transaction.getPriceCents(),
+                      transaction.getLotMethod());
+        }
+        ledger.append(transaction);
+        dirty = true;
+    }
+    
+    private void applyBuy(int symbolId, int quantity, long price) {
+        long totalCost = Money.times(price, quantity);
+        cash -= totalCost;
+        netInvested += totalCost;
+        turnover += totalCost;
+        turnoverBySymbol.add(symbolId, totalCost);
+        
+        int slot = positions.slotOf(symbolId);
+        int currentQuantity = slot < 0 ? 0 : positions.quantityAt(slot);
+        long currentCostBasis = slot < 0 ? 0 : positions.costBasisAt(slot);
+        int newQuantity = currentQuantity + quantity;
+        
+        if (slot >= 0) {
+            marketValue -= Money.times(positions.markAt(slot), currentQuantity);
+        }
+        slot = positions.put(symbolId, newQuantity, currentCostBasis + totalCost);
+        positions.lotsAt(slot).addLast(quantity, price);
+        positions.setMarkAt(slot, price);
+        marketValue += Money.times(price, newQuantity);
+        
+        if (currentQuantity == 0 && holderIndex != null) {
+            holderIndex.add(symbolId, this);
+        }
+    }
+    
+    // Returns the realized P&L of the sell: proceeds minus the cost of the
+    // shares closed, taken from the lots named by method
+    private long applySell(int symbolId, int quantity, long price, LotMethod method) {
+        long proceeds = Money.times(price, quantity);
+        cash += proceeds;
+        netInvested -= proceeds;
+        turnover += proceeds;
+        turnoverBySymbol.add(symbolId, proceeds);
+        
+        int slot = positions.slotOf(symbolId);
+        if (slot < 0) {
+            return 0;
+        }
+        int held = positions.quantityAt(slot);
+        long costBasis = positions.costBasisAt(slot);
+        LotDeque lots = positions.lotsAt(slot);
+        marketValue -= Money.times(positions.markAt(slot), held);
+        
+        long cost;
+        if (quantity >= held) {
+            cost = costBasis; // closing out settles the whole basis
+        } else if (method == LotMethod.FIFO) {
+            cost = lots.removeFirst(quantity);
+        } else if (method == LotMethod.LIFO) {
+            cost = lots.removeLast(quantity);
+        } else {
+            // Average cost leaves lot prices alone; shares still leave the oldest lots
+            lots.removeFirst(quantity);
+            cost = Money.scaleHalfUp(costBasis, quantity, held);
+        }
+        long realized = proceeds - cost;
+        realizedPnl += realized;
+        
+        int newQuantity = held - quantity;
+        if (newQuantity <= 0) {
+            positions.remove(symbolId);
+            if (holderIndex != null) {
+                holderIndex.remove(symbolId, this);
+            }
+        } else {
+            positions.put(symbolId, newQuantity, costBasis - cost);
+            positions.setMarkAt(slot, price);
+            marketValue += Money.times(price, newQuantity);
+        }
+        return realized;
+    }
+    
+    // Registers every open position with the index, then marks them against the
+    // latest snapshot. Registering first means no tick published after the
+    // snapshot is read can be missed.
+    synchronized void attach(HolderIndex index, MarketData marketData) {
+        holderIndex = index;
+        for (int slot = 0; slot < positions.size(); slot++) {
+            index.add(positions.symbolIdAt(slot), this);
+        }
+        revalue(marketData.getSnapshot());
+    }
+    
+    // Approximate memory held by the account, ledger included
+    synchronized long estimateBytes() {
+        long bytes = BASE_BYTES + (long) positions.size() * POSITION_BYTES + ledger.memoryBytes();
+        for (int slot = 0; slot < positions.size(); slot++) {
+            bytes += (long) positions.lotsAt(slot).size() * LOT_BYTES;
+        }
+        return bytes;
+    }
+    
+    // Leaves the holder index, once the account is no longer resident
+    synchronized void detach() {
+        if (holderIndex != null) {
+            for (int slot = 0; slot < positions.size(); slot++) {
+                holderIndex.remove(positions.symbolIdAt(slot), this);
+            }
+            holderIndex = null;
+        }
+    }
+    
+    // Called by the holder index when a held symbol ticks
+    synchronized void mark(int symbolId, long price) {
+        int slot = positions.slotOf(symbolId);
+        if (slot < 0) {
+            return;
+        }
+        marketValue += Money.times(price - positions.markAt(slot), positions.quantityAt(slot));
+        positions.setMarkAt(slot, price);
+    }
+    
+    // Full re-mark of every position; the incremental path never needs this
+    synchronized void revalue(MarketSnapshot market) {
+        long total = 0;
+        for (int slot = 0; slot < positions.size(); slot++) {
+            Quote quote = market.getQuoteBySymbolId(positions.symbolIdAt(slot));
+            if (quote != null) {
+                positions.setMarkAt(slot, quote.getPriceCents());
+            }
+            total += Money.times(positions.markAt(slot), positions.quantityAt(slot));
+        }
+        marketValue = total;
+    }
+    
+    public BigDecimal getPortfolioValue() {
+        return Money.toBigDecimal(getPortfolioValueCents());
+    }
+    
+    synchronized long getPortfolioValueCents() {
+        return cash + marketValue;
+    }
+    
+    synchronized long getUnrealizedGainLossCents() {
+        long costBasis = 0;
+        for (int slot = 0; slot < positions.size(); slot++) {
+            costBasis += positions.costBasisAt(slot);
+        }
+        return marketValue - costBasis;
+    }
+    
+    // Visits each open position under the portfolio lock
+    synchronized void forEachPosition(PositionVisitor visitor) {
+        for (int slot = 0; slot < positions.size(); slot++) {
+            visitor.visit(positions.symbolIdAt(slot), positions.quantityAt(slot),
+                          positions.avgCostAt(slot), positions.markAt(slot));
+        }
+    }
+    
+    interface PositionVisitor {
+        void visit(int symbolId, int quantity, long avgCost, long mark);
+    }
+    
+    public synchronized BigDecimal getStockValue(String symbol, Quote quote) {
+        int quantity = getQuantity(symbol);
+        return Money.toBigDecimal(Money.times(quote.getPriceCents(), quantity));
+    }
+    
+    public synchronized BigDecimal getGainLoss(String symbol, Quote quote) {
+        int slot = positions.slotOf(SymbolTable.find(symbol));
+        if (slot < 0) return BigDecimal.ZERO;
+        
+        int quantity = positions.quantityAt(slot);
+        long currentValue = Money.times(quote.getPriceCents(), quantity);
+        long costBasis = positions.costBasisAt(slot);
+        
+        return Money.toBigDecimal(currentValue - costBasis);
+    }
+    
+    // Everything but the ledger
+    private void writeState(DataOutput out) throws IOException {
+        out.writeUTF(userId);
+        out.writeLong(cash);
+        out.writeByte(lotMethod.ordinal());
+        out.writeInt(positions.size());
+        for (int slot = 0; slot < positions.size(); slot++) {
+            out.writeUTF(SymbolTable.symbolOf(positions.symbolIdAt(slot)));
+            out.writeInt(positions.quantityAt(slot));
+            out.writeLong(positions.costBasisAt(slot));
+            LotDeque lots = positions.lotsAt(slot);
+            out.writeInt(lots.size());
+            for (int i = 0; i < lots.size(); i++) {
+                out.writeInt(lots.quantityAt(i));
+                out.writeLong(lots.priceAt(i));
+            }
+        }
+        out.writeLong(netInvested);
+        out.writeLong(realizedPnl);
+        out.writeLong(turnover);
+        out.writeInt(turnoverBySymbol.size());
+        for (int slot = 0; slot < turnoverBySymbol.size(); slot++) {
+            out.writeUTF(SymbolTable.symbolOf(turnoverBySymbol.symbolIdAt(slot)));
+            out.writeLong(turnoverBySymbol.totalAt(slot));
+        }
+    }
+    
+    // Writes the portfolio without its ledger and marks it clean; returns the
+    // journal sequence it includes. The first getCheckpointedRecords() ledger
+    // records go with it; they never change, so the caller copies them after
+    // the lock is released.
+    synchronized long checkpoint(DataOutput out) throws IOException {
+        writeState(out);
+        checkpointedRecords = ledger.size();
+        dirty = false;
+        return journalSeq;
+    }
+    
+    // A portfolio written by checkpoint(); its ledger is read separately
+    static Portfolio readState(DataInput in) throws IOException {
+        Portfolio portfolio = new Portfolio(in.readUTF(), in.readLong());
+        portfolio.lotMethod = LotMethod.values()[in.readByte()];
+        int holdingCount = in.readInt();
+        for (int i = 0; i < holdingCount; i++) {
+            int symbolId = SymbolTable.idOf(in.readUTF());
+            int quantity = in.readInt();
+            long costBasis = in.readLong();
+            int slot = portfolio.positions.put(symbolId, quantity, costBasis);
+            LotDeque lots = portfolio.positions.lotsAt(slot);
+            int lotCount = in.readInt();
+            for (int j = 0; j < lotCount; j++) {
+                lots.addLast(in.readInt(), in.readLong());
+            }
+            // Marked at cost until attached to a live market
+            long avgCost = portfolio.positions.avgCostAt(slot);
+            portfolio.positions.setMarkAt(slot, avgCost);
+            portfolio.marketValue += Money.times(avgCost, quantity);
+        }
+        portfolio.netInvested = in.readLong();
+        portfolio.realizedPnl = in.readLong();
+        portfolio.turnover = in.readLong();
+        int symbolCount = in.readInt();
+        for (int i = 0; i < symbolCount; i++) {
+            portfolio.turnoverBySymbol.add(SymbolTable.idOf(in.readUTF()), in.readLong());
+        }
+        return portfolio;
+    }
+    
+    // Recomputes the aggregates and positions by replaying the whole ledger
+    // and reports the first disagreement, or null if everything matches
+    synchronized String verifyAggregates() {
+        Portfolio replica = new Portfolio(userId, 0L);
+        for (int i = 0; i < ledger.size(); i++) {
+            replica.replay(ledger.get(i));
+        }
+        if (replica.netInvested != netInvested) {
+            return "net invested " + netInvested + " != replayed " + replica.netInvested;
+        }
+        if (replica.realizedPnl != realizedPnl) {
+            return "realized P&L " + realizedPnl + " != replayed " + replica.realizedPnl;
+        }
+        long recordedPnl = 0;
+        for (int i = 0; i < ledger.size(); i++) {
+            recordedPnl += ledger.realizedPnlAt(i);
+        }
+        if (recordedPnl != realizedPnl) {
+            return "realized P&L " + realizedPnl + " != sum of recorded sells " + recordedPnl;
+        }
+        if (replica.turnover != turnover) {
+            return "turnover " + turnover + " != replayed " + replica.turnover;
+        }
+        for (int slot = 0; slot < replica.turnoverBySymbol.size(); slot++) {
+            int symbolId = replica.turnoverBySymbol.symbolIdAt(slot);
+            if (replica.turnoverBySymbol.totalAt(slot) != turnoverBySymbol.get(symbolId)) {
+                return "turnover of " + SymbolTable.symbolOf(symbolId) + " differs from replay";
+            }
+        }
+        if (replica.positions.size() != positions.size()) {
+            return "position count " + positions.size() + " != replayed " + replica.positions.size();
+        }
+        for (int slot = 0; slot < replica.positions.size(); slot++) {
+            int symbolId = replica.positions.symbolIdAt(slot);
+            int mine = positions.slotOf(symbolId);
+            if (mine < 0 || positions.quantityAt(mine) != replica.positions.quantityAt(slot)
+                    || positions.costBasisAt(mine) != replica.positions.costBasisAt(slot)
+                    || positions.lotsAt(mine).size() != replica.positions.lotsAt(slot).size()) {
+                return "position in " + SymbolTable.symbolOf(symbolId) + " differs from replay";
+            }
+        }
+        return null;
+    }
+    
+    // Getters
+    public String getUserId() { return userId; }
+    public synchronized int getQuantity(String symbol) { return positions.quantity(SymbolTable.find(symbol)); }
+    public synchronized int getPositionCount() { return positions.size(); }
+    synchronized int getAvailableShares(int symbolId) {
+        int slot = positions.slotOf(symbolId);
+        return slot < 0 ? 0 : positions.quantityAt(slot) - positions.reservedAt(slot);
+    }
+    public synchronized BigDecimal getCash() { return Money.toBigDecimal(cash); }
+    public synchronized long getCashCents() { return cash; }
+    public synchronized BigDecimal getAvailableCash() { return Money.toBigDecimal(cash - reservedCash); }
+    public synchronized long getAvailableCashCents() { return cash - reservedCash; }
+    public synchronized BigDecimal getNetInvested() { return Money.toBigDecimal(netInvested); }
+    public synchronized BigDecimal getRealizedPnl() { return Money.toBigDecimal(realizedPnl); }
+    public synchronized BigDecimal getTurnover() { return Money.toBigDecimal(turnover); }
+    public synchronized BigDecimal getTurnover(String symbol) { return Money.toBigDecimal(turnoverBySymbol.get(SymbolTable.find(symbol))); }
+    // Readable without the portfolio lock; see TransactionLedger
+    TransactionLedger getLedger() { return ledger; }
+    synchronized int getCheckpointedRecords() { return checkpointedRecords; }
+    public synchronized LotMethod getLotMethod() { return lotMethod; }
+    public synchronized void setLotMethod(LotMethod lotMethod) { this.lotMethod = lotMethod; dirty = true; }
+    public synchronized int getLotCount(String symbol) {
+        int slot = positions.slotOf(SymbolTable.find(symbol));
+        return slot < 0 ? 0 : positions.lotsAt(slot).size();
+    }
+    public synchronized BigDecimal getAvgCost(String symbol) { return Money.toBigDecimal(positions.avgCost(SymbolTable.find(symbol))); }
+    synchronized long getJournalSeq() { return journalSeq; }
+    synchronized void setJournalSeq(long journalSeq) { this.journalSeq = journalSeq; }
+    synchronized boolean isDirty() { return dirty; }
+    synchronized Transaction getLastTransaction() { return ledger.size() == 0 ? null : ledger.get(ledger.size() - 1); }
+}
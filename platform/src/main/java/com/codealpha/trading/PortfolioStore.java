@@ -0,0 +1,442 @@
+package com.codealpha.trading;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+// Portfolio images in an append-only log, found through a memory-mapped index
+// with one entry per UserStore record, so any one portfolio can be read back
+// without touching the others. An image carries the sequence of the last
+// journal record it includes; later records for the account are replayed on
+// top of it.
+//
+// An image holds the portfolio without its ledger, which goes to the log in
+// chunks: each write appends only the records the account's last chunk lacks,
+// linked to the chunks before it. A new chunk absorbs the newest chunks no
+// larger than itself, so chunks shrink towards the head, a chain has at
+// most about log2(records) of them, and each record is rewritten a few
+// times at most.
+//
+// Images are forced to the log before the index points at them, and the index
+// is forced by sync() before the journal is compacted, so a crash leaves every
+// entry on an image that is complete. The log is rewritten with only the live
+// images once more than half of it is stale; the rewrite goes to a log of the
+// next generation and takes effect when the new index is renamed into place.
+class PortfolioStore {
+    private static final int INDEX_MAGIC = 0x50494458; // "PIDX"
+    private static final int VERSION = 2;
+    private static final int HEADER_SIZE = 32;         // magic, version, generation, live bytes
+    private static final int ENTRY_SIZE = 32;          // offset + 1, journal seq, length, ledger format,
+                                                       // ledger head + 1; never spans a page
+    private static final int LEDGER_CHUNKED = 1;
+    private static final int IMAGE_HEADER = 16;        // length, crc, journal seq
+    private static final int CHUNK_HEADER = 24;        // length, crc, previous chunk + 1, first record, count
+    private static final int MAX_CHAIN = 64;
+    private static final int INITIAL_ENTRIES = 1024;
+    private static final long MIN_COMPACT_BYTES = 1 << 20;
+    
+    private final Path directory;
+    private final UserStore users;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock(); // write side swaps or grows files
+    private FileChannel indexChannel;
+    private MappedByteBuffer index;
+    private int capacity; // entries
+    private FileChannel log;
+    private int generation;
+    private long liveBytes;
+    
+    private PortfolioStore(Path directory, UserStore users) {
+        this.directory = directory;
+        this.users = users;
+    }
+    
+    public static PortfolioStore open(Path directory, UserStore users) throws IOException {
+        PortfolioStore store = new PortfolioStore(directory, users);
+        store.load();
+        return store;
+    }
+    
+    private void load() throws IOException {
+        indexChannel = FileChannel.open(indexPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        if (indexChannel.size() == 0) {
+            mapIndex(INITIAL_ENTRIES);
+            index.putInt(0, INDEX_MAGIC).putInt(4, VERSION).putInt(8, 0).putLong(16, 0);
+            index.force();
+        } else {
+            // Checked with a plain read, since mapping a short file would grow it
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            while (header.hasRemaining()) {
+                if (indexChannel.read(header, header.position()) < 0) {
+                    throw new IOException("Unrecognized portfolio index format");
+                }
+            }
+            if (header.getInt(0) != INDEX_MAGIC || header.getInt(4) != VERSION) {
+                throw new IOException("Unrecognized portfolio index format");
+            }
+            mapIndex((int) ((indexChannel.size() - HEADER_SIZE) / ENTRY_SIZE));
+        }
+        generation = index.getInt(8);
+        liveBytes = index.getLong(16);
+        log = FileChannel.open(logPath(generation), StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        deleteOtherLogs();
+    }
+    
+    // The account's latest image with its journal sequence set, or null if it has none
+    public Portfolio read(String userId) throws IOException {
+        int record = users.recordOf(userId);
+        lock.readLock().lock();
+        try {
+            return record < 0 ? null : readRecord(record, userId);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    // Visits every stored image in record order. Each is read under the read
+    // lock on its own, so writers wait for one image at a time, not the scan.
+    public void forEach(Consumer<Portfolio> visitor) throws IOException {
+        for (int record = 0; ; record++) {
+            Portfolio portfolio;
+            lock.readLock().lock();
+            try {
+                if (record >= capacity) {
+                    return;
+                }
+                portfolio = readRecord(record, "record " + record);
+            } finally {
+                lock.readLock().unlock();
+            }
+            if (portfolio != null) {
+                visitor.accept(portfolio);
+            }
+        }
+    }
+    
+    // Caller holds the read lock; name identifies the image in errors
+    private Portfolio readRecord(int record, String name) throws IOException {
+        if (record >= capacity) {
+            return null;
+        }
+        int entry = entryOffset(record);
+        long offset = index.getLong(entry) - 1;
+        if (offset < 0) {
+            return null;
+        }
+        ByteBuffer image = readEntry(offset, index.getInt(entry + 16), name);
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(image.array(), IMAGE_HEADER,
+                                                                          image.capacity() - IMAGE_HEADER));
+        if (index.getInt(entry + 20) != LEDGER_CHUNKED) {
+            throw new IOException("Corrupt portfolio index entry for " + name);
+        }
+        Portfolio portfolio = Portfolio.readState(in);
+        List<Chunk> chain = chain(index.getLong(entry + 24) - 1, name);
+        for (int i = chain.size() - 1; i >= 0; i--) {
+            ByteBuffer chunk = readEntry(chain.get(i).offset, chain.get(i).length, name);
+            portfolio.getLedger().readChunk(new DataInputStream(new ByteArrayInputStream(
+                    chunk.array(), IMAGE_HEADER, chunk.capacity() - IMAGE_HEADER)));
+        }
+        portfolio.setJournalSeq(image.getLong(8));
+        return portfolio;
+    }
+    
+    // An image or ledger chunk of the given body length, with its checksum verified
+    private ByteBuffer readEntry(long offset, int length, String name) throws IOException {
+        ByteBuffer entry = ByteBuffer.allocate(IMAGE_HEADER + length);
+        readFully(entry, offset, name);
+        CRC32 crc = new CRC32();
+        crc.update(entry.array(), IMAGE_HEADER, length);
+        if (entry.getInt(0) != length || entry.getInt(4) != (int) crc.getValue()) {
+            throw new IOException("Corrupt portfolio image for " + name);
+        }
+        return entry;
+    }
+    
+    private void readFully(ByteBuffer buffer, long offset, String name) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (log.read(buffer, offset + buffer.position()) < 0) {
+                throw new IOException("Truncated portfolio image for " + name);
+            }
+        }
+        buffer.flip();
+    }
+    
+    // The ledger chunks from head back to the account's first, newest first
+    private List<Chunk> chain(long head, String name) throws IOException {
+        List<Chunk> chain = new ArrayList<>();
+        ByteBuffer header = ByteBuffer.allocate(CHUNK_HEADER);
+        for (long offset = head; offset >= 0; offset = header.getLong(8) - 1) {
+            if (chain.size() == MAX_CHAIN) {
+                throw new IOException("Corrupt ledger chain for " + name);
+            }
+            header.clear();
+            readFully(header, offset, name);
+            chain.add(new Chunk(offset, header.getInt(0), header.getInt(16), header.getInt(20)));
+        }
+        return chain;
+    }
+    
+    private long chainBytes(long head, String name) throws IOException {
+        long bytes = 0;
+        for (Chunk chunk : chain(head, name)) {
+            bytes += IMAGE_HEADER + chunk.length;
+        }
+        return bytes;
+    }
+    
+    // Ledger head of a record's current entry, or -1 if it has no chunks
+    private long headOf(int record) {
+        if (record < 0 || record >= capacity) {
+            return -1;
+        }
+        int entry = entryOffset(record);
+        return index.getInt(entry + 20) == LEDGER_CHUNKED ? index.getLong(entry + 24) - 1 : -1;
+    }
+    
+    // Captures each portfolio, marking it clean, and makes the images durable
+    // before pointing the index at them. Writers are serialized, so an
+    // account's images reach the log in the order they were captured. Only
+    // the portfolio's state is copied under its lock; the ledger records the
+    // image covers are immutable and copied afterwards.
+    public synchronized void write(Collection<Portfolio> portfolios) throws IOException {
+        if (portfolios.isEmpty()) {
+            return;
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        int[] records = new int[portfolios.size()];
+        long[] offsets = new long[records.length];
+        long[] seqs = new long[records.length];
+        int[] lengths = new int[records.length];
+        long[] heads = new long[records.length];
+        List<int[]> chunks = new ArrayList<>(); // start in bytes, body length
+        long end = log.size();
+        int n = 0;
+        for (Portfolio portfolio : portfolios) {
+            records[n] = users.recordOf(portfolio.getUserId());
+            int start = bytes.size();
+            out.writeLong(0); // length and crc, filled in below
+            out.writeLong(0);
+            seqs[n] = portfolio.checkpoint(out);
+            offsets[n] = end + start;
+            lengths[n] = bytes.size() - start - IMAGE_HEADER;
+            heads[n] = writeLedgerTail(records[n], portfolio, bytes, out, end, chunks);
+            n++;
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(bytes.toByteArray());
+        CRC32 crc = new CRC32();
+        for (int i = 0; i < n; i++) {
+            int start = (int) (offsets[i] - end);
+            crc.reset();
+            crc.update(buffer.array(), start + IMAGE_HEADER, lengths[i]);
+            buffer.putInt(start, lengths[i]).putInt(start + 4, (int) crc.getValue()).putLong(start + 8, seqs[i]);
+        }
+        for (int[] chunk : chunks) {
+            crc.reset();
+            crc.update(buffer.array(), chunk[0] + IMAGE_HEADER, chunk[1]);
+            buffer.putInt(chunk[0], chunk[1]).putInt(chunk[0] + 4, (int) crc.getValue());
+        }
+        while (buffer.hasRemaining()) {
+            log.write(buffer, end + buffer.position());
+        }
+        log.force(false);
+        
+        // Bytes each entry's chain adds over the one it replaces; chunks shared by both cancel out
+        long[] chainDelta = new long[n];
+        for (int i = 0; i < n; i++) {
+            if (records[i] >= 0) {
+                String name = "record " + records[i];
+                chainDelta[i] = chainBytes(heads[i], name) - chainBytes(headOf(records[i]), name);
+            }
+        }
+        lock.writeLock().lock();
+        try {
+            for (int i = 0; i < n; i++) {
+                if (records[i] < 0) {
+                    continue; // not a stored user
+                }
+                if (records[i] >= capacity) {
+                    mapIndex(Math.max(capacity * 2, records[i] + 1));
+                }
+                int entry = entryOffset(records[i]);
+                if (index.getLong(entry) != 0) {
+                    liveBytes -= IMAGE_HEADER + index.getInt(entry + 16);
+                }
+                index.putLong(entry, offsets[i] + 1).putLong(entry + 8, seqs[i]).putInt(entry + 16, lengths[i])
+                     .putInt(entry + 20, LEDGER_CHUNKED).putLong(entry + 24, heads[i] + 1);
+                liveBytes += IMAGE_HEADER + lengths[i] + chainDelta[i];
+            }
+            index.putLong(16, liveBytes);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    // Appends the ledger records the account's chain lacks, up to those its
+    // image covers, as a new chunk that also takes over the newest chunks no
+    // larger than it. Returns the offset of the chain's head, or -1 if empty.
+    private long writeLedgerTail(int record, Portfolio portfolio, ByteArrayOutputStream bytes,
+                                 DataOutputStream out, long end, List<int[]> chunks) throws IOException {
+        List<Chunk> chain = chain(headOf(record), portfolio.getUserId());
+        int count = portfolio.getCheckpointedRecords();
+        int from = chain.isEmpty() ? 0 : chain.get(0).first + chain.get(0).count;
+        int merged = 0;
+        if (from > count) {
+            from = 0; // not this copy's chain; start afresh
+            merged = chain.size();
+        } else if (from == count) {
+            return chain.isEmpty() ? -1 : chain.get(0).offset;
+        }
+        while (merged < chain.size() && chain.get(merged).count <= count - from) {
+            from = chain.get(merged++).first;
+        }
+        int start = bytes.size();
+        out.writeLong(0); // length and crc, filled in by the caller
+        out.writeLong(merged < chain.size() ? chain.get(merged).offset + 1 : 0);
+        portfolio.getLedger().writeChunk(out, from, count);
+        chunks.add(new int[] {start, bytes.size() - start - IMAGE_HEADER});
+        return end + start;
+    }
+    
+    // Makes the index durable, after which the journal may be compacted up to
+    // the sequences of the images written so far; compacts the log if due
+    public synchronized void sync() throws IOException {
+        index.force();
+        long logSize = log.size();
+        if (logSize > MIN_COMPACT_BYTES && logSize > 2 * liveBytes) {
+            compact();
+        }
+    }
+    
+    // Copies the live images into the next generation's log and swaps in an
+    // index pointing at them
+    private void compact() throws IOException {
+        int next = generation + 1;
+        Path tmpIndex = indexPath().resolveSibling(indexPath().getFileName() + ".tmp");
+        try (FileChannel newLog = FileChannel.open(logPath(next), StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+             FileChannel newIndexChannel = FileChannel.open(tmpIndex, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            MappedByteBuffer newIndex = newIndexChannel.map(FileChannel.MapMode.READ_WRITE, 0,
+                    HEADER_SIZE + (long) capacity * ENTRY_SIZE);
+            long position = 0;
+            for (int record = 0; record < capacity; record++) {
+                int entry = entryOffset(record);
+                long offset = index.getLong(entry) - 1;
+                if (offset < 0) {
+                    continue;
+                }
+                // The ledger chain oldest first, each chunk relinked to the copy before it
+                long head = -1;
+                List<Chunk> chain = chain(headOf(record), "record " + record);
+                for (int i = chain.size() - 1; i >= 0; i--) {
+                    ByteBuffer chunk = ByteBuffer.allocate(IMAGE_HEADER + chain.get(i).length);
+                    readFully(chunk, chain.get(i).offset, "record " + record);
+                    chunk.putLong(8, head + 1);
+                    while (chunk.hasRemaining()) {
+                        newLog.write(chunk);
+                    }
+                    head = position;
+                    position += chunk.capacity();
+                }
+                long size = IMAGE_HEADER + index.getInt(entry + 16);
+                long copied = 0;
+                while (copied < size) {
+                    copied += log.transferTo(offset + copied, size - copied, newLog);
+                }
+                newIndex.putLong(entry, position + 1).putLong(entry + 8, index.getLong(entry + 8))
+                        .putInt(entry + 16, index.getInt(entry + 16)).putInt(entry + 20, index.getInt(entry + 20))
+                        .putLong(entry + 24, head + 1);
+                position += size;
+            }
+            newIndex.putInt(0, INDEX_MAGIC).putInt(4, VERSION).putInt(8, next).putLong(16, position);
+            newLog.force(true);
+            newIndex.force();
+        }
+        
+        lock.writeLock().lock();
+        try {
+            Files.move(tmpIndex, indexPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            indexChannel.close();
+            log.close();
+            indexChannel = FileChannel.open(indexPath(), StandardOpenOption.READ, StandardOpenOption.WRITE);
+            mapIndex(capacity);
+            generation = next;
+            liveBytes = index.getLong(16);
+            log = FileChannel.open(logPath(generation), StandardOpenOption.READ, StandardOpenOption.WRITE);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        deleteOtherLogs();
+    }
+    
+    public synchronized void close() {
+        try {
+            index.force();
+            log.close();
+            indexChannel.close();
+        } catch (IOException e) {
+            System.err.println("Error closing portfolio store: " + e.getMessage());
+        }
+    }
+    
+    // Logs of other generations are leftovers of a finished or interrupted compaction
+    private void deleteOtherLogs() throws IOException {
+        Path current = logPath(generation).getFileName();
+        try (DirectoryStream<Path> logs = Files.newDirectoryStream(directory, "portfolios-*.log")) {
+            for (Path path : logs) {
+                if (!path.getFileName().equals(current)) {
+                    Files.delete(path);
+                }
+            }
+        }
+    }
+    
+    private void mapIndex(int entries) throws IOException {
+        index = indexChannel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE + (long) entries * ENTRY_SIZE);
+        capacity = entries;
+    }
+    
+    private Path indexPath() {
+        return directory.resolve("portfolios.idx");
+    }
+    
+    private Path logPath(int generation) {
+        return directory.resolve("portfolios-" + generation + ".log");
+    }
+    
+    private static int entryOffset(int record) {
+        return HEADER_SIZE + record * ENTRY_SIZE;
+    }
+    
+    private static final class Chunk {
+        final long offset;
+        final int length; // of the body
+        final int first;  // ledger record
+        final int count;
+        
+        Chunk(long offset, int length, int first, int count) {
+            this.offset = offset;
+            this.length = length;
+            this.first = first;
+            this.count = count;
+        }
+    }
+}
@@ -0,0 +1,161 @@
+package com.codealpha.trading;
+
+import java.util.Arrays;
+
+// Open positions stored column-wise: parallel primitive arrays for symbol id,
+// quantity, cost basis, average cost, last mark price and shares reserved by
+// open sell orders, the position's tax lots, plus a small open-addressing
+// index from symbol id to slot. Nothing is boxed, and slots stay dense so
+// iteration is a plain loop.
+final class PositionBook {
+    private static final int INITIAL_CAPACITY = 4;
+    
+    private int[] symbolIds = new int[INITIAL_CAPACITY];
+    private int[] quantities = new int[INITIAL_CAPACITY];
+    private long[] costBases = new long[INITIAL_CAPACITY]; // exact total cost of the open shares, in cents
+    private long[] avgCosts = new long[INITIAL_CAPACITY]; // cost basis / quantity, rounded, in cents per share
+    private long[] marks = new long[INITIAL_CAPACITY]; // last price the position was valued at, in cents
+    private int[] reserved = new int[INITIAL_CAPACITY]; // shares committed to open sell orders
+    // Deques are recycled: a removed position's deque moves to the freed tail slot
+    private LotDeque[] lots = new LotDeque[INITIAL_CAPACITY];
+    private int size;
+    // index[h] holds slot + 1 for the symbol hashing near h, or 0 when empty
+    private int[] index = new int[INITIAL_CAPACITY * 2];
+    
+    int size() {
+        return size;
+    }
+    
+    int slotOf(int symbolId) {
+        int mask = index.length - 1;
+        for (int h = mix(symbolId) & mask; ; h = (h + 1) & mask) {
+            int entry = index[h];
+            if (entry == 0) {
+                return -1;
+            }
+            if (symbolIds[entry - 1] == symbolId) {
+                return entry - 1;
+            }
+        }
+    }
+    
+    int quantity(int symbolId) {
+        int slot = slotOf(symbolId);
+        return slot < 0 ? 0 : quantities[slot];
+    }
+    
+    long avgCost(int symbolId) {
+        int slot = slotOf(symbolId);
+        return slot < 0 ? 0 : avgCosts[slot];
+    }
+    
+    // Returns the slot holding the position; the average cost is derived from the basis
+    int put(int symbolId, int quantity, long costBasis) {
+        int slot = slotOf(symbolId);
+        if (slot < 0) {
+            if (size == symbolIds.length) {
+                grow();
+            }
+            slot = size++;
+            symbolIds[slot] = symbolId;
+            marks[slot] = 0;
+            reserved[slot] = 0;
+            if (lots[slot] == null) {
+                lots[slot] = new LotDeque();
+            } else {
+                lots[slot].clear();
+            }
+            insertIndex(symbolId, slot);
+        }
+        quantities[slot] = quantity;
+        costBases[slot] = costBasis;
+        avgCosts[slot] = quantity == 0 ? 0 : Money.divideHalfUp(costBasis, quantity);
+        return slot;
+    }
+    
+    void remove(int symbolId) {
+        int slot = slotOf(symbolId);
+        if (slot < 0) {
+            return;
+        }
+        removeIndex(symbolId);
+        int last = --size;
+        if (slot != last) {
+            // Move the last position into the hole to keep slots dense
+            int movedId = symbolIds[last];
+            symbolIds[slot] = movedId;
+            quantities[slot] = quantities[last];
+            costBases[slot] = costBases[last];
+            avgCosts[slot] = avgCosts[last];
+            marks[slot] = marks[last];
+            reserved[slot] = reserved[last];
+            LotDeque freed = lots[slot];
+            lots[slot] = lots[last];
+            lots[last] = freed;
+            index[findIndex(movedId)] = slot + 1;
+        }
+    }
+    
+    int symbolIdAt(int slot) { return symbolIds[slot]; }
+    int quantityAt(int slot) { return quantities[slot]; }
+    long costBasisAt(int slot) { return costBases[slot]; }
+    long avgCostAt(int slot) { return avgCosts[slot]; }
+    LotDeque lotsAt(int slot) { return lots[slot]; }
+    long markAt(int slot) { return marks[slot]; }
+    void setMarkAt(int slot, long mark) { marks[slot] = mark; }
+    int reservedAt(int slot) { return reserved[slot]; }
+    void setReservedAt(int slot, int shares) { reserved[slot] = shares; }
+    
+    private void grow() {
+        int capacity = symbolIds.length * 2;
+        symbolIds = Arrays.copyOf(symbolIds, capacity);
+        quantities = Arrays.copyOf(quantities, capacity);
+        costBases = Arrays.copyOf(costBases, capacity);
+        avgCosts = Arrays.copyOf(avgCosts, capacity);
+        marks = Arrays.copyOf(marks, capacity);
+        reserved = Arrays.copyOf(reserved, capacity);
+        lots = Arrays.copyOf(lots, capacity);
+        index = new int[capacity * 2];
+        for (int slot = 0; slot < size; slot++) {
+            insertIndex(symbolIds[slot], slot);
+        }
+    }
+    
+    private void insertIndex(int symbolId, int slot) {
+        int mask = index.length - 1;
+        int h = mix(symbolId) & mask;
+        while (index[h] != 0) {
+            h = (h + 1) & mask;
+        }
+        index[h] = slot + 1;
+    }
+    
+    private int findIndex(int symbolId) {
+        int mask = index.length - 1;
+        int h = mix(symbolId) & mask;
+        while (symbolIds[index[h] - 1] != symbolId) {
+            h = (h + 1) & mask;
+        }
+        return h;
+    }
+    
+    // Linear-probing delete: shift later entries of the cluster back into the gap
+    private void removeIndex(int symbolId) {
+        int mask = index.length - 1;
+        int gap = findIndex(symbolId);
+        index[gap] = 0;
+        for (int h = (gap + 1) & mask; index[h] != 0; h = (h + 1) & mask) {
+            int home = mix(symbolIds[index[h] - 1]) & mask;
+            if (((h - home) & mask) >= ((h - gap) & mask)) {
+                index[gap] = index[h];
+                index[h] = 0;
+                gap = h;
+            }
+        }
+    }
+    
+    private static int mix(int symbolId) {
+        int h = symbolId * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
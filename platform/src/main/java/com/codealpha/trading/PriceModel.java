@@ -0,0 +1,43 @@
+package com.codealpha.trading;
+
+import java.util.SplittableRandom;
+
+// Price dynamics for the tick engine and synthetic backtest ticks. Models
+// step whole partitions of a universe-ordered price array in place, so a tick
+// is a few tight loops over primitive arrays rather than a call per stock.
+// Prices are whole cents held in doubles (exact below 2^53), which keeps the
+// update loop free of long/double conversions so the JIT can vectorize it.
+//
+// Implementations are found with ServiceLoader (META-INF/services) and
+// selected by name with -Dtrading.priceModel. Each engine gets its own
+// instance; step is called concurrently for disjoint ranges.
+public interface PriceModel {
+    String name();
+    
+    // Called once with the opening prices, in cents
+    default void init(double[] prices) {}
+    
+    // Called once per tick before any range is stepped, for shocks shared by
+    // every symbol (e.g. a market factor)
+    default void beginTick(SplittableRandom random) {}
+    
+    // Advances prices[from, to) by one tick. scratch has room for to - from doubles.
+    void step(double[] prices, int from, int to, SplittableRandom random, double[] scratch);
+    
+    // prices[i] *= 1 + returns[i - from], rounded HALF_UP to a cent and floored
+    // at $1. A select rather than Math.max, whose NaN handling blocks vectorization.
+    static void applyReturns(double[] prices, double[] returns, int from, int to) {
+        for (int i = from; i < to; i++) {
+            double price = prices[i];
+            double next = Math.floor(price + price * returns[i - from] + 0.5);
+            prices[i] = next < Money.ONE ? Money.ONE : next;
+        }
+    }
+    
+    // Turns log returns in scratch[0, count) into simple returns
+    static void expm1(double[] scratch, int count) {
+        for (int i = 0; i < count; i++) {
+            scratch[i] = Math.expm1(scratch[i]);
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package com.codealpha.trading;
+
+import java.util.ServiceLoader;
+
+// Looks up PriceModel implementations by name
+final class PriceModels {
+    static final String DEFAULT = "uniform";
+    
+    private PriceModels() {}
+    
+    // A fresh instance of the named model, or of the default model if no
+    // provider has that name
+    static PriceModel load(String name) {
+        for (PriceModel model : ServiceLoader.load(PriceModel.class)) {
+            if (model.name().equalsIgnoreCase(name)) {
+                return model;
+            }
+        }
+        System.err.println("Error loading price model: no model named " + name + ", using " + DEFAULT);
+        return new UniformPriceModel();
+    }
+    
+    // Model parameters come from -Dtrading.priceModel.<key>
+    static double parameter(String key, double defaultValue) {
+        String value = System.getProperty("trading.priceModel." + key);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Double.parseDouble(value);
+        } catch (NumberFormatException e) {
+            System.err.println("Error reading price model parameter " + key + ": " + e.getMessage());
+            return defaultValue;
+        }
+    }
+}
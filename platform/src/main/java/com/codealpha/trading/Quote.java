@@ -0,0 +1,37 @@
+package com.codealpha.trading;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDateTime;
+
+// Immutable price point for one symbol; a new Quote is published on every update
+final class Quote {
+    private final long price; // cents
+    private final long previousPrice; // cents
+    private final LocalDateTime lastUpdated;
+    
+    Quote(long price, long previousPrice, LocalDateTime lastUpdated) {
+        this.price = price;
+        this.previousPrice = previousPrice;
+        this.lastUpdated = lastUpdated;
+    }
+    
+    public BigDecimal getPriceChange() {
+        return Money.toBigDecimal(price - previousPrice);
+    }
+    
+    public BigDecimal getPriceChangePercentage() {
+        if (previousPrice == 0) {
+            return BigDecimal.ZERO;
+        }
+        return getPriceChange().divide(getPreviousPrice(), 4, RoundingMode.HALF_UP)
+               .multiply(BigDecimal.valueOf(100));
+    }
+    
+    // Getters
+    public BigDecimal getPrice() { return Money.toBigDecimal(price); }
+    public BigDecimal getPreviousPrice() { return Money.toBigDecimal(previousPrice); }
+    public long getPriceCents() { return price; }
+    public long getPreviousPriceCents() { return previousPrice; }
+    public LocalDateTime getLastUpdated() { return lastUpdated; }
+}
@@ -0,0 +1,177 @@
+package com.codealpha.trading;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+// Push-based quote distribution. The tick thread publishes each snapshot into
+// a bounded ring and never blocks; every subscription tracks its own read
+// sequence and is drained on a shared worker pool, one drain at a time per
+// subscription. Snapshots are immutable full-universe states, so nothing is
+// copied and a subscriber that falls behind can skip straight to the latest
+// one without losing a symbol's current price.
+//
+// Conflating subscriptions always jump to the newest snapshot. The others
+// see every snapshot in order until they fall a whole ring behind; then they
+// are overrun and jump ahead too. Either way the skipped snapshots are counted.
+final class QuoteBus {
+    private final AtomicReferenceArray<MarketSnapshot> ring;
+    private final int capacity;
+    private final int mask;
+    // The slot for sequence claimed is being written; cursor is the last complete one
+    private volatile long claimed = -1;
+    private volatile long cursor = -1;
+    private final List<Subscription> subscriptions = new CopyOnWriteArrayList<>();
+    private final ExecutorService workers;
+    
+    QuoteBus(int capacity, int workerThreads) {
+        this.capacity = Integer.highestOneBit(Math.max(2, capacity - 1) << 1);
+        this.mask = this.capacity - 1;
+        this.ring = new AtomicReferenceArray<>(this.capacity);
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.workers = Executors.newFixedThreadPool(workerThreads, runnable -> {
+            Thread thread = new Thread(runnable, "quote-bus-" + threadNumber.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+    
+    // Snapshot listener; single producer
+    void publish(MarketSnapshot snapshot) {
+        long next = cursor + 1;
+        claimed = next;
+        ring.set((int) next & mask, snapshot);
+        cursor = next;
+        for (Subscription subscription : subscriptions) {
+            subscription.schedule();
+        }
+    }
+    
+    // symbolIds null means the whole universe
+    Subscription subscribe(int[] symbolIds, boolean conflate, QuoteListener listener) {
+        Subscription subscription = new Subscription(symbolIds, conflate, listener);
+        subscriptions.add(subscription);
+        return subscription;
+    }
+    
+    void shutdown() {
+        for (Subscription subscription : subscriptions) {
+            subscription.cancel();
+        }
+        workers.shutdownNow();
+    }
+    
+    interface QuoteListener {
+        // Called on a bus worker for each subscribed symbol of a delivered
+        // snapshot; never concurrently for the same subscription
+        void onQuote(int symbolId, Quote quote);
+        
+        // Called after the quotes of each delivered snapshot
+        default void onSnapshotDelivered(MarketSnapshot snapshot) {}
+    }
+    
+    final class Subscription {
+        private final int[] symbolIds;
+        private final boolean conflate;
+        private final QuoteListener listener;
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+        private volatile boolean active = true;
+        private volatile long sequence; // last delivered; written only by the drain
+        // Backpressure metrics, written only by the drain
+        private volatile long delivered;
+        private volatile long skipped;
+        private volatile long overruns;
+        private volatile long maxLag;
+        
+        private Subscription(int[] symbolIds, boolean conflate, QuoteListener listener) {
+            this.symbolIds = symbolIds == null ? null : symbolIds.clone();
+            this.conflate = conflate;
+            this.listener = listener;
+            this.sequence = cursor; // start with the next snapshot
+        }
+        
+        void cancel() {
+            active = false;
+            subscriptions.remove(this);
+        }
+        
+        private void schedule() {
+            if (active && scheduled.compareAndSet(false, true)) {
+                try {
+                    workers.execute(this::drain);
+                } catch (RuntimeException e) {
+                    scheduled.set(false); // bus shut down
+                }
+            }
+        }
+        
+        private void drain() {
+            try {
+                long available;
+                while (active && (available = cursor) > sequence) {
+                    maxLag = Math.max(maxLag, available - sequence);
+                    long next = conflate ? available : sequence + 1;
+                    MarketSnapshot snapshot = ring.get((int) next & mask);
+                    if (claimed - next >= capacity) {
+                        // The slot was reused while we lagged; resume from the newest snapshot
+                        overruns++;
+                        next = cursor;
+                        snapshot = ring.get((int) next & mask);
+                        if (claimed - next >= capacity) {
+                            continue;
+                        }
+                    }
+                    skipped += next - sequence - 1;
+                    sequence = next;
+                    deliver(snapshot);
+                    delivered++;
+                }
+            } finally {
+                scheduled.set(false);
+            }
+            // A publish may have found us still scheduled just before we finished
+            if (active && cursor > sequence) {
+                schedule();
+            }
+        }
+        
+        private void deliver(MarketSnapshot snapshot) {
+            try {
+                if (symbolIds == null) {
+                    for (int i = 0; i < snapshot.size(); i++) {
+                        listener.onQuote(snapshot.getStock(i).getSymbolId(), snapshot.getQuote(i));
+                    }
+                } else {
+                    for (int symbolId : symbolIds) {
+                        Quote quote = snapshot.getQuoteBySymbolId(symbolId);
+                        if (quote != null) {
+                            listener.onQuote(symbolId, quote);
+                        }
+                    }
+                }
+                listener.onSnapshotDelivered(snapshot);
+            } catch (RuntimeException e) {
+                System.err.println("Error delivering quotes: " + e.getMessage());
+            }
+        }
+        
+        @Override
+        public String toString() {
+            return String.format("delivered=%d skipped=%d overruns=%d lag=%d maxLag=%d",
+                    delivered, skipped, overruns, getLag(), maxLag);
+        }
+        
+        // Snapshots published but not yet delivered
+        public long getLag() { return Math.max(0, cursor - sequence); }
+        
+        // Getters
+        public long getDelivered() { return delivered; }
+        public long getSkipped() { return skipped; }
+        public long getOverruns() { return overruns; }
+        public long getMaxLag() { return maxLag; }
+    }
+}
@@ -0,0 +1,284 @@
+package com.codealpha.trading;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Supplier;
+
+// Portfolio risk from the tick history: historical and Monte Carlo
+// value-at-risk, the volatility of the portfolio's return, its beta to an
+// equal-weighted index of the universe, exposure by symbol and the correlation
+// of the symbols held. Risk is over one step of the return grid, by default
+// one price tick, at CONFIDENCE.
+//
+// The history window ends at the last step boundary, so the model and every
+// result measured on it are cached until the clock crosses the next boundary.
+// A portfolio's result is also keyed on its journal sequence, which every
+// trade advances. The full book is measured on a fork-join pool, a range of
+// accounts per task, once per window.
+final class RiskEngine {
+    static final int OBSERVATIONS = Integer.getInteger("trading.riskObservations", 250);
+    static final int SCENARIOS = Integer.getInteger("trading.riskScenarios", 1000);
+    static final double CONFIDENCE = Double.parseDouble(System.getProperty("trading.riskConfidence", "0.99"));
+    private static final long STEP_MILLIS = Long.getLong("trading.riskStepMillis",
+            Long.getLong("trading.tickMillis", 5000));
+    private static final long SEED = Long.getLong("trading.riskSeed", 1);
+    private static final int ACCOUNTS_PER_TASK = 256;
+    
+    private final TickStore ticks; // null without tick history
+    private final Supplier<MarketSnapshot> market;
+    private final ForkJoinPool pool;
+    private final long stepNanos;
+    private final Map<String, PortfolioRisk> portfolios = new ConcurrentHashMap<>(); // by userId
+    private final Object bookLock = new Object(); // held while the book is measured
+    private RiskModel model; // guarded by this
+    private Book book;       // guarded by bookLock
+    
+    RiskEngine(TickStore ticks, Supplier<MarketSnapshot> market, int parallelism) {
+        this.ticks = ticks;
+        this.market = market;
+        this.pool = new ForkJoinPool(Math.max(1, parallelism));
+        this.stepNanos = Math.max(1, STEP_MILLIS) * 1_000_000;
+    }
+    
+    // The model of the current window, built on first use
+    synchronized RiskModel model() {
+        long windowEnd = Math.floorDiv(TransactionLedger.toTime(LocalDateTime.now()), stepNanos) * stepNanos;
+        if (model == null || model.getWindowEnd() != windowEnd) {
+            long start = System.nanoTime();
+            model = RiskModel.build(ticks, market.get(), windowEnd, stepNanos, OBSERVATIONS, SCENARIOS, SEED, pool);
+            portfolios.clear();
+            Metrics.RISK_MODEL.recordSince(start);
+        }
+        return model;
+    }
+    
+    PortfolioRisk portfolioRisk(Portfolio portfolio) {
+        RiskModel current = model();
+        long journalSeq = portfolio.getJournalSeq(); // read before the positions
+        PortfolioRisk cached = portfolios.get(portfolio.getUserId());
+        if (cached != null && cached.model == current && cached.journalSeq == journalSeq) {
+            return cached;
+        }
+        Book single = new Book(current);
+        single.add(portfolio);
+        int held = single.positions;
+        double[] out = new double[4];
+        current.measure(single.columns, single.values, 0, held, new double[current.scratchSize()], out, CONFIDENCE);
+        int[] columns = Arrays.copyOf(single.columns, held);
+        int[] symbolIds = new int[held];
+        long[] exposures = new long[held];
+        for (int k = 0; k < held; k++) {
+            symbolIds[k] = current.getSymbolId(columns[k]);
+            exposures[k] = Math.round(single.values[k]);
+        }
+        PortfolioRisk risk = new PortfolioRisk(current, journalSeq, single.valueCents[0], out, symbolIds, exposures,
+                                               current.correlation(columns, pool));
+        portfolios.put(portfolio.getUserId(), risk);
+        return risk;
+    }
+    
+    // Every account in the store, measured once per window
+    Book bookRisk(AccountStore accounts) {
+        synchronized (bookLock) {
+            RiskModel current = model();
+            if (book == null || book.model != current) {
+                long start = System.nanoTime();
+                Book next = new Book(current);
+                accounts.forEachPortfolio(next::add);
+                measure(next);
+                next.elapsedNanos = System.nanoTime() - start;
+                Metrics.RISK_BOOK.record(next.elapsedNanos);
+                book = next;
+            }
+            return book;
+        }
+    }
+    
+    // Measures each account in parallel, then the book as one portfolio of its
+    // total exposures; only the symbols held get scenarios
+    void measure(Book book) {
+        RiskModel current = book.model;
+        int[] held = new int[current.getColumnCount()];
+        double[] exposures = new double[held.length];
+        int heldCount = 0;
+        for (int column = 0; column < held.length; column++) {
+            if (book.exposures[column] != 0) {
+                held[heldCount] = column;
+                exposures[heldCount++] = book.exposures[column];
+            }
+        }
+        current.prepare(held, heldCount, pool);
+        book.historicalVarCents = new long[book.count];
+        book.monteCarloVarCents = new long[book.count];
+        book.volatility = new double[book.count];
+        book.beta = new double[book.count];
+        pool.invoke(new RiskModel.RangeTask(0, book.count, ACCOUNTS_PER_TASK, (from, to) -> {
+            double[] scratch = new double[current.scratchSize()];
+            double[] out = new double[4];
+            for (int a = from; a < to; a++) {
+                current.measure(book.columns, book.values, book.starts[a], book.starts[a + 1], scratch, out,
+                                CONFIDENCE);
+                book.historicalVarCents[a] = Math.round(out[0]);
+                book.monteCarloVarCents[a] = Math.round(out[1]);
+                book.volatility[a] = out[2];
+                book.beta[a] = out[3];
+            }
+        }));
+        double[] out = new double[4];
+        current.measure(held, exposures, 0, heldCount, new double[current.scratchSize()], out, CONFIDENCE);
+        book.bookHistoricalVar = Math.round(out[0]);
+        book.bookMonteCarloVar = Math.round(out[1]);
+        book.bookVolatility = out[2];
+        book.bookBeta = out[3];
+    }
+    
+    void shutdown() {
+        pool.shutdownNow();
+    }
+    
+    // One portfolio's risk; exposures are by held symbol, and correlation is
+    // row-major over the same symbols
+    static final class PortfolioRisk {
+        private final RiskModel model;
+        private final long journalSeq;
+        private final long valueCents;
+        private final long historicalVarCents;
+        private final long monteCarloVarCents;
+        private final double volatility;
+        private final double beta;
+        private final int[] symbolIds;
+        private final long[] exposureCents;
+        private final double[] correlation;
+        
+        PortfolioRisk(RiskModel model, long journalSeq, long valueCents, double[] measures, int[] symbolIds,
+                      long[] exposureCents, double[] correlation) {
+            this.model = model;
+            this.journalSeq = journalSeq;
+            this.valueCents = valueCents;
+            this.historicalVarCents = Math.round(measures[0]);
+            this.monteCarloVarCents = Math.round(measures[1]);
+            this.volatility = measures[2];
+            this.beta = measures[3];
+            this.symbolIds = symbolIds;
+            this.exposureCents = exposureCents;
+            this.correlation = correlation;
+        }
+        
+        public int getSymbolCount() { return symbolIds.length; }
+        public int getSymbolId(int k) { return symbolIds[k]; }
+        public long getExposureCents(int k) { return exposureCents[k]; }
+        public double getCorrelation(int i, int j) { return correlation[i * symbolIds.length + j]; }
+        
+        // Getters
+        public RiskModel getModel() { return model; }
+        public long getValueCents() { return valueCents; }
+        public long getHistoricalVarCents() { return historicalVarCents; }
+        public long getMonteCarloVarCents() { return monteCarloVarCents; }
+        public double getVolatility() { return volatility; }
+        public double getBeta() { return beta; }
+    }
+    
+    // Accounts as parallel arrays: account a holds values (cents at the
+    // window's prices) in columns starts[a] until starts[a + 1]. Positions in
+    // symbols outside the universe are left out. Filled by add(), then
+    // measured in place.
+    static final class Book {
+        private final RiskModel model;
+        private int count;
+        private String[] userIds = new String[16];
+        private long[] valueCents = new long[16];
+        private int[] starts = new int[17];
+        private int positions;
+        private int[] columns = new int[64];
+        private double[] values = new double[64];
+        private final double[] exposures; // cents, by column, summed over the book
+        private long[] historicalVarCents;
+        private long[] monteCarloVarCents;
+        private double[] volatility;
+        private double[] beta;
+        private long bookHistoricalVar;
+        private long bookMonteCarloVar;
+        private double bookVolatility;
+        private double bookBeta;
+        private long elapsedNanos;
+        
+        Book(RiskModel model) {
+            this.model = model;
+            this.exposures = new double[model.getColumnCount()];
+        }
+        
+        void add(Portfolio portfolio) {
+            if (count == userIds.length) {
+                userIds = Arrays.copyOf(userIds, count * 2);
+                valueCents = Arrays.copyOf(valueCents, count * 2);
+                starts = Arrays.copyOf(starts, count * 2 + 1);
+            }
+            portfolio.forEachPosition((symbolId, quantity, avgCost, mark) -> {
+                int column = model.columnOf(symbolId);
+                if (column < 0 || quantity == 0) {
+                    return;
+                }
+                if (positions == columns.length) {
+                    columns = Arrays.copyOf(columns, positions * 2);
+                    values = Arrays.copyOf(values, positions * 2);
+                }
+                double value = (double) quantity * model.getPriceCents(column);
+                columns[positions] = column;
+                values[positions++] = value;
+                exposures[column] += value;
+            });
+            userIds[count] = portfolio.getUserId();
+            long value = 0;
+            for (int k = starts[count]; k < positions; k++) {
+                value += Math.round(values[k]);
+            }
+            valueCents[count] = value;
+            starts[++count] = positions;
+        }
+        
+        // Sum of the accounts' VaR, before diversification across accounts
+        public long getTotalHistoricalVarCents() {
+            long total = 0;
+            for (int a = 0; a < count; a++) {
+                total += historicalVarCents[a];
+            }
+            return total;
+        }
+        
+        public long getTotalMonteCarloVarCents() {
+            long total = 0;
+            for (int a = 0; a < count; a++) {
+                total += monteCarloVarCents[a];
+            }
+            return total;
+        }
+        
+        public long getValueCents() {
+            long total = 0;
+            for (int a = 0; a < count; a++) {
+                total += valueCents[a];
+            }
+            return total;
+        }
+        
+        public long getExposureCents(int column) { return Math.round(exposures[column]); }
+        public String getUserId(int a) { return userIds[a]; }
+        public long getValueCents(int a) { return valueCents[a]; }
+        public long getHistoricalVarCents(int a) { return historicalVarCents[a]; }
+        public long getMonteCarloVarCents(int a) { return monteCarloVarCents[a]; }
+        public double getVolatility(int a) { return volatility[a]; }
+        public double getBeta(int a) { return beta[a]; }
+        
+        // Getters
+        public RiskModel getModel() { return model; }
+        public int getCount() { return count; }
+        public long getBookHistoricalVarCents() { return bookHistoricalVar; }
+        public long getBookMonteCarloVarCents() { return bookMonteCarloVar; }
+        public double getBookVolatility() { return bookVolatility; }
+        public double getBookBeta() { return bookBeta; }
+        public long getElapsedNanos() { return elapsedNanos; }
+    }
+}
@@ -0,0 +1,379 @@
+package com.codealpha.trading;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+// Returns of the whole universe over one risk window, sampled from the tick
+// store onto a grid of fixed steps, and Monte Carlo scenarios drawn from them.
+// Everything is kept in primitive arrays with one column per symbol, in
+// universe order: returns[column * observations + t], and a column's
+// scenarios in an array of their own. A portfolio's P&L over the history or
+// the scenarios is then a sum of contiguous runs, one per position.
+//
+// Each scenario weights the history's centered returns by independent
+// standard normals, which reproduces the sample mean and covariance without
+// factoring the covariance matrix, and works when the universe is larger than
+// the history and the covariance is singular. The normals are shared by every
+// symbol, scenarioCount rows of observations, and drawn in parallel in fixed
+// chunks, each with its own SplittableRandom split off in order, so a
+// window's scenarios do not depend on how the work was scheduled. A symbol's
+// scenarios are worked out from them the first time a holding needs them, so
+// memory and work follow the symbols held rather than the universe.
+final class RiskModel {
+    private static final int SCENARIOS_PER_TASK = 64;
+    private static final int COLUMNS_PER_TASK = 16;
+    
+    private final long windowEnd; // TickStore clock
+    private final int observations;
+    private final int scenarioCount;
+    private final int[] symbolIds;     // by column
+    private final int[] columnOf;      // by symbol id, -1 outside the universe
+    private final long[] prices;       // cents, by column, at the end of the window
+    private final double[] returns;    // simple returns per step, column-major
+    private final double[] means;      // by column
+    private final double[] deviations; // sample standard deviation, by column
+    private final double[] index;      // equal-weighted returns of the symbols with history
+    private final double indexVariance;
+    private final double[] shocks;     // scaled standard normals, shocks[m * observations + t]
+    private final AtomicReferenceArray<double[]> scenarios; // simple returns by column, drawn on first use
+    private final int historyColumns;  // symbols with ticks in the window
+    
+    private RiskModel(MarketSnapshot market, long windowEnd, int observations, long[] prices, double[] returns,
+                      boolean[] history, int scenarioCount, long seed, ForkJoinPool pool) {
+        this.windowEnd = windowEnd;
+        this.observations = observations;
+        this.scenarioCount = scenarioCount;
+        this.prices = prices;
+        this.returns = returns;
+        int columns = market.size();
+        symbolIds = new int[columns];
+        int maxSymbolId = -1;
+        for (int column = 0; column < columns; column++) {
+            symbolIds[column] = market.getStock(column).getSymbolId();
+            maxSymbolId = Math.max(maxSymbolId, symbolIds[column]);
+        }
+        columnOf = new int[maxSymbolId + 1];
+        Arrays.fill(columnOf, -1);
+        for (int column = 0; column < columns; column++) {
+            columnOf[symbolIds[column]] = column;
+        }
+        
+        means = new double[columns];
+        deviations = new double[columns];
+        index = new double[observations];
+        int withHistory = 0;
+        for (int column = 0; column < columns; column++) {
+            int base = column * observations;
+            double sum = 0;
+            for (int t = 0; t < observations; t++) {
+                sum += returns[base + t];
+            }
+            double mean = observations == 0 ? 0 : sum / observations;
+            double squares = 0;
+            for (int t = 0; t < observations; t++) {
+                double centered = returns[base + t] - mean;
+                squares += centered * centered;
+            }
+            means[column] = mean;
+            deviations[column] = observations < 2 ? 0 : Math.sqrt(squares / (observations - 1));
+            if (history[column]) {
+                withHistory++;
+                for (int t = 0; t < observations; t++) {
+                    index[t] += returns[base + t];
+                }
+            }
+        }
+        historyColumns = withHistory;
+        double indexMean = 0;
+        for (int t = 0; t < observations; t++) {
+            index[t] = withHistory == 0 ? 0 : index[t] / withHistory;
+            indexMean += index[t];
+        }
+        indexMean = observations == 0 ? 0 : indexMean / observations;
+        double indexSquares = 0;
+        for (int t = 0; t < observations; t++) {
+            indexSquares += (index[t] - indexMean) * (index[t] - indexMean);
+        }
+        indexVariance = observations < 2 ? 0 : indexSquares / (observations - 1);
+        
+        shocks = new double[scenarioCount * observations];
+        drawShocks(seed, pool);
+        scenarios = new AtomicReferenceArray<>(columns);
+    }
+    
+    // Samples the last price of each step in [windowEnd - (observations + 1) steps, windowEnd).
+    // Steps without ticks carry the previous price forward, and those before a
+    // symbol's first tick take that tick's price; symbols without ticks in the
+    // window, or without a tick store, are priced from market with zero returns.
+    static RiskModel build(TickStore ticks, MarketSnapshot market, long windowEnd, long stepNanos, int observations,
+                           int scenarioCount, long seed, ForkJoinPool pool) {
+        int columns = market.size();
+        int points = observations + 1;
+        long windowStart = windowEnd - points * stepNanos;
+        long[] prices = new long[columns];
+        double[] returns = new double[columns * observations];
+        boolean[] history = new boolean[columns];
+        pool.invoke(new RangeTask(0, columns, COLUMNS_PER_TASK, (from, to) -> {
+            long[] grid = new long[points];
+            for (int column = from; column < to; column++) {
+                Arrays.fill(grid, 0);
+                if (ticks != null) {
+                    ticks.scan(market.getStock(column).getSymbolId(), windowStart, windowEnd,
+                               (time, price, volume) -> grid[(int) ((time - windowStart) / stepNanos)] = price);
+                }
+                int first = 0;
+                while (first < points && grid[first] == 0) {
+                    first++;
+                }
+                if (first == points) {
+                    prices[column] = market.getQuote(column).getPriceCents();
+                    continue;
+                }
+                history[column] = true;
+                for (int p = 0; p < points; p++) {
+                    if (p < first) {
+                        grid[p] = grid[first];
+                    } else if (grid[p] == 0) {
+                        grid[p] = grid[p - 1];
+                    }
+                }
+                int base = column * observations;
+                for (int t = 0; t < observations; t++) {
+                    returns[base + t] = (double) grid[t + 1] / grid[t] - 1;
+                }
+                prices[column] = grid[observations];
+            }
+        }));
+        return new RiskModel(market, windowEnd, observations, prices, returns, history, scenarioCount, seed, pool);
+    }
+    
+    // A model over given returns, column-major in market order, priced at market
+    static RiskModel fromReturns(MarketSnapshot market, double[] returns, int observations, int scenarioCount,
+                                 long seed, ForkJoinPool pool) {
+        long[] prices = new long[market.size()];
+        boolean[] history = new boolean[market.size()];
+        for (int column = 0; column < prices.length; column++) {
+            prices[column] = market.getQuote(column).getPriceCents();
+            history[column] = true;
+        }
+        return new RiskModel(market, 0, observations, prices, returns, history, scenarioCount, seed, pool);
+    }
+    
+    private void drawShocks(long seed, ForkJoinPool pool) {
+        int chunks = (scenarioCount + SCENARIOS_PER_TASK - 1) / SCENARIOS_PER_TASK;
+        SplittableRandom root = new SplittableRandom(seed ^ windowEnd);
+        SplittableRandom[] randoms = new SplittableRandom[chunks];
+        for (int chunk = 0; chunk < chunks; chunk++) {
+            randoms[chunk] = root.split();
+        }
+        double scale = observations < 2 ? 0 : 1 / Math.sqrt(observations - 1);
+        pool.invoke(new RangeTask(0, chunks, 1, (from, to) -> {
+            for (int chunk = from; chunk < to; chunk++) {
+                SplittableRandom random = randoms[chunk];
+                int end = Math.min(scenarioCount, (chunk + 1) * SCENARIOS_PER_TASK) * observations;
+                for (int i = chunk * SCENARIOS_PER_TASK * observations; i < end; i++) {
+                    shocks[i] = random.nextGaussian() * scale;
+                }
+            }
+        }));
+    }
+    
+    // Draws the scenarios of columns[0..count) ahead of measuring them, in parallel
+    void prepare(int[] columns, int count, ForkJoinPool pool) {
+        pool.invoke(new RangeTask(0, count, COLUMNS_PER_TASK, (from, to) -> {
+            for (int k = from; k < to; k++) {
+                scenarios(columns[k]);
+            }
+        }));
+    }
+    
+    // Scenario returns of one column; threads that miss at once may both draw them
+    private double[] scenarios(int column) {
+        double[] drawn = scenarios.get(column);
+        if (drawn == null) {
+            drawn = new double[scenarioCount];
+            int base = column * observations;
+            double mean = means[column];
+            for (int m = 0; m < scenarioCount; m++) {
+                int row = m * observations;
+                double sum = 0;
+                for (int t = 0; t < observations; t++) {
+                    sum += shocks[row + t] * (returns[base + t] - mean);
+                }
+                drawn[m] = mean + sum;
+            }
+            if (!scenarios.compareAndSet(column, null, drawn)) {
+                drawn = scenarios.get(column);
+            }
+        }
+        return drawn;
+    }
+    
+    // Measures one portfolio held as values in cents, entries [from, to) of
+    // columns and values. scratch needs scratchSize() doubles. Sets out[0] to
+    // the historical VaR, out[1] to the Monte Carlo VaR, both in cents and
+    // positive for a loss, out[2] to the standard deviation of the
+    // portfolio's return per step and out[3] to its beta to the index.
+    void measure(int[] columns, double[] values, int from, int to, double[] scratch, double[] out, double confidence) {
+        double value = 0;
+        for (int k = from; k < to; k++) {
+            value += values[k];
+        }
+        
+        Arrays.fill(scratch, 0, observations, 0);
+        for (int k = from; k < to; k++) {
+            int base = columns[k] * observations;
+            double held = values[k];
+            for (int t = 0; t < observations; t++) {
+                scratch[t] += held * returns[base + t];
+            }
+        }
+        double mean = 0;
+        for (int t = 0; t < observations; t++) {
+            mean += scratch[t];
+        }
+        mean = observations == 0 ? 0 : mean / observations;
+        double squares = 0;
+        double covariance = 0;
+        for (int t = 0; t < observations; t++) {
+            double centered = scratch[t] - mean;
+            squares += centered * centered;
+            covariance += centered * index[t];
+        }
+        double pnlDeviation = observations < 2 ? 0 : Math.sqrt(squares / (observations - 1));
+        out[2] = value > 0 ? pnlDeviation / value : 0;
+        out[3] = value > 0 && indexVariance > 0 ? covariance / (observations - 1) / indexVariance / value : 0;
+        out[0] = observations == 0 ? 0 : Math.max(0, -select(scratch, observations, tail(observations, confidence)));
+        
+        Arrays.fill(scratch, 0, scenarioCount, 0);
+        for (int k = from; k < to; k++) {
+            double[] column = scenarios(columns[k]);
+            double held = values[k];
+            for (int m = 0; m < scenarioCount; m++) {
+                scratch[m] += held * column[m];
+            }
+        }
+        out[1] = scenarioCount == 0 ? 0 : Math.max(0, -select(scratch, scenarioCount, tail(scenarioCount, confidence)));
+    }
+    
+    // Correlation of the returns of the given columns, row-major; symbols
+    // that did not move correlate with nothing but themselves
+    double[] correlation(int[] of, ForkJoinPool pool) {
+        int n = of.length;
+        double[] matrix = new double[n * n];
+        pool.invoke(new RangeTask(0, n, COLUMNS_PER_TASK, (from, to) -> {
+            for (int i = from; i < to; i++) {
+                matrix[i * n + i] = 1;
+                int a = of[i];
+                for (int j = i + 1; j < n; j++) {
+                    int b = of[j];
+                    double correlation = 0;
+                    if (deviations[a] > 0 && deviations[b] > 0) {
+                        double sum = 0;
+                        int baseA = a * observations;
+                        int baseB = b * observations;
+                        for (int t = 0; t < observations; t++) {
+                            sum += (returns[baseA + t] - means[a]) * (returns[baseB + t] - means[b]);
+                        }
+                        correlation = sum / (observations - 1) / (deviations[a] * deviations[b]);
+                    }
+                    matrix[i * n + j] = correlation;
+                    matrix[j * n + i] = correlation;
+                }
+            }
+        }));
+        return matrix;
+    }
+    
+    // Index of the loss quantile at confidence among n outcomes sorted ascending
+    private static int tail(int n, double confidence) {
+        return Math.min(n - 1, (int) ((1 - confidence) * n));
+    }
+    
+    // Rearranges values[0..n) so values[k] is the k-th smallest, and returns it
+    private static double select(double[] values, int n, int k) {
+        int lo = 0;
+        int hi = n - 1;
+        while (lo < hi) {
+            double pivot = values[(lo + hi) >>> 1];
+            int i = lo;
+            int j = hi;
+            while (i <= j) {
+                while (values[i] < pivot) {
+                    i++;
+                }
+                while (values[j] > pivot) {
+                    j--;
+                }
+                if (i <= j) {
+                    double swap = values[i];
+                    values[i] = values[j];
+                    values[j] = swap;
+                    i++;
+                    j--;
+                }
+            }
+            if (k <= j) {
+                hi = j;
+            } else if (k >= i) {
+                lo = i;
+            } else {
+                break;
+            }
+        }
+        return values[k];
+    }
+    
+    // Column of a symbol id, or -1 if the symbol is outside the universe
+    int columnOf(int symbolId) {
+        return symbolId >= 0 && symbolId < columnOf.length ? columnOf[symbolId] : -1;
+    }
+    
+    int scratchSize() {
+        return Math.max(observations, scenarioCount);
+    }
+    
+    // Getters
+    public long getWindowEnd() { return windowEnd; }
+    public int getObservations() { return observations; }
+    public int getScenarioCount() { return scenarioCount; }
+    public int getColumnCount() { return symbolIds.length; }
+    public int getHistoryColumns() { return historyColumns; }
+    public int getSymbolId(int column) { return symbolIds[column]; }
+    public long getPriceCents(int column) { return prices[column]; }
+    public double getVolatility(int column) { return deviations[column]; }
+    
+    // Runs a body over [from, to) in ranges of at most grain, splitting in halves
+    static final class RangeTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        
+        interface Body {
+            void run(int from, int to);
+        }
+        
+        private final int from;
+        private final int to;
+        private final int grain;
+        private final Body body;
+        
+        RangeTask(int from, int to, int grain, Body body) {
+            this.from = from;
+            this.to = to;
+            this.grain = grain;
+            this.body = body;
+        }
+        
+        @Override
+        protected void compute() {
+            if (to - from <= grain) {
+                body.run(from, to);
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new RangeTask(from, middle, grain, body), new RangeTask(middle, to, grain, body));
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package com.codealpha.trading;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+class Stock {
+    private String symbol;
+    private String name;
+    private int symbolId;
+    private volatile Quote quote;
+    
+    public Stock(String symbol, String name, BigDecimal initialPrice) {
+        this.symbol = symbol;
+        this.name = name;
+        this.symbolId = SymbolTable.idOf(symbol);
+        long price = Money.of(initialPrice);
+        this.quote = new Quote(price, price, LocalDateTime.now());
+    }
+    
+    // Called only from the tick engine or a replay, with a price already
+    // computed by the price model; readers see either the old or the new quote
+    Quote setPrice(long price, LocalDateTime timestamp) {
+        Quote updated = new Quote(price, quote.getPriceCents(), timestamp);
+        quote = updated;
+        return updated;
+    }
+    
+    public BigDecimal getPriceChange() {
+        return quote.getPriceChange();
+    }
+    
+    public BigDecimal getPriceChangePercentage() {
+        return quote.getPriceChangePercentage();
+    }
+    
+    // Getters
+    public String getSymbol() { return symbol; }
+    public String getName() { return name; }
+    public int getSymbolId() { return symbolId; }
+    public Quote getQuote() { return quote; }
+    public BigDecimal getCurrentPrice() { return quote.getPrice(); }
+    public BigDecimal getPreviousPrice() { return quote.getPreviousPrice(); }
+    public long getCurrentPriceCents() { return quote.getPriceCents(); }
+    public long getPreviousPriceCents() { return quote.getPreviousPriceCents(); }
+    public LocalDateTime getLastUpdated() { return quote.getLastUpdated(); }
+}
@@ -0,0 +1,8 @@
+package com.codealpha.trading;
+
+// Trading logic driven by a backtest. Called once per tick after the
+// portfolio has been marked to the snapshot; trades go through
+// Backtest.Account.buy/sell at the snapshot's prices.
+interface Strategy {
+    void onTick(MarketSnapshot market, Backtest.Account account);
+}
@@ -0,0 +1,53 @@
+package com.codealpha.trading;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Interns ticker symbols to small, dense int ids for the lifetime of the process.
+// Ids are not stable across runs, so persisted data always stores the symbol text.
+final class SymbolTable {
+    private static final ConcurrentHashMap<String, Integer> ids = new ConcurrentHashMap<>();
+    private static volatile String[] symbols = new String[64];
+    private static int count;
+    
+    private SymbolTable() {}
+    
+    static int idOf(String symbol) {
+        Integer id = ids.get(symbol);
+        return id != null ? id : intern(symbol);
+    }
+    
+    // Lookup without interning, so unknown user input does not grow the table
+    static int find(String symbol) {
+        Integer id = ids.get(symbol);
+        return id != null ? id : -1;
+    }
+    
+    static String symbolOf(int id) {
+        return symbols[id];
+    }
+    
+    static int size() {
+        synchronized (SymbolTable.class) {
+            return count;
+        }
+    }
+    
+    private static synchronized int intern(String symbol) {
+        Integer existing = ids.get(symbol);
+        if (existing != null) {
+            return existing;
+        }
+        int id = count;
+        String[] table = symbols;
+        if (id == table.length) {
+            table = Arrays.copyOf(table, table.length * 2);
+        }
+        table[id] = symbol;
+        // Publish the name before the id becomes visible to lock-free readers
+        symbols = table;
+        count++;
+        ids.put(symbol, id);
+        return id;
+    }
+}
@@ -0,0 +1,65 @@
+package com.codealpha.trading;
+
+import java.util.Arrays;
+
+// Running long totals keyed by symbol id, in dense parallel arrays with an
+// open-addressing index like PositionBook. Entries are never removed.
+final class SymbolTotals {
+    private int[] symbolIds = new int[4];
+    private long[] totals = new long[4];
+    private int size;
+    private int[] index = new int[8]; // slot + 1, or 0 when empty
+    
+    void add(int symbolId, long amount) {
+        int mask = index.length - 1;
+        int h = mix(symbolId) & mask;
+        for (int entry = index[h]; entry != 0; h = (h + 1) & mask, entry = index[h]) {
+            if (symbolIds[entry - 1] == symbolId) {
+                totals[entry - 1] += amount;
+                return;
+            }
+        }
+        if (size == symbolIds.length) {
+            grow();
+            add(symbolId, amount);
+            return;
+        }
+        symbolIds[size] = symbolId;
+        totals[size] = amount;
+        index[h] = ++size;
+    }
+    
+    long get(int symbolId) {
+        int mask = index.length - 1;
+        for (int h = mix(symbolId) & mask; index[h] != 0; h = (h + 1) & mask) {
+            if (symbolIds[index[h] - 1] == symbolId) {
+                return totals[index[h] - 1];
+            }
+        }
+        return 0;
+    }
+    
+    int size() { return size; }
+    int symbolIdAt(int slot) { return symbolIds[slot]; }
+    long totalAt(int slot) { return totals[slot]; }
+    
+    private void grow() {
+        int capacity = symbolIds.length * 2;
+        symbolIds = Arrays.copyOf(symbolIds, capacity);
+        totals = Arrays.copyOf(totals, capacity);
+        index = new int[capacity * 2];
+        int mask = index.length - 1;
+        for (int slot = 0; slot < size; slot++) {
+            int h = mix(symbolIds[slot]) & mask;
+            while (index[h] != 0) {
+                h = (h + 1) & mask;
+            }
+            index[h] = slot + 1;
+        }
+    }
+    
+    private static int mix(int symbolId) {
+        int h = symbolId * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
@@ -0,0 +1,64 @@
+package com.codealpha.trading;
+
+import java.time.LocalDateTime;
+import java.util.SplittableRandom;
+
+// Seeded ticks from a price model, uniform -5%..+5% like the live default
+// unless another model is given. The same seed and model always yield the
+// same ticks, at fixed intervals from a fixed start time, whatever the
+// thread or machine.
+final class SyntheticTickSource implements TickSource {
+    private final String[] symbols;
+    private final double[] prices; // whole cents
+    private final double[] scratch;
+    private final PriceModel model;
+    private final SplittableRandom random;
+    private final int ticks;
+    private final long intervalNanos;
+    private long time;
+    private int emitted;
+    
+    SyntheticTickSource(String[] symbols, long[] startPrices, long seed, int ticks,
+                        LocalDateTime start, long intervalNanos) {
+        this(symbols, startPrices, seed, ticks, start, intervalNanos, new UniformPriceModel());
+    }
+    
+    SyntheticTickSource(String[] symbols, long[] startPrices, long seed, int ticks,
+                        LocalDateTime start, long intervalNanos, PriceModel model) {
+        this.symbols = symbols;
+        this.prices = new double[startPrices.length];
+        for (int i = 0; i < prices.length; i++) {
+            prices[i] = startPrices[i];
+        }
+        this.scratch = new double[prices.length];
+        this.model = model;
+        this.random = new SplittableRandom(seed);
+        model.init(prices);
+        this.ticks = ticks;
+        this.intervalNanos = intervalNanos;
+        this.time = TransactionLedger.toTime(start);
+    }
+    
+    @Override
+    public String[] getSymbols() {
+        return symbols;
+    }
+    
+    @Override
+    public long next(long[] out) {
+        if (emitted == ticks) {
+            return END;
+        }
+        // The first tick is the start prices, so a backtest opens at them
+        if (emitted > 0) {
+            model.beginTick(random);
+            model.step(prices, 0, prices.length, random, scratch);
+            time += intervalNanos;
+        }
+        for (int i = 0; i < prices.length; i++) {
+            out[i] = (long) prices[i];
+        }
+        emitted++;
+        return time;
+    }
+}
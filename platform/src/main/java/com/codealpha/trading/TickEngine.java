@@ -0,0 +1,118 @@
+package com.codealpha.trading;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+// Drives price updates for the whole universe. Prices live in one array in
+// universe order that the price model steps in place. Symbols are split into
+// contiguous partitions, each with its own SplittableRandom and scratch
+// array, and the partitions of one tick run in parallel on a fork-join pool.
+class TickEngine {
+    private final Stock[] universe;
+    private final PriceModel model;
+    private final double[] prices; // whole cents, universe order
+    private final SplittableRandom tickRandom; // shocks shared by the whole tick
+    private final List<Callable<Void>> partitions = new ArrayList<>();
+    private final ForkJoinPool pool;
+    private final TickMetrics metrics = new TickMetrics();
+    private Quote[] quotes;
+    private LocalDateTime tickTime;
+    private ScheduledExecutorService scheduler;
+    
+    TickEngine(Stock[] universe, int parallelism, long seed, PriceModel model) {
+        this.universe = universe;
+        this.model = model;
+        this.pool = new ForkJoinPool(parallelism);
+        prices = new double[universe.length];
+        for (int i = 0; i < universe.length; i++) {
+            prices[i] = universe[i].getCurrentPriceCents();
+        }
+        model.init(prices);
+        SplittableRandom root = new SplittableRandom(seed);
+        tickRandom = root.split();
+        // A few partitions per worker so uneven partitions still balance out
+        int partitionCount = Math.max(1, Math.min(universe.length, parallelism * 4));
+        for (int p = 0; p < partitionCount; p++) {
+            int from = (int) ((long) universe.length * p / partitionCount);
+            int to = (int) ((long) universe.length * (p + 1) / partitionCount);
+            SplittableRandom random = root.split();
+            double[] scratch = new double[to - from];
+            partitions.add(() -> {
+                model.step(prices, from, to, random, scratch);
+                Quote[] target = quotes;
+                LocalDateTime timestamp = tickTime;
+                for (int i = from; i < to; i++) {
+                    target[i] = universe[i].setPrice((long) prices[i], timestamp);
+                }
+                return null;
+            });
+        }
+    }
+    
+    // Runs one tick over every symbol and returns the new quotes in universe order
+    synchronized Quote[] tick() {
+        long start = System.nanoTime();
+        quotes = new Quote[universe.length];
+        tickTime = LocalDateTime.now();
+        model.beginTick(tickRandom);
+        for (Future<Void> result : pool.invokeAll(partitions)) {
+            try {
+                result.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted during price tick", e);
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("Price tick failed", e.getCause());
+            }
+        }
+        metrics.recordTick(System.nanoTime() - start);
+        return quotes;
+    }
+    
+    synchronized void start(long intervalMillis, Consumer<Quote[]> publisher) {
+        stop();
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "price-ticks");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long intervalNanos = TimeUnit.MILLISECONDS.toNanos(intervalMillis);
+        long firstTick = System.nanoTime();
+        long[] tickNumber = new long[1];
+        scheduler.scheduleAtFixedRate(() -> {
+            long due = firstTick + tickNumber[0]++ * intervalNanos;
+            metrics.recordLag(Math.max(0, System.nanoTime() - due));
+            try {
+                publisher.accept(tick());
+            } catch (RuntimeException e) {
+                System.err.println("Error updating prices: " + e.getMessage());
+            }
+        }, 0, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+    
+    synchronized void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+    }
+    
+    void shutdown() {
+        stop();
+        pool.shutdownNow();
+    }
+    
+    TickMetrics getMetrics() {
+        return metrics;
+    }
+}
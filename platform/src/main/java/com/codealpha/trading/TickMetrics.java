@@ -0,0 +1,50 @@
+package com.codealpha.trading;
+
+import java.util.concurrent.TimeUnit;
+
+// Tick duration and scheduling lag; written by the tick thread, read by anyone
+class TickMetrics {
+    private volatile long ticks;
+    private volatile long lastDurationNanos;
+    private volatile long maxDurationNanos;
+    private volatile long totalDurationNanos;
+    private volatile long lastLagNanos;
+    private volatile long maxLagNanos;
+    
+    synchronized void recordTick(long durationNanos) {
+        ticks++;
+        lastDurationNanos = durationNanos;
+        totalDurationNanos += durationNanos;
+        maxDurationNanos = Math.max(maxDurationNanos, durationNanos);
+        Metrics.TICK.record(durationNanos);
+    }
+    
+    synchronized void recordLag(long lagNanos) {
+        lastLagNanos = lagNanos;
+        maxLagNanos = Math.max(maxLagNanos, lagNanos);
+        Metrics.TICK_LAG.record(lagNanos);
+    }
+    
+    public long getAverageDurationNanos() {
+        long count = ticks;
+        return count == 0 ? 0 : totalDurationNanos / count;
+    }
+    
+    @Override
+    public String toString() {
+        return String.format("ticks=%d last=%.3fms avg=%.3fms max=%.3fms lag=%.3fms maxLag=%.3fms",
+                ticks, millis(lastDurationNanos), millis(getAverageDurationNanos()),
+                millis(maxDurationNanos), millis(lastLagNanos), millis(maxLagNanos));
+    }
+    
+    private static double millis(long nanos) {
+        return nanos / (double) TimeUnit.MILLISECONDS.toNanos(1);
+    }
+    
+    // Getters
+    public long getTicks() { return ticks; }
+    public long getLastDurationNanos() { return lastDurationNanos; }
+    public long getMaxDurationNanos() { return maxDurationNanos; }
+    public long getLastLagNanos() { return lastLagNanos; }
+    public long getMaxLagNanos() { return maxLagNanos; }
+}
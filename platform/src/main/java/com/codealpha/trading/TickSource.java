@@ -0,0 +1,14 @@
+package com.codealpha.trading;
+
+// A finite stream of whole-universe ticks for backtests, read one tick at a
+// time into a caller-owned array. Sources are single-use and not thread-safe.
+interface TickSource {
+    // Symbols in column order
+    String[] getSymbols();
+    
+    // Fills prices (cents, column order) with the next tick and returns its
+    // time in TickStore nanos, or END once the stream is exhausted
+    long next(long[] prices);
+    
+    long END = Long.MIN_VALUE;
+}
@@ -0,0 +1,498 @@
+package com.codealpha.trading;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.stream.Stream;
+
+// Price history in memory-mapped segment files. Every tick prices the whole
+// universe at one timestamp, so a segment holds a fixed number of ticks for
+// all symbols, laid out symbol-major: the tick times, then for each symbol a
+// price column and a volume column. A range query for one symbol binary
+// searches the time column and reads its two columns straight from the
+// mapping; appending a tick writes into the current mapping and allocates
+// nothing. Each run starts a new segment with its own symbol list, so the
+// universe may change between runs.
+//
+// Segments follow one another in time, so a scan binary searches for the
+// first segment that reaches its start. Segments whose ticks are all older
+// than RETENTION_DAYS, or the oldest past MAX_SEGMENTS, are deleted when a
+// segment is added; their mappings are released once no scan or replay
+// still holds them.
+//
+// Ticks are appended by a single thread (the tick thread). A segment's count
+// is published after its columns are written, so readers never see a
+// partial tick.
+final class TickStore {
+    private static final int MAGIC = 0x5449434B; // "TICK"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 32; // magic, version, symbols, capacity, count
+    private static final int COUNT_OFFSET = 16;
+    private static final long SEGMENT_BYTES = 64L << 20;
+    private static final int MIN_TICKS_PER_SEGMENT = 16;
+    private static final int MAX_TICKS_PER_SEGMENT = 1 << 16;
+    private static final long RETENTION_DAYS = Long.getLong("trading.tickRetentionDays", 30); // 0 keeps all
+    private static final int MAX_SEGMENTS = Integer.getInteger("trading.tickMaxSegments", 256); // 0 for no cap
+    
+    private final Path directory;
+    private volatile Segment[] segments = new Segment[0]; // oldest first; replaced, never changed in place
+    private volatile boolean timeOrdered = true; // no segment starts before the one ahead of it ends
+    private final AtomicLongArray pendingVolume; // shares traded since the last tick, by symbol id
+    private int nextSegment;
+    private Segment current;
+    
+    private TickStore(Path directory, int symbolIds) {
+        this.directory = directory;
+        this.pendingVolume = new AtomicLongArray(symbolIds);
+    }
+    
+    // Opens the store, mapping existing segments read-only. Volume is tracked
+    // for symbol ids interned so far, which covers the whole universe.
+    static TickStore open(Path directory) throws IOException {
+        Files.createDirectories(directory);
+        TickStore store = new TickStore(directory, SymbolTable.size());
+        List<Path> files = new ArrayList<>();
+        try (Stream<Path> listing = Files.list(directory)) {
+            listing.filter(path -> path.getFileName().toString().endsWith(".ticks")).forEach(files::add);
+        }
+        files.sort(null);
+        for (Path file : files) {
+            Segment segment = Segment.open(file);
+            if (segment != null) {
+                store.add(segment);
+            }
+            store.nextSegment = Math.max(store.nextSegment, segmentNumber(file) + 1);
+        }
+        store.expire(toTime(LocalDateTime.now()));
+        return store;
+    }
+    
+    // Snapshot listener: stores one tick for every symbol
+    void append(MarketSnapshot snapshot) {
+        if (snapshot.size() == 0) {
+            return;
+        }
+        try {
+            if (current == null || current.count == current.capacity || current.symbols != snapshot.size()) {
+                current = createSegment(snapshot);
+                add(current);
+                expire(toTime(LocalDateTime.now()));
+            }
+        } catch (IOException e) {
+            System.err.println("Error writing ticks: " + e.getMessage());
+            return;
+        }
+        Segment segment = current;
+        MappedByteBuffer map = segment.map;
+        int tick = segment.count;
+        long time = toTime(snapshot.getQuote(0).getLastUpdated());
+        if (tick == 0) {
+            checkOrder(segment, time);
+        }
+        map.putLong(HEADER_SIZE + tick * 8, time);
+        for (int column = 0; column < segment.symbols; column++) {
+            int symbolId = snapshot.getStock(column).getSymbolId();
+            long volume = symbolId < pendingVolume.length() ? pendingVolume.getAndSet(symbolId, 0) : 0;
+            map.putLong(segment.priceOffset(column, tick), snapshot.getQuote(column).getPriceCents());
+            map.putLong(segment.volumeOffset(column, tick), volume);
+        }
+        map.putInt(COUNT_OFFSET, tick + 1);
+        segment.count = tick + 1;
+    }
+    
+    // Fill listener: counts shares toward the volume of the next tick. Volume is
+    // shares filled by platform accounts, so a match between two users counts twice.
+    void recordTrade(int symbolId, int quantity) {
+        if (symbolId < pendingVolume.length()) {
+            pendingVolume.getAndAdd(symbolId, quantity);
+        }
+    }
+    
+    // Visits the ticks of one symbol with from <= time < to, oldest first,
+    // and returns how many were visited
+    int scan(int symbolId, LocalDateTime from, LocalDateTime to, TickVisitor visitor) {
+        return scan(symbolId, toTime(from), toTime(to), visitor);
+    }
+    
+    // As above, with times on the store's clock (see toTime)
+    int scan(int symbolId, long fromTime, long untilTime, TickVisitor visitor) {
+        Segment[] all = segments;
+        boolean ordered = timeOrdered;
+        int visited = 0;
+        for (int i = ordered ? firstReaching(all, fromTime) : 0; i < all.length; i++) {
+            Segment segment = all[i];
+            int column = segment.columnOf(symbolId);
+            int count = segment.count;
+            if (count > 0 && segment.timeAt(0) >= untilTime && ordered) {
+                break;
+            }
+            if (column < 0 || count == 0 || segment.timeAt(0) >= untilTime
+                    || segment.timeAt(count - 1) < fromTime) {
+                continue;
+            }
+            int end = segment.lowerBound(untilTime, count);
+            for (int tick = segment.lowerBound(fromTime, count); tick < end; tick++) {
+                visitor.visit(segment.timeAt(tick), segment.map.getLong(segment.priceOffset(column, tick)),
+                              segment.map.getLong(segment.volumeOffset(column, tick)));
+                visited++;
+            }
+        }
+        return visited;
+    }
+    
+    // Rolls the ticks of one symbol with from <= time < to into bars, oldest first.
+    // Bars without ticks are left out.
+    List<Bar> bars(int symbolId, LocalDateTime from, LocalDateTime to, BarSize size) {
+        List<Bar> bars = new ArrayList<>();
+        long width = size.getNanos();
+        long[] bar = new long[6]; // start, open, high, low, close, volume
+        boolean[] open = new boolean[1];
+        scan(symbolId, from, to, (time, price, volume) -> {
+            long start = Math.floorDiv(time, width) * width;
+            if (open[0] && start != bar[0]) {
+                bars.add(toBar(bar));
+                open[0] = false;
+            }
+            if (!open[0]) {
+                bar[0] = start;
+                bar[1] = price;
+                bar[2] = price;
+                bar[3] = price;
+                bar[5] = 0;
+                open[0] = true;
+            }
+            bar[2] = Math.max(bar[2], price);
+            bar[3] = Math.min(bar[3], price);
+            bar[4] = price;
+            bar[5] += volume;
+        });
+        if (open[0]) {
+            bars.add(toBar(bar));
+        }
+        return bars;
+    }
+    
+    // Replays stored ticks with from <= time < to as a backtest source. Only
+    // segments that price every requested symbol are replayed.
+    TickSource replay(String[] symbols, LocalDateTime from, LocalDateTime to) {
+        Segment[] all = segments;
+        long fromTime = toTime(from);
+        int first = timeOrdered ? firstReaching(all, fromTime) : 0;
+        return new Replay(Arrays.asList(all).subList(first, all.length), symbols, fromTime, toTime(to));
+    }
+    
+    interface TickVisitor {
+        void visit(long time, long price, long volume);
+    }
+    
+    int getSegmentCount() {
+        return segments.length;
+    }
+    
+    void close() {
+        for (Segment segment : segments) {
+            if (!segment.map.isReadOnly()) {
+                segment.map.force();
+            }
+        }
+    }
+    
+    // Appender thread only, as is expire()
+    private void add(Segment segment) {
+        Segment[] all = segments;
+        if (segment.count > 0) {
+            checkOrder(segment, segment.timeAt(0));
+        }
+        all = Arrays.copyOf(all, all.length + 1);
+        all[all.length - 1] = segment;
+        segments = all;
+    }
+    
+    // Called with the first tick of a segment, before it is published
+    private void checkOrder(Segment segment, long firstTime) {
+        for (int i = segments.length - 1; i >= 0; i--) {
+            Segment previous = segments[i];
+            int count = previous.count;
+            if (previous != segment && count > 0) {
+                if (firstTime < previous.timeAt(count - 1)) {
+                    timeOrdered = false; // clock stepped back; scans fall back to visiting every segment
+                }
+                return;
+            }
+        }
+    }
+    
+    // Drops segments with every tick older than the retention period, and the
+    // oldest past MAX_SEGMENTS, along with finished segments that have no
+    // ticks; the current segment is kept
+    private void expire(long now) {
+        Segment[] all = segments;
+        long oldest = RETENTION_DAYS > 0 ? now - TimeUnit.DAYS.toNanos(RETENTION_DAYS) : Long.MIN_VALUE;
+        int dropped = 0;
+        while (dropped < all.length && all[dropped] != current) {
+            Segment segment = all[dropped];
+            int count = segment.count;
+            boolean overCap = MAX_SEGMENTS > 0 && all.length - dropped > MAX_SEGMENTS;
+            if (!overCap && count > 0 && segment.timeAt(count - 1) >= oldest) {
+                break;
+            }
+            dropped++;
+        }
+        if (dropped == 0) {
+            return;
+        }
+        segments = Arrays.copyOfRange(all, dropped, all.length);
+        for (int i = 0; i < dropped; i++) {
+            try {
+                Files.deleteIfExists(all[i].file);
+                Files.deleteIfExists(symbolsFile(all[i].file));
+            } catch (IOException e) {
+                System.err.println("Error deleting ticks: " + e.getMessage());
+            }
+        }
+    }
+    
+    // Index of the first segment whose last tick is at or after time; segments
+    // are in time order, and empty ones count as reaching any time
+    private static int firstReaching(Segment[] all, long time) {
+        int low = 0;
+        int high = all.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            int count = all[mid].count;
+            if (count > 0 && all[mid].timeAt(count - 1) < time) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+    
+    private Segment createSegment(MarketSnapshot snapshot) throws IOException {
+        int symbols = snapshot.size();
+        int capacity = (int) Math.max(MIN_TICKS_PER_SEGMENT,
+                Math.min(MAX_TICKS_PER_SEGMENT, SEGMENT_BYTES / (symbols * 16L)));
+        Path file = directory.resolve(String.format("segment-%06d.ticks", nextSegment++));
+        
+        // The symbol list goes first so a segment file never exists without one
+        String[] columns = new String[symbols];
+        for (int i = 0; i < symbols; i++) {
+            columns[i] = snapshot.getStock(i).getSymbol();
+        }
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                Files.newOutputStream(symbolsFile(file))))) {
+            out.writeInt(symbols);
+            for (String symbol : columns) {
+                out.writeUTF(symbol);
+            }
+        }
+        
+        long size = HEADER_SIZE + capacity * 8L + (long) symbols * capacity * 16L;
+        if (size > Integer.MAX_VALUE) {
+            throw new IOException("Universe of " + symbols + " symbols is too large for a tick segment");
+        }
+        MappedByteBuffer map;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            map = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        }
+        map.order(ByteOrder.nativeOrder());
+        map.putInt(0, MAGIC).putInt(4, VERSION).putInt(8, symbols).putInt(12, capacity).putInt(COUNT_OFFSET, 0);
+        return new Segment(file, map, symbols, capacity, 0, columns);
+    }
+    
+    private static Path symbolsFile(Path segmentFile) {
+        String name = segmentFile.getFileName().toString();
+        return segmentFile.resolveSibling(name.substring(0, name.length() - ".ticks".length()) + ".symbols");
+    }
+    
+    private static int segmentNumber(Path segmentFile) {
+        String name = segmentFile.getFileName().toString();
+        try {
+            return Integer.parseInt(name.substring("segment-".length(), name.length() - ".ticks".length()));
+        } catch (RuntimeException e) {
+            return -1;
+        }
+    }
+    
+    private static Bar toBar(long[] bar) {
+        return new Bar(toTimestamp(bar[0]), bar[1], bar[2], bar[3], bar[4], bar[5]);
+    }
+    
+    // Same clock as TransactionLedger: epoch nanos of the local timestamp read as UTC
+    private static long toTime(LocalDateTime timestamp) {
+        return TransactionLedger.toTime(timestamp);
+    }
+    
+    private static LocalDateTime toTimestamp(long time) {
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(time, 1_000_000_000L),
+                                           (int) Math.floorMod(time, 1_000_000_000L), ZoneOffset.UTC);
+    }
+    
+    private static final class Replay implements TickSource {
+        private final List<Segment> segments;
+        private final String[] symbols;
+        private final int[] symbolIds;
+        private final int[] columns;
+        private final long fromTime;
+        private final long untilTime;
+        private int segmentIndex = -1;
+        private Segment segment;
+        private int tick;
+        private int end;
+        
+        Replay(List<Segment> segments, String[] symbols, long fromTime, long untilTime) {
+            this.segments = segments;
+            this.symbols = symbols;
+            this.symbolIds = new int[symbols.length];
+            for (int i = 0; i < symbols.length; i++) {
+                symbolIds[i] = SymbolTable.idOf(symbols[i]);
+            }
+            this.columns = new int[symbols.length];
+            this.fromTime = fromTime;
+            this.untilTime = untilTime;
+        }
+        
+        @Override
+        public String[] getSymbols() {
+            return symbols;
+        }
+        
+        @Override
+        public long next(long[] prices) {
+            while (tick == end) {
+                if (!advance()) {
+                    return END;
+                }
+            }
+            for (int i = 0; i < columns.length; i++) {
+                prices[i] = segment.map.getLong(segment.priceOffset(columns[i], tick));
+            }
+            return segment.timeAt(tick++);
+        }
+        
+        // Moves to the next segment holding every symbol, positioned at fromTime
+        private boolean advance() {
+            while (++segmentIndex < segments.size()) {
+                Segment candidate = segments.get(segmentIndex);
+                boolean complete = true;
+                for (int i = 0; i < symbolIds.length && complete; i++) {
+                    columns[i] = candidate.columnOf(symbolIds[i]);
+                    complete = columns[i] >= 0;
+                }
+                if (complete) {
+                    int count = candidate.count;
+                    segment = candidate;
+                    tick = candidate.lowerBound(fromTime, count);
+                    end = candidate.lowerBound(untilTime, count);
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+    
+    private static final class Segment {
+        final Path file;
+        final MappedByteBuffer map;
+        final int symbols;
+        final int capacity;
+        volatile int count;
+        private final int[] columnBySymbolId; // -1 for symbols not in this segment
+        
+        Segment(Path file, MappedByteBuffer map, int symbols, int capacity, int count, String[] columns) {
+            this.file = file;
+            this.map = map;
+            this.symbols = symbols;
+            this.capacity = capacity;
+            this.count = count;
+            int[] ids = new int[columns.length];
+            int maxId = -1;
+            for (int i = 0; i < columns.length; i++) {
+                ids[i] = SymbolTable.idOf(columns[i]);
+                maxId = Math.max(maxId, ids[i]);
+            }
+            columnBySymbolId = new int[maxId + 1];
+            Arrays.fill(columnBySymbolId, -1);
+            for (int i = 0; i < ids.length; i++) {
+                columnBySymbolId[ids[i]] = i;
+            }
+        }
+        
+        // Maps a finished segment read-only; returns null if it is unreadable
+        static Segment open(Path file) throws IOException {
+            Path symbolsFile = symbolsFile(file);
+            if (!Files.exists(symbolsFile)) {
+                return null;
+            }
+            MappedByteBuffer map;
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                if (channel.size() < HEADER_SIZE) {
+                    return null;
+                }
+                map = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            }
+            map.order(ByteOrder.nativeOrder());
+            if (map.getInt(0) != MAGIC || map.getInt(4) != VERSION) {
+                System.err.println("Error loading ticks: unrecognized segment " + file.getFileName());
+                return null;
+            }
+            String[] columns;
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+                    Files.newInputStream(symbolsFile)))) {
+                columns = new String[in.readInt()];
+                for (int i = 0; i < columns.length; i++) {
+                    columns[i] = in.readUTF();
+                }
+            }
+            return new Segment(file, map, map.getInt(8), map.getInt(12), map.getInt(COUNT_OFFSET), columns);
+        }
+        
+        int columnOf(int symbolId) {
+            return symbolId >= 0 && symbolId < columnBySymbolId.length ? columnBySymbolId[symbolId] : -1;
+        }
+        
+        long timeAt(int tick) {
+            return map.getLong(HEADER_SIZE + tick * 8);
+        }
+        
+        // Segments stay under 2 GB, so offsets fit an int
+        int priceOffset(int column, int tick) {
+            return HEADER_SIZE + capacity * 8 + (column * 2 * capacity + tick) * 8;
+        }
+        
+        int volumeOffset(int column, int tick) {
+            return priceOffset(column, tick) + capacity * 8;
+        }
+        
+        int lowerBound(long time, int count) {
+            int low = 0;
+            int high = count;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (timeAt(mid) < time) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+    }
+}
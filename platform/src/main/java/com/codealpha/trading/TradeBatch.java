@@ -0,0 +1,275 @@
+package com.codealpha.trading;
+
+import java.io.BufferedReader;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+// A batch of market orders filled against the simulated market at the prices
+// of one snapshot. Orders are kept column by column and grouped by account
+// with a counting sort. Each account's orders are then checked in batch order
+// against a running balance of cash and shares and applied together under
+// the portfolio's lock: all of them fill, or none do. Checks use available
+// cash and shares, so orders resting in the matching engine can still settle,
+// but batch orders do not cross those resting orders.
+//
+// CSV rows are username,symbol,side,quantity, or symbol,side,quantity when
+// the whole batch is for one account. A header row and blank lines are
+// skipped. The binary form is "TBAT", a version, a count and then per order
+// the username and symbol (writeUTF), a side byte (0 buy, 1 sell) and an int
+// quantity.
+final class TradeBatch {
+    enum Status {
+        PENDING, FILLED, MALFORMED, UNKNOWN_ACCOUNT, UNKNOWN_SYMBOL, INSUFFICIENT_FUNDS, INSUFFICIENT_SHARES,
+        ACCOUNT_REJECTED // another order for the same account was rejected
+    }
+    
+    private static final int MAGIC = 0x54424154; // "TBAT"
+    private static final int VERSION = 1;
+    
+    private int size;
+    private String[] usernames = new String[16];
+    private String[] symbols = new String[16];
+    private boolean[] buys = new boolean[16];
+    private int[] quantities = new int[16];
+    private Status[] statuses = new Status[16];
+    private long[] prices; // cents, set by execute
+    private int filled;
+    private long elapsedNanos;
+    
+    void add(String username, String symbol, Transaction.Type side, int quantity) {
+        add(username, symbol, side == Transaction.Type.BUY, quantity, Status.PENDING);
+    }
+    
+    private void add(String username, String symbol, boolean buy, int quantity, Status status) {
+        if (size == usernames.length) {
+            int capacity = size * 2;
+            usernames = Arrays.copyOf(usernames, capacity);
+            symbols = Arrays.copyOf(symbols, capacity);
+            buys = Arrays.copyOf(buys, capacity);
+            quantities = Arrays.copyOf(quantities, capacity);
+            statuses = Arrays.copyOf(statuses, capacity);
+        }
+        usernames[size] = username;
+        symbols[size] = symbol;
+        buys[size] = buy;
+        quantities[size] = quantity;
+        statuses[size] = status;
+        size++;
+    }
+    
+    // account is the username every row is for, or null if rows name their own
+    static TradeBatch readCsv(BufferedReader in, String account) throws IOException {
+        TradeBatch batch = new TradeBatch();
+        int columns = account == null ? 4 : 3;
+        boolean first = true;
+        for (String line; (line = in.readLine()) != null; ) {
+            line = line.trim();
+            if (line.isEmpty()) {
+                continue;
+            }
+            String[] fields = line.split(",", -1);
+            if (first && fields.length == columns && !fields[columns - 1].trim().matches("-?\\d+")) {
+                first = false;
+                continue; // header
+            }
+            first = false;
+            String username = account != null ? account : fields[0].trim();
+            if (fields.length != columns) {
+                batch.add(username, "", true, 0, Status.MALFORMED);
+                continue;
+            }
+            String symbol = fields[columns - 3].trim().toUpperCase();
+            String side = fields[columns - 2].trim();
+            int quantity;
+            try {
+                quantity = Integer.parseInt(fields[columns - 1].trim());
+            } catch (NumberFormatException e) {
+                quantity = 0;
+            }
+            boolean buy = side.equalsIgnoreCase("buy");
+            boolean valid = quantity > 0 && (buy || side.equalsIgnoreCase("sell"));
+            batch.add(username, symbol, buy, quantity, valid ? Status.PENDING : Status.MALFORMED);
+        }
+        return batch;
+    }
+    
+    static TradeBatch readBinary(DataInput in) throws IOException {
+        if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+            throw new IOException("Not a trade batch");
+        }
+        int count = in.readInt();
+        if (count < 0) {
+            throw new IOException("Bad trade batch count: " + count);
+        }
+        TradeBatch batch = new TradeBatch();
+        for (int i = 0; i < count; i++) {
+            String username = in.readUTF();
+            String symbol = in.readUTF();
+            byte side = in.readByte();
+            int quantity = in.readInt();
+            boolean valid = quantity > 0 && (side == 0 || side == 1);
+            batch.add(username, symbol, side == 0, quantity, valid ? Status.PENDING : Status.MALFORMED);
+        }
+        return batch;
+    }
+    
+    void writeBinary(DataOutput out) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeInt(size);
+        for (int i = 0; i < size; i++) {
+            out.writeUTF(usernames[i]);
+            out.writeUTF(symbols[i]);
+            out.writeByte(buys[i] ? 0 : 1);
+            out.writeInt(quantities[i]);
+        }
+    }
+    
+    // Fills the batch at the prices in market, passing each execution to the
+    // listener under the portfolio's lock; returns the number of orders filled
+    int execute(AccountStore accounts, MarketSnapshot market, MatchingEngine.FillListener listener) {
+        long start = System.nanoTime();
+        prices = new long[size];
+        int[] symbolIds = new int[size];
+        
+        // Resolve every order and give each account a dense index. Accounts are
+        // only looked up here; each is pinned while its own orders execute, so
+        // a batch over many accounts stays within the store's cache budget.
+        Map<String, Integer> accountIndex = new HashMap<>();
+        String[] accountNames = new String[16];
+        int[] accountOf = new int[size];
+        int[] accountSizes = new int[16];
+        for (int i = 0; i < size; i++) {
+            accountOf[i] = -1;
+            Integer index = accountIndex.get(usernames[i]);
+            if (index == null) {
+                if (!accounts.containsUsername(usernames[i])) {
+                    statuses[i] = Status.UNKNOWN_ACCOUNT;
+                    continue;
+                }
+                index = accountIndex.size();
+                accountIndex.put(usernames[i], index);
+                if (index == accountNames.length) {
+                    accountNames = Arrays.copyOf(accountNames, index * 2);
+                    accountSizes = Arrays.copyOf(accountSizes, index * 2);
+                }
+                accountNames[index] = usernames[i];
+            }
+            accountOf[i] = index;
+            accountSizes[index]++;
+            int symbolId = SymbolTable.find(symbols[i]);
+            Quote quote = symbolId < 0 ? null : market.getQuoteBySymbolId(symbolId);
+            if (quote == null && statuses[i] == Status.PENDING) {
+                statuses[i] = Status.UNKNOWN_SYMBOL;
+            }
+            symbolIds[i] = symbolId;
+            prices[i] = quote == null ? 0 : quote.getPriceCents();
+        }
+        
+        // Counting sort into per-account runs, keeping batch order within each
+        int accountCount = accountIndex.size();
+        int[] runStart = new int[accountCount + 1];
+        for (int a = 0; a < accountCount; a++) {
+            runStart[a + 1] = runStart[a] + accountSizes[a];
+        }
+        int[] next = Arrays.copyOf(runStart, accountCount);
+        int[] ordered = new int[runStart[accountCount]];
+        for (int i = 0; i < size; i++) {
+            if (accountOf[i] >= 0) {
+                ordered[next[accountOf[i]]++] = i;
+            }
+        }
+        
+        int[] shareChange = new int[SymbolTable.size()]; // per account, cleared after each
+        filled = 0;
+        for (int a = 0; a < accountCount; a++) {
+            User user = accounts.acquire(accountNames[a]);
+            if (user == null) {
+                for (int k = runStart[a]; k < runStart[a + 1]; k++) {
+                    statuses[ordered[k]] = Status.UNKNOWN_ACCOUNT;
+                }
+                continue;
+            }
+            try {
+                filled += executeAccount(user.getPortfolio(), ordered, runStart[a], runStart[a + 1],
+                                         symbolIds, shareChange, listener);
+            } finally {
+                accounts.release(user);
+            }
+        }
+        elapsedNanos = System.nanoTime() - start;
+        Metrics.BATCH_EXECUTE.record(elapsedNanos);
+        return filled;
+    }
+    
+    private int executeAccount(Portfolio portfolio, int[] ordered, int from, int to, int[] symbolIds,
+                               int[] shareChange, MatchingEngine.FillListener listener) {
+        synchronized (portfolio) {
+            int rejected = -1;
+            long cash = portfolio.getAvailableCashCents();
+            for (int k = from; k < to && rejected < 0; k++) {
+                int i = ordered[k];
+                if (statuses[i] != Status.PENDING) {
+                    rejected = i;
+                    break;
+                }
+                int symbolId = symbolIds[i];
+                long amount = Money.times(prices[i], quantities[i]);
+                if (buys[i]) {
+                    cash -= amount;
+                    shareChange[symbolId] += quantities[i];
+                    if (cash < 0) {
+                        statuses[i] = Status.INSUFFICIENT_FUNDS;
+                        rejected = i;
+                    }
+                } else {
+                    if (portfolio.getAvailableShares(symbolId) + shareChange[symbolId] < quantities[i]) {
+                        statuses[i] = Status.INSUFFICIENT_SHARES;
+                        rejected = i;
+                    }
+                    cash += amount;
+                    shareChange[symbolId] -= quantities[i];
+                }
+            }
+            for (int k = from; k < to; k++) {
+                int symbolId = symbolIds[ordered[k]];
+                if (symbolId >= 0) {
+                    shareChange[symbolId] = 0;
+                }
+            }
+            if (rejected >= 0) {
+                for (int k = from; k < to; k++) {
+                    if (statuses[ordered[k]] == Status.PENDING) {
+                        statuses[ordered[k]] = Status.ACCOUNT_REJECTED;
+                    }
+                }
+                return 0;
+            }
+            for (int k = from; k < to; k++) {
+                int i = ordered[k];
+                Transaction transaction = buys[i]
+                        ? portfolio.executeBuy(symbolIds[i], quantities[i], prices[i])
+                        : portfolio.executeSell(symbolIds[i], quantities[i], prices[i]);
+                statuses[i] = Status.FILLED;
+                listener.onFill(portfolio, transaction);
+            }
+            return to - from;
+        }
+    }
+    
+    double getOrdersPerSecond() {
+        return elapsedNanos == 0 ? 0 : size * 1e9 / elapsedNanos;
+    }
+    
+    // Getters
+    public int size() { return size; }
+    public int getFilled() { return filled; }
+    public long getElapsedNanos() { return elapsedNanos; }
+    public Status getStatus(int index) { return statuses[index]; }
+    public String getUsername(int index) { return usernames[index]; }
+    public String getSymbol(int index) { return symbols[index]; }
+}
@@ -0,0 +1,414 @@
+package com.codealpha.trading;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.zip.CRC32;
+
+// Append-only log of trades. Appends are buffered and a background writer
+// flushes them in groups with a single fsync per group: whatever accumulates
+// while one fsync is in flight goes out together in the next.
+//
+// The header carries the last sequence number issued when the file was
+// written, so numbering carries on past records that compaction dropped:
+// snapshots keep the sequence of the last record they include, and a
+// reused number would hide later trades from replay.
+class TradeJournal {
+    private static final int MAGIC = 0x544A524E; // "TJRN"
+    private static final int VERSION = 4;
+    private static final int HEADER_SIZE = 16; // magic, version, base sequence
+    private static final int RECORD_HEADER_SIZE = 8; // length + crc
+    private static final int MAX_RECORD_BYTES = 64 * 1024;
+    
+    private final Path path;
+    private final Object lock = new Object();
+    private FileChannel channel;
+    private ByteArrayOutputStream pending = new ByteArrayOutputStream();
+    private ByteArrayOutputStream spare = new ByteArrayOutputStream();
+    private final ByteArrayOutputStream recordBuffer = new ByteArrayOutputStream();
+    private final DataOutputStream recordOut = new DataOutputStream(recordBuffer);
+    private final CRC32 crc = new CRC32();
+    private long lastSeq;
+    private long pendingSeq;
+    private long durableSeq;
+    private long recordsSinceCompaction;
+    private boolean flushing;
+    private int commitHolds; // while positive the writer lets appends accumulate
+    private boolean closed;
+    private IOException failure;
+    private final List<DurableWaiter> waiters = new ArrayList<>();
+    private final Thread writer;
+    
+    interface RecordConsumer {
+        void accept(long seq, String userId, Transaction transaction);
+    }
+    
+    private TradeJournal(Path path, FileChannel channel, long lastSeq, long recordCount) {
+        this.path = path;
+        this.channel = channel;
+        this.lastSeq = lastSeq;
+        this.durableSeq = lastSeq;
+        this.recordsSinceCompaction = recordCount;
+        this.writer = new Thread(this::writeLoop, "trade-journal-writer");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+    
+    // Opens the journal, dropping any torn record left at the tail by a crash
+    public static TradeJournal open(Path path) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        long[] scan = new long[3]; // valid length, last seq, record count
+        if (channel.size() < HEADER_SIZE) {
+            writeHeader(channel, 0);
+            scan[0] = HEADER_SIZE;
+        } else {
+            scan(path, null, 0, scan);
+        }
+        if (channel.size() > scan[0]) {
+            System.err.println("Trade journal: discarding " + (channel.size() - scan[0])
+                    + " bytes of incomplete data");
+            channel.truncate(scan[0]);
+        }
+        channel.position(scan[0]);
+        return new TradeJournal(path, channel, scan[1], scan[2]);
+    }
+    
+    // Feeds every record after the given sequence number to the consumer
+    public void replay(long afterSeq, RecordConsumer consumer) throws IOException {
+        synchronized (lock) {
+            flushPendingLocked();
+            scan(path, consumer, afterSeq, new long[3]);
+        }
+    }
+    
+    public long append(String userId, Transaction transaction) {
+        synchronized (lock) {
+            if (closed) {
+                throw new IllegalStateException("Trade journal is closed");
+            }
+            long seq = ++lastSeq;
+            recordBuffer.reset();
+            try {
+                recordOut.writeLong(seq);
+                recordOut.writeUTF(userId);
+                transaction.writeTo(recordOut);
+            } catch (IOException e) {
+                throw new IllegalStateException(e); // in-memory stream
+            }
+            byte[] record = recordBuffer.toByteArray();
+            crc.reset();
+            crc.update(record);
+            writeInt(pending, record.length);
+            writeInt(pending, (int) crc.getValue());
+            pending.write(record, 0, record.length);
+            pendingSeq = seq;
+            recordsSinceCompaction++;
+            lock.notifyAll();
+            return seq;
+        }
+    }
+    
+    // Holds back the background writer until releaseCommits(), so that records
+    // appended in between, such as a whole trade batch, go out in one write
+    // and fsync. Appends from other threads join the same commit.
+    public void holdCommits() {
+        synchronized (lock) {
+            commitHolds++;
+        }
+    }
+    
+    public void releaseCommits() {
+        synchronized (lock) {
+            commitHolds--;
+            lock.notifyAll();
+        }
+    }
+    
+    // Blocks until the record with the given sequence number has been fsynced
+    public boolean awaitDurable(long seq) {
+        synchronized (lock) {
+            while (durableSeq < seq && failure == null) {
+                try {
+                    lock.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+            }
+            if (failure != null) {
+                System.err.println("Error writing trade journal: " + failure.getMessage());
+                return false;
+            }
+            return true;
+        }
+    }
+    
+    // Completes with true once the record with the given sequence number has
+    // been fsynced, or false if the journal failed; for callers that cannot
+    // block. Completion runs on the writer thread, so dependents must be quick.
+    public CompletableFuture<Boolean> whenDurable(long seq) {
+        CompletableFuture<Boolean> result = new CompletableFuture<>();
+        boolean durable;
+        synchronized (lock) {
+            if (failure == null && durableSeq < seq) {
+                waiters.add(new DurableWaiter(seq, result));
+                return result;
+            }
+            durable = failure == null;
+        }
+        result.complete(durable);
+        return result;
+    }
+    
+    // Drops records already covered by a snapshot taken at the given sequence number
+    public void compact(long snapshotSeq) throws IOException {
+        synchronized (lock) {
+            flushPendingLocked();
+            Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+            try (FileChannel out = FileChannel.open(tmp, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                writeHeader(out, lastSeq);
+                long[] kept = new long[1];
+                scanRaw(path, snapshotSeq, (seq, record) -> {
+                    out.write(ByteBuffer.wrap(record));
+                    kept[0]++;
+                });
+                out.force(true);
+                recordsSinceCompaction = kept[0];
+            }
+            channel.close();
+            Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            channel.position(channel.size());
+        }
+    }
+    
+    public void close() {
+        synchronized (lock) {
+            if (closed) {
+                return;
+            }
+            try {
+                flushPendingLocked();
+            } catch (IOException e) {
+                System.err.println("Error writing trade journal: " + e.getMessage());
+            }
+            closed = true;
+            lock.notifyAll();
+        }
+        try {
+            writer.join();
+            channel.close();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            System.err.println("Error closing trade journal: " + e.getMessage());
+        }
+    }
+    
+    public long getLastSeq() {
+        synchronized (lock) {
+            return lastSeq;
+        }
+    }
+    
+    public long getRecordsSinceCompaction() {
+        synchronized (lock) {
+            return recordsSinceCompaction;
+        }
+    }
+    
+    private void writeLoop() {
+        while (true) {
+            ByteArrayOutputStream batch;
+            long batchSeq;
+            long batchRecords;
+            synchronized (lock) {
+                try {
+                    while ((pending.size() == 0 || commitHolds > 0) && !closed) {
+                        lock.wait();
+                    }
+                    if (pending.size() == 0) {
+                        return;
+                    }
+                } catch (InterruptedException e) {
+                    return;
+                }
+                batch = pending;
+                pending = spare;
+                spare = batch;
+                batchSeq = pendingSeq;
+                batchRecords = pendingSeq - durableSeq;
+                flushing = true;
+            }
+            IOException error = null;
+            long start = Metrics.start();
+            try {
+                channel.write(ByteBuffer.wrap(batch.toByteArray()));
+                channel.force(false);
+                Metrics.JOURNAL_FSYNC.recordSince(start);
+                Metrics.JOURNAL_BATCH.record(batchRecords);
+            } catch (IOException e) {
+                error = e;
+            }
+            List<DurableWaiter> ready;
+            boolean durable;
+            synchronized (lock) {
+                batch.reset();
+                flushing = false;
+                if (error != null) {
+                    failure = error;
+                } else {
+                    durableSeq = batchSeq;
+                }
+                lock.notifyAll();
+                ready = takeReadyWaitersLocked();
+                durable = failure == null;
+            }
+            completeWaiters(ready, durable);
+        }
+    }
+    
+    // Caller holds the lock; removes the waiters the durable sequence (or a failure) has settled
+    private List<DurableWaiter> takeReadyWaitersLocked() {
+        List<DurableWaiter> ready = new ArrayList<>();
+        for (int i = waiters.size() - 1; i >= 0; i--) {
+            DurableWaiter waiter = waiters.get(i);
+            if (failure != null || waiter.seq <= durableSeq) {
+                ready.add(waiter);
+                waiters.set(i, waiters.get(waiters.size() - 1));
+                waiters.remove(waiters.size() - 1);
+            }
+        }
+        return ready;
+    }
+    
+    private static void completeWaiters(List<DurableWaiter> ready, boolean durable) {
+        for (DurableWaiter waiter : ready) {
+            waiter.future.complete(durable);
+        }
+    }
+    
+    // Caller holds the lock; writes and fsyncs everything appended so far
+    private void flushPendingLocked() throws IOException {
+        while (flushing) {
+            try {
+                lock.wait();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while flushing trade journal");
+            }
+        }
+        if (pending.size() > 0) {
+            channel.write(ByteBuffer.wrap(pending.toByteArray()));
+            channel.force(false);
+            pending.reset();
+            durableSeq = pendingSeq;
+            lock.notifyAll();
+            completeWaiters(takeReadyWaitersLocked(), true);
+        }
+    }
+    
+    private static final class DurableWaiter {
+        final long seq;
+        final CompletableFuture<Boolean> future;
+        
+        DurableWaiter(long seq, CompletableFuture<Boolean> future) {
+            this.seq = seq;
+            this.future = future;
+        }
+    }
+    
+    private interface RecordVisitor {
+        void visit(long seq, byte[] record) throws IOException;
+    }
+    
+    // Sets result to the length of the intact prefix, the last sequence number
+    // issued and the number of records
+    private static void scan(Path path, RecordConsumer consumer,
+                             long afterSeq, long[] result) throws IOException {
+        result[0] = HEADER_SIZE;
+        result[1] = 0;
+        result[2] = 0;
+        long baseSeq = scanRaw(path, Long.MIN_VALUE, (seq, record) -> {
+            result[0] += record.length;
+            result[1] = seq;
+            result[2]++;
+            if (consumer != null && seq > afterSeq) {
+                DataInputStream in = new DataInputStream(new ByteArrayInputStream(
+                        record, RECORD_HEADER_SIZE, record.length - RECORD_HEADER_SIZE));
+                in.readLong();
+                String userId = in.readUTF();
+                consumer.accept(seq, userId, Transaction.readFrom(in));
+            }
+        });
+        result[1] = Math.max(result[1], baseSeq);
+    }
+    
+    // Visits each intact record (including its length/crc header) in file order;
+    // returns the base sequence from the file header
+    private static long scanRaw(Path path, long afterSeq, RecordVisitor visitor) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                throw new IOException("Not a trade journal: " + path);
+            }
+            long baseSeq = in.readLong();
+            CRC32 checksum = new CRC32();
+            while (true) {
+                int length;
+                int expectedCrc;
+                byte[] record;
+                try {
+                    length = in.readInt();
+                    expectedCrc = in.readInt();
+                    if (length < Long.BYTES || length > MAX_RECORD_BYTES) {
+                        return baseSeq;
+                    }
+                    record = new byte[RECORD_HEADER_SIZE + length];
+                    in.readFully(record, RECORD_HEADER_SIZE, length);
+                } catch (EOFException e) {
+                    return baseSeq;
+                }
+                checksum.reset();
+                checksum.update(record, RECORD_HEADER_SIZE, length);
+                if ((int) checksum.getValue() != expectedCrc) {
+                    return baseSeq;
+                }
+                ByteBuffer header = ByteBuffer.wrap(record);
+                header.putInt(length).putInt(expectedCrc);
+                long seq = header.getLong();
+                if (seq > afterSeq) {
+                    visitor.visit(seq, record);
+                }
+            }
+        }
+    }
+    
+    private static void writeHeader(FileChannel channel, long baseSeq) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).putInt(MAGIC).putInt(VERSION).putLong(baseSeq);
+        header.flip();
+        channel.write(header);
+        channel.force(true);
+    }
+    
+    private static void writeInt(ByteArrayOutputStream out, int value) {
+        out.write(value >>> 24);
+        out.write(value >>> 16);
+        out.write(value >>> 8);
+        out.write(value);
+    }
+}
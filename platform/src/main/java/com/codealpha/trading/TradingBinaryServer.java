@@ -0,0 +1,346 @@
+package com.codealpha.trading;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+// Compact binary protocol for the hot quote and order paths, served by one
+// NIO event-loop thread. Each frame is a 4-byte big-endian length followed by
+// a type byte and its fields; strings are a 2-byte length and UTF-8 bytes.
+// A connection is one session: LOGIN binds it to a user.
+//
+//   LOGIN    username                                        -> LOGIN_OK  status
+//   SYMBOLS                                                  -> SYMBOLS   count, (symbolId, symbol)*
+//   QUOTES   count, symbolId* (0 for all)                    -> QUOTES    count, (symbolId, price, previous)*
+//   ORDER    request, symbolId, side, quantity, limit (0 = market)
+//                                                            -> ORDER_ACK request, orderId, status, filled, averagePrice
+//   CANCEL   request, orderId                                -> CANCEL_ACK request, cancelled
+//
+// Request frames are at most MAX_FRAME_BYTES. Prices are long cents. Orders
+// are matched and made durable off the event loop; their acknowledgements are
+// queued back to it, so a connection may have many orders in flight and acks
+// can arrive out of order.
+final class TradingBinaryServer {
+    static final byte LOGIN = 1;
+    static final byte SYMBOLS = 2;
+    static final byte QUOTES = 3;
+    static final byte ORDER = 4;
+    static final byte CANCEL = 5;
+    static final byte LOGIN_OK = (byte) 0x81;
+    static final byte SYMBOLS_REPLY = (byte) 0x82;
+    static final byte QUOTES_REPLY = (byte) 0x83;
+    static final byte ORDER_ACK = (byte) 0x84;
+    static final byte CANCEL_ACK = (byte) 0x85;
+    static final byte ERROR = (byte) 0xFF;
+    static final int MAX_FRAME_BYTES = 64 * 1024;
+    private static final int ACCEPT_BACKLOG = 1024;
+    
+    private final TradingPlatform platform;
+    private final Selector selector;
+    private final ServerSocketChannel server;
+    private final Thread eventLoop;
+    // Connections with replies queued from other threads
+    private final Queue<Connection> pendingWrites = new ConcurrentLinkedQueue<>();
+    private volatile boolean running = true;
+    
+    TradingBinaryServer(TradingPlatform platform, int port) throws IOException {
+        this.platform = platform;
+        this.selector = Selector.open();
+        this.server = ServerSocketChannel.open();
+        server.bind(new InetSocketAddress(port), ACCEPT_BACKLOG);
+        server.configureBlocking(false);
+        server.register(selector, SelectionKey.OP_ACCEPT);
+        this.eventLoop = new Thread(this::run, "binary-server");
+    }
+    
+    void start() {
+        eventLoop.start();
+    }
+    
+    void stop() {
+        running = false;
+        selector.wakeup();
+        try {
+            eventLoop.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+    
+    int getPort() {
+        return server.socket().getLocalPort();
+    }
+    
+    private void run() {
+        try {
+            while (running) {
+                selector.select();
+                for (Connection connection; (connection = pendingWrites.poll()) != null; ) {
+                    connection.flushOutbound();
+                }
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    if (!key.isValid()) {
+                        continue;
+                    }
+                    if (key.isAcceptable()) {
+                        accept();
+                    } else {
+                        Connection connection = (Connection) key.attachment();
+                        if (key.isReadable()) {
+                            connection.read();
+                        }
+                        if (key.isValid() && key.isWritable()) {
+                            connection.flushOutbound();
+                        }
+                    }
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Error in binary server: " + e.getMessage());
+        } finally {
+            for (SelectionKey key : selector.keys()) {
+                try {
+                    key.channel().close();
+                } catch (IOException e) {
+                    System.err.println("Error closing connection: " + e.getMessage());
+                }
+            }
+            try {
+                selector.close();
+            } catch (IOException e) {
+                System.err.println("Error closing binary server: " + e.getMessage());
+            }
+        }
+    }
+    
+    private void accept() throws IOException {
+        for (SocketChannel channel; (channel = server.accept()) != null; ) {
+            channel.configureBlocking(false);
+            channel.socket().setTcpNoDelay(true);
+            SelectionKey key = channel.register(selector, SelectionKey.OP_READ);
+            key.attach(new Connection(channel, key));
+        }
+    }
+    
+    private final class Connection {
+        private final SocketChannel channel;
+        private final SelectionKey key;
+        private final ByteBuffer inbound = ByteBuffer.allocate(MAX_FRAME_BYTES + Integer.BYTES);
+        // Written by the event loop, plus replies handed over through queued
+        private final Queue<ByteBuffer> outbound = new ArrayDeque<>();
+        private final Queue<ByteBuffer> queued = new ConcurrentLinkedQueue<>();
+        private User user;
+        
+        Connection(SocketChannel channel, SelectionKey key) {
+            this.channel = channel;
+            this.key = key;
+        }
+        
+        void read() {
+            try {
+                if (channel.read(inbound) < 0) {
+                    close();
+                    return;
+                }
+                inbound.flip();
+                while (inbound.remaining() >= Integer.BYTES) {
+                    int length = inbound.getInt(inbound.position());
+                    if (length < 1 || length > MAX_FRAME_BYTES) {
+                        close();
+                        return;
+                    }
+                    if (inbound.remaining() < Integer.BYTES + length) {
+                        break;
+                    }
+                    inbound.position(inbound.position() + Integer.BYTES);
+                    ByteBuffer frame = inbound.slice();
+                    frame.limit(length);
+                    inbound.position(inbound.position() + length);
+                    handle(frame);
+                }
+                inbound.compact();
+                flushOutbound();
+            } catch (IOException | RuntimeException e) {
+                close(); // malformed frame or broken connection
+            }
+        }
+        
+        private void handle(ByteBuffer frame) {
+            byte type = frame.get();
+            if (type == LOGIN) {
+                if (user != null) {
+                    platform.releaseUser(user);
+                }
+                user = platform.acquireUser(readString(frame));
+                send(frame(LOGIN_OK, 1).put((byte) (user == null ? 1 : 0)));
+            } else if (type == SYMBOLS) {
+                symbols();
+            } else if (type == QUOTES) {
+                quotes(frame);
+            } else if (type == ORDER) {
+                order(frame);
+            } else if (type == CANCEL) {
+                cancel(frame);
+            } else {
+                error(0, "Unknown message type " + type);
+            }
+        }
+        
+        private void symbols() {
+            MarketSnapshot market = platform.getSnapshot();
+            byte[][] names = new byte[market.size()][];
+            int size = Integer.BYTES;
+            for (int i = 0; i < names.length; i++) {
+                names[i] = market.getStock(i).getSymbol().getBytes(StandardCharsets.UTF_8);
+                size += Integer.BYTES + Short.BYTES + names[i].length;
+            }
+            ByteBuffer reply = frame(SYMBOLS_REPLY, size).putInt(names.length);
+            for (int i = 0; i < names.length; i++) {
+                reply.putInt(market.getStock(i).getSymbolId()).putShort((short) names[i].length).put(names[i]);
+            }
+            send(reply);
+        }
+        
+        private void quotes(ByteBuffer frame) {
+            MarketSnapshot market = platform.getSnapshot();
+            int count = frame.getInt();
+            if (count < 0 || count > frame.remaining() / Integer.BYTES) {
+                error(0, "Bad quote request");
+                return;
+            }
+            int replies = count == 0 ? market.size() : count;
+            ByteBuffer reply = frame(QUOTES_REPLY, Integer.BYTES + replies * (Integer.BYTES + 2 * Long.BYTES));
+            reply.putInt(replies);
+            for (int i = 0; i < replies; i++) {
+                int symbolId = count == 0 ? market.getStock(i).getSymbolId() : frame.getInt();
+                Quote quote = count == 0 ? market.getQuote(i) : market.getQuoteBySymbolId(symbolId);
+                // Unknown symbols come back with price 0
+                reply.putInt(symbolId)
+                     .putLong(quote == null ? 0 : quote.getPriceCents())
+                     .putLong(quote == null ? 0 : quote.getPreviousPriceCents());
+            }
+            send(reply);
+        }
+        
+        private void order(ByteBuffer frame) {
+            int request = frame.getInt();
+            int symbolId = frame.getInt();
+            byte side = frame.get();
+            int quantity = frame.getInt();
+            long limitPrice = frame.getLong();
+            if (user == null) {
+                error(request, "Not logged in");
+                return;
+            }
+            Stock stock = symbolId >= 0 && symbolId < SymbolTable.size()
+                    ? platform.findStock(SymbolTable.symbolOf(symbolId)) : null;
+            if (stock == null || (side != 0 && side != 1) || quantity <= 0 || limitPrice < 0) {
+                error(request, "Bad order");
+                return;
+            }
+            Order order = platform.submitOrder(user.getPortfolio(), stock,
+                                               side == 0 ? Transaction.Type.BUY : Transaction.Type.SELL,
+                                               quantity, limitPrice);
+            order.processed()
+                 .thenCompose(processed -> platform.tradesDurable())
+                 .whenComplete((durable, failure) -> {
+                     ByteBuffer ack = frame(ORDER_ACK, Integer.BYTES + Long.BYTES + 1 + Integer.BYTES + Long.BYTES);
+                     ack.putInt(request)
+                        .putLong(order.getOrderId())
+                        .put((byte) order.getStatus().ordinal())
+                        .putInt(order.getFilled())
+                        .putLong(Money.of(order.getAverageFillPrice()));
+                     sendLater(ack);
+                 });
+        }
+        
+        private void cancel(ByteBuffer frame) {
+            int request = frame.getInt();
+            long orderId = frame.getLong();
+            if (user == null) {
+                error(request, "Not logged in");
+                return;
+            }
+            platform.cancelOrder(user.getPortfolio(), orderId).whenComplete((cancelled, failure) ->
+                    sendLater(frame(CANCEL_ACK, Integer.BYTES + 1)
+                            .putInt(request).put((byte) (Boolean.TRUE.equals(cancelled) ? 1 : 0))));
+        }
+        
+        private void error(int request, String message) {
+            byte[] text = message.getBytes(StandardCharsets.UTF_8);
+            send(frame(ERROR, Integer.BYTES + Short.BYTES + text.length)
+                    .putInt(request).putShort((short) text.length).put(text));
+        }
+        
+        // Event loop only
+        private void send(ByteBuffer frame) {
+            outbound.add(frame.flip());
+        }
+        
+        // Any thread; the event loop picks the reply up on its next pass
+        private void sendLater(ByteBuffer frame) {
+            queued.add(frame.flip());
+            pendingWrites.add(this);
+            selector.wakeup();
+        }
+        
+        void flushOutbound() {
+            if (!key.isValid()) {
+                return;
+            }
+            for (ByteBuffer frame; (frame = queued.poll()) != null; ) {
+                outbound.add(frame);
+            }
+            try {
+                while (!outbound.isEmpty()) {
+                    ByteBuffer head = outbound.peek();
+                    channel.write(head);
+                    if (head.hasRemaining()) {
+                        break; // socket buffer full; wait for OP_WRITE
+                    }
+                    outbound.poll();
+                }
+                key.interestOps(outbound.isEmpty() ? SelectionKey.OP_READ
+                                                   : SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+            } catch (IOException e) {
+                close();
+            }
+        }
+        
+        private void close() {
+            if (user != null) {
+                platform.releaseUser(user);
+                user = null;
+            }
+            key.cancel();
+            try {
+                channel.close();
+            } catch (IOException e) {
+                System.err.println("Error closing connection: " + e.getMessage());
+            }
+        }
+    }
+    
+    private static ByteBuffer frame(byte type, int bodyBytes) {
+        ByteBuffer frame = ByteBuffer.allocate(Integer.BYTES + 1 + bodyBytes);
+        return frame.putInt(1 + bodyBytes).put(type);
+    }
+    
+    private static String readString(ByteBuffer frame) {
+        byte[] bytes = new byte[frame.getShort() & 0xFFFF];
+        frame.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
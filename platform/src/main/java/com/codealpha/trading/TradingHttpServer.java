@@ -0,0 +1,703 @@
+package com.codealpha.trading;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.security.SecureRandom;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+// JSON over HTTP for scripted clients and load tests. Idle keep-alive
+// connections cost only a selector key, so thousands of sessions can be open
+// at once; requests run on a fixed pool of worker threads, which may block on
+// order matching and the journal's group commit.
+//
+// Parameters come from the query string or a form-encoded body. A session
+// token from POST /login goes in an "Authorization: Bearer" header, and the
+// account stays resident in memory until POST /logout or until the session has
+// been idle for SESSION_IDLE_MILLIS. A user has at most one session: logging
+// in again returns the token already issued. Amounts are JSON numbers with two
+// decimals.
+//
+//   POST   /register   username, email, cash
+//   POST   /login      username                    -> token
+//   POST   /logout
+//   GET    /quotes     [symbols=A,B]
+//   GET    /portfolio
+//   GET    /orders
+//   POST   /orders     symbol, side=buy|sell, quantity, [limit]
+//   DELETE /orders     id
+//   POST   /orders/batch  CSV body of symbol,side,quantity rows -> per-order status
+//   GET    /history    [symbol] [date=yyyy-MM-dd] [offset] [limit]
+//   GET    /risk                                       -> VaR, volatility, beta, exposure, correlation
+//   GET    /risk/book                                  -> the same over every account
+//   GET    /metrics                                    -> Prometheus text
+final class TradingHttpServer {
+    private static final int MAX_BODY_BYTES = 64 * 1024;
+    private static final int MAX_BATCH_BYTES = 16 * 1024 * 1024;
+    private static final int MAX_HISTORY_ROWS = 1000;
+    private static final int ACCEPT_BACKLOG = 1024;
+    private static final long SESSION_IDLE_MILLIS = Long.getLong("trading.sessionIdleMillis", 15 * 60_000);
+    
+    static {
+        // The JDK server writes headers and body separately; with Nagle on,
+        // each small response waits out the client's delayed ACK (~40 ms)
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+    }
+    
+    private final TradingPlatform platform;
+    private final HttpServer server;
+    private final ExecutorService workers;
+    private final ScheduledExecutorService sweeper;
+    private final Map<String, Session> sessions = new ConcurrentHashMap<>();       // by token
+    private final Map<String, Session> sessionsByUser = new ConcurrentHashMap<>(); // by userId
+    private final SecureRandom random = new SecureRandom();
+    
+    TradingHttpServer(TradingPlatform platform, int port, int threads) throws IOException {
+        this.platform = platform;
+        this.server = HttpServer.create(new InetSocketAddress(port), ACCEPT_BACKLOG);
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.workers = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "http-" + threadNumber.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        });
+        server.setExecutor(workers);
+        server.createContext("/", this::handle);
+        this.sweeper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "http-sessions");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+    
+    void start() {
+        server.start();
+        long period = Math.min(Math.max(SESSION_IDLE_MILLIS / 4, 1000), 60_000);
+        sweeper.scheduleWithFixedDelay(this::expireIdleSessions, period, period, TimeUnit.MILLISECONDS);
+    }
+    
+    void stop() {
+        server.stop(0);
+        sweeper.shutdownNow();
+        workers.shutdown();
+    }
+    
+    // Ends sessions idle past SESSION_IDLE_MILLIS, which unpins their accounts
+    private void expireIdleSessions() {
+        long now = System.nanoTime();
+        for (Session session : sessions.values()) {
+            session.expireIfIdle(now);
+        }
+    }
+    
+    int getPort() {
+        return server.getAddress().getPort();
+    }
+    
+    private void handle(HttpExchange exchange) throws IOException {
+        long start = Metrics.start();
+        Response response;
+        try {
+            Map<String, String> parameters = parameters(exchange);
+            response = route(exchange.getRequestMethod(), exchange.getRequestURI().getPath(), parameters, exchange);
+        } catch (IllegalArgumentException e) {
+            response = Response.error(400, e.getMessage());
+        } catch (ArithmeticException e) {
+            // An amount or order value past what long cents hold
+            response = Response.error(400, "Amount out of range");
+        } catch (RuntimeException e) {
+            System.err.println("Error handling request: " + e.getMessage());
+            response = Response.error(500, "Internal error");
+        }
+        byte[] body = response.body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", response.contentType);
+        exchange.sendResponseHeaders(response.status, body.length == 0 ? -1 : body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+        Metrics.HTTP_REQUEST.recordSince(start);
+    }
+    
+    private Response route(String method, String path, Map<String, String> parameters, HttpExchange exchange) {
+        switch (path) {
+            case "/register":
+                return method.equals("POST") ? register(parameters) : Response.error(405, "Use POST");
+            case "/login":
+                return method.equals("POST") ? login(parameters) : Response.error(405, "Use POST");
+            case "/quotes":
+                return method.equals("GET") ? quotes(parameters) : Response.error(405, "Use GET");
+            case "/metrics":
+                return method.equals("GET") ? metrics() : Response.error(405, "Use GET");
+            case "/logout":
+            case "/portfolio":
+            case "/orders":
+            case "/orders/batch":
+            case "/history":
+            case "/risk":
+            case "/risk/book":
+                break;
+            default:
+                return Response.error(404, "Not found");
+        }
+        
+        String token = token(exchange);
+        Session session = token == null ? null : sessions.get(token);
+        if (session == null || !session.begin()) {
+            return Response.error(401, "Not logged in");
+        }
+        try {
+            return authenticated(method, path, session, parameters, exchange);
+        } finally {
+            session.finish();
+        }
+    }
+    
+    private Response authenticated(String method, String path, Session session, Map<String, String> parameters,
+                                   HttpExchange exchange) {
+        User user = session.user;
+        switch (method + " " + path) {
+            case "POST /logout":
+                session.end();
+                return new Response(204, "");
+            case "GET /portfolio":
+                return portfolio(user);
+            case "GET /orders":
+                return openOrders(user);
+            case "POST /orders":
+                return placeOrder(user, parameters);
+            case "DELETE /orders":
+                return cancelOrder(user, parameters);
+            case "POST /orders/batch":
+                return placeBatch(user, exchange);
+            case "GET /history":
+                return history(user, parameters);
+            case "GET /risk":
+                return risk(user);
+            case "GET /risk/book":
+                return bookRisk();
+            default:
+                return Response.error(405, "Method not allowed");
+        }
+    }
+    
+    private Response register(Map<String, String> parameters) {
+        String error = platform.registerUser(required(parameters, "username"),
+                                             parameters.getOrDefault("email", ""),
+                                             amount(required(parameters, "cash")));
+        if (error != null) {
+            return Response.error(409, error);
+        }
+        return new Response(201, "{\"registered\":true}");
+    }
+    
+    private Response login(Map<String, String> parameters) {
+        User user = platform.acquireUser(required(parameters, "username"));
+        if (user == null) {
+            return Response.error(404, "User not found");
+        }
+        Session[] created = new Session[1];
+        Session session = sessionsByUser.compute(user.getUserId(), (userId, open) -> {
+            if (open != null && open.touch()) {
+                return open;
+            }
+            created[0] = new Session(newToken(), user);
+            return created[0];
+        });
+        if (created[0] == null) {
+            platform.releaseUser(user); // the open session already holds a pin
+        } else {
+            sessions.put(session.token, session);
+        }
+        StringBuilder json = new StringBuilder("{\"token\":");
+        string(json, session.token).append(",\"userId\":");
+        string(json, user.getUserId()).append('}');
+        return new Response(200, json.toString());
+    }
+    
+    private String newToken() {
+        byte[] bytes = new byte[16];
+        random.nextBytes(bytes);
+        StringBuilder token = new StringBuilder(32);
+        for (byte b : bytes) {
+            token.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return token.toString();
+    }
+    
+    private Response quotes(Map<String, String> parameters) {
+        MarketSnapshot market = platform.getSnapshot();
+        StringBuilder json = new StringBuilder("{\"quotes\":[");
+        String symbols = parameters.get("symbols");
+        if (symbols == null || symbols.isEmpty()) {
+            for (int i = 0; i < market.size(); i++) {
+                quote(json, market.getStock(i).getSymbol(), market.getQuote(i));
+            }
+        } else {
+            for (String symbol : symbols.toUpperCase().split(",")) {
+                int symbolId = SymbolTable.find(symbol.trim());
+                Quote quote = symbolId < 0 ? null : market.getQuoteBySymbolId(symbolId);
+                if (quote == null) {
+                    return Response.error(404, "Stock not found: " + symbol.trim());
+                }
+                quote(json, symbol.trim(), quote);
+            }
+        }
+        return new Response(200, close(json, ']').append('}').toString());
+    }
+    
+    private Response metrics() {
+        StringBuilder text = new StringBuilder();
+        Metrics.writeText(text);
+        return new Response(200, text.toString(), "text/plain; version=0.0.4");
+    }
+    
+    private Response portfolio(User user) {
+        Portfolio portfolio = user.getPortfolio();
+        StringBuilder json = new StringBuilder("{\"cash\":");
+        cents(json, portfolio.getCashCents()).append(",\"value\":");
+        cents(json, portfolio.getPortfolioValueCents()).append(",\"unrealized\":");
+        cents(json, portfolio.getUnrealizedGainLossCents()).append(",\"lotMethod\":");
+        string(json, portfolio.getLotMethod().name()).append(",\"positions\":[");
+        portfolio.forEachPosition((symbolId, quantity, avgCost, mark) -> {
+            json.append("{\"symbol\":");
+            string(json, SymbolTable.symbolOf(symbolId)).append(",\"quantity\":").append(quantity)
+                    .append(",\"avgCost\":");
+            cents(json, avgCost).append(",\"price\":");
+            cents(json, mark).append(",\"value\":");
+            cents(json, Money.times(mark, quantity)).append("},");
+        });
+        return new Response(200, close(json, ']').append('}').toString());
+    }
+    
+    private Response openOrders(User user) {
+        StringBuilder json = new StringBuilder("{\"orders\":[");
+        for (Order order : platform.getOpenOrders(user.getPortfolio())) {
+            order(json, order).append(',');
+        }
+        return new Response(200, close(json, ']').append('}').toString());
+    }
+    
+    private Response placeOrder(User user, Map<String, String> parameters) {
+        Stock stock = platform.findStock(required(parameters, "symbol").toUpperCase());
+        if (stock == null) {
+            return Response.error(404, "Stock not found");
+        }
+        Transaction.Type side;
+        switch (required(parameters, "side").toLowerCase()) {
+            case "buy":
+                side = Transaction.Type.BUY;
+                break;
+            case "sell":
+                side = Transaction.Type.SELL;
+                break;
+            default:
+                throw new IllegalArgumentException("side must be buy or sell");
+        }
+        int quantity = integer(required(parameters, "quantity"));
+        String limit = parameters.get("limit");
+        long limitPrice = limit == null ? 0 : Money.of(amount(limit));
+        if (quantity <= 0 || limitPrice < 0 || (limit != null && limitPrice == 0)) {
+            throw new IllegalArgumentException("quantity and limit must be positive");
+        }
+        
+        Order order = platform.submitOrder(user.getPortfolio(), stock, side, quantity, limitPrice)
+                              .processed().join();
+        boolean durable = platform.tradesDurable().join();
+        if (order.getStatus() == Order.Status.REJECTED) {
+            return Response.error(409, side == Transaction.Type.BUY ? "Insufficient funds" : "Insufficient shares");
+        }
+        StringBuilder json = new StringBuilder();
+        order(json, order);
+        json.setLength(json.length() - 1);
+        json.append(",\"durable\":").append(durable).append('}');
+        return new Response(200, json.toString());
+    }
+    
+    private Response placeBatch(User user, HttpExchange exchange) {
+        TradeBatch batch;
+        try (BufferedReader in = new BufferedReader(new InputStreamReader(
+                new LimitedInputStream(exchange.getRequestBody(), MAX_BATCH_BYTES), StandardCharsets.UTF_8))) {
+            batch = TradeBatch.readCsv(in, user.getUsername());
+        } catch (IOException e) {
+            throw new IllegalArgumentException(e.getMessage());
+        }
+        boolean durable = platform.executeBatch(batch).join();
+        StringBuilder json = new StringBuilder("{\"orders\":").append(batch.size())
+                .append(",\"filled\":").append(batch.getFilled())
+                .append(",\"elapsedMicros\":").append(batch.getElapsedNanos() / 1000)
+                .append(",\"durable\":").append(durable)
+                .append(",\"statuses\":[");
+        for (int i = 0; i < batch.size(); i++) {
+            string(json, batch.getStatus(i).name()).append(',');
+        }
+        return new Response(200, close(json, ']').append('}').toString());
+    }
+    
+    private Response cancelOrder(User user, Map<String, String> parameters) {
+        long orderId;
+        try {
+            orderId = Long.parseLong(required(parameters, "id"));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("id must be a number");
+        }
+        boolean cancelled = platform.cancelOrder(user.getPortfolio(), orderId).join();
+        return new Response(cancelled ? 200 : 404, "{\"cancelled\":" + cancelled + "}");
+    }
+    
+    private Response history(User user, Map<String, String> parameters) {
+        TransactionLedger ledger = user.getPortfolio().getLedger();
+        String symbol = parameters.getOrDefault("symbol", "").toUpperCase();
+        String dateInput = parameters.getOrDefault("date", "");
+        LocalDate date = null;
+        if (!dateInput.isEmpty()) {
+            try {
+                date = LocalDate.parse(dateInput);
+            } catch (DateTimeParseException e) {
+                throw new IllegalArgumentException("date must be yyyy-MM-dd");
+            }
+        }
+        int offset = Math.max(0, integer(parameters.getOrDefault("offset", "0")));
+        int limit = Math.min(MAX_HISTORY_ROWS, Math.max(0, integer(parameters.getOrDefault("limit", "100"))));
+        
+        // Same filters as the console history view; null means the whole ledger in order
+        int[] rows = null;
+        if (!symbol.isEmpty()) {
+            int symbolId = SymbolTable.find(symbol);
+            if (symbolId < 0) {
+                rows = new int[0];
+            } else if (date != null) {
+                rows = ledger.ofSymbol(symbolId, date.atStartOfDay(), date.plusDays(1).atStartOfDay());
+            } else {
+                rows = ledger.ofSymbol(symbolId);
+            }
+        } else if (date != null) {
+            rows = ledger.between(date.atStartOfDay(), date.plusDays(1).atStartOfDay());
+        }
+        int count = rows == null ? ledger.size() : rows.length;
+        
+        StringBuilder json = new StringBuilder("{\"total\":").append(count).append(",\"transactions\":[");
+        for (int i = offset; i < count && i < offset + limit; i++) {
+            int index = rows == null ? i : rows[i];
+            json.append("{\"id\":").append(ledger.idAt(index)).append(",\"time\":");
+            string(json, ledger.timestampAt(index).toString()).append(",\"type\":");
+            string(json, ledger.typeAt(index).name()).append(",\"symbol\":");
+            string(json, SymbolTable.symbolOf(ledger.symbolIdAt(index))).append(",\"quantity\":")
+                    .append(ledger.quantityAt(index)).append(",\"price\":");
+            cents(json, ledger.priceAt(index));
+            if (ledger.typeAt(index) == Transaction.Type.SELL) {
+                json.append(",\"realizedPnl\":");
+                cents(json, ledger.realizedPnlAt(index)).append(",\"lotMethod\":");
+                string(json, ledger.lotMethodAt(index).name());
+            }
+            json.append("},");
+        }
+        return new Response(200, close(json, ']').append('}').toString());
+    }
+    
+    // Cached until the next step of the tick history
+    private Response risk(User user) {
+        RiskEngine.PortfolioRisk risk = platform.portfolioRisk(user.getPortfolio());
+        StringBuilder json = new StringBuilder("{\"confidence\":").append(RiskEngine.CONFIDENCE)
+                .append(",\"value\":");
+        cents(json, risk.getValueCents()).append(",\"historicalVar\":");
+        cents(json, risk.getHistoricalVarCents()).append(",\"monteCarloVar\":");
+        cents(json, risk.getMonteCarloVarCents()).append(",\"volatility\":").append(risk.getVolatility())
+                .append(",\"beta\":").append(risk.getBeta()).append(",\"exposure\":[");
+        for (int k = 0; k < risk.getSymbolCount(); k++) {
+            json.append("{\"symbol\":");
+            string(json, SymbolTable.symbolOf(risk.getSymbolId(k))).append(",\"value\":");
+            cents(json, risk.getExposureCents(k)).append("},");
+        }
+        close(json, ']').append(",\"correlation\":[");
+        for (int i = 0; i < risk.getSymbolCount(); i++) {
+            json.append('[');
+            for (int j = 0; j < risk.getSymbolCount(); j++) {
+                json.append(risk.getCorrelation(i, j)).append(',');
+            }
+            close(json, ']').append(',');
+        }
+        return new Response(200, close(json, ']').append('}').toString());
+    }
+    
+    // Totals only; accounts are not named
+    private Response bookRisk() {
+        RiskEngine.Book book = platform.bookRisk();
+        RiskModel model = book.getModel();
+        StringBuilder json = new StringBuilder("{\"confidence\":").append(RiskEngine.CONFIDENCE)
+                .append(",\"accounts\":").append(book.getCount()).append(",\"value\":");
+        cents(json, book.getValueCents()).append(",\"historicalVar\":");
+        cents(json, book.getBookHistoricalVarCents()).append(",\"monteCarloVar\":");
+        cents(json, book.getBookMonteCarloVarCents()).append(",\"accountHistoricalVar\":");
+        cents(json, book.getTotalHistoricalVarCents()).append(",\"accountMonteCarloVar\":");
+        cents(json, book.getTotalMonteCarloVarCents()).append(",\"volatility\":").append(book.getBookVolatility())
+                .append(",\"beta\":").append(book.getBookBeta())
+                .append(",\"elapsedMillis\":").append(book.getElapsedNanos() / 1_000_000).append(",\"exposure\":[");
+        for (int column = 0; column < model.getColumnCount(); column++) {
+            long exposure = book.getExposureCents(column);
+            if (exposure != 0) {
+                json.append("{\"symbol\":");
+                string(json, SymbolTable.symbolOf(model.getSymbolId(column))).append(",\"value\":");
+                cents(json, exposure).append("},");
+            }
+        }
+        return new Response(200, close(json, ']').append('}').toString());
+    }
+    
+    private static void quote(StringBuilder json, String symbol, Quote quote) {
+        json.append("{\"symbol\":");
+        string(json, symbol).append(",\"price\":");
+        cents(json, quote.getPriceCents()).append(",\"previous\":");
+        cents(json, quote.getPreviousPriceCents()).append(",\"time\":");
+        string(json, quote.getLastUpdated().toString()).append("},");
+    }
+    
+    private static StringBuilder order(StringBuilder json, Order order) {
+        json.append("{\"orderId\":").append(order.getOrderId()).append(",\"symbol\":");
+        string(json, order.getSymbol()).append(",\"side\":");
+        string(json, order.getSide().name()).append(",\"market\":").append(order.isMarket())
+                .append(",\"quantity\":").append(order.getQuantity())
+                .append(",\"filled\":").append(order.getFilled()).append(",\"limit\":");
+        cents(json, order.getLimitPriceCents()).append(",\"averagePrice\":");
+        cents(json, Money.of(order.getAverageFillPrice())).append(",\"status\":");
+        return string(json, order.getStatus().name()).append('}');
+    }
+    
+    // Replaces a trailing comma, if any, with the closing bracket
+    private static StringBuilder close(StringBuilder json, char bracket) {
+        if (json.charAt(json.length() - 1) == ',') {
+            json.setLength(json.length() - 1);
+        }
+        return json.append(bracket);
+    }
+    
+    private static StringBuilder cents(StringBuilder json, long cents) {
+        if (cents < 0) {
+            json.append('-');
+        }
+        long fraction = Math.abs(cents % Money.ONE);
+        return json.append(Math.abs(cents / Money.ONE)).append('.').append(fraction < 10 ? "0" : "").append(fraction);
+    }
+    
+    private static StringBuilder string(StringBuilder json, String value) {
+        json.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                json.append('\\').append(c);
+            } else if (c < 0x20) {
+                json.append(String.format("\\u%04x", (int) c));
+            } else {
+                json.append(c);
+            }
+        }
+        return json.append('"');
+    }
+    
+    private static String token(HttpExchange exchange) {
+        String header = exchange.getRequestHeaders().getFirst("Authorization");
+        return header != null && header.startsWith("Bearer ") ? header.substring(7).trim() : null;
+    }
+    
+    private static Map<String, String> parameters(HttpExchange exchange) throws IOException {
+        Map<String, String> parameters = new HashMap<>();
+        decode(exchange.getRequestURI().getRawQuery(), parameters);
+        String contentType = exchange.getRequestHeaders().getFirst("Content-Type");
+        // A batch body is CSV whatever the client labels it
+        boolean batch = exchange.getRequestURI().getPath().equals("/orders/batch");
+        if (!batch && contentType != null && contentType.startsWith("application/x-www-form-urlencoded")) {
+            ByteArrayOutputStream body = new ByteArrayOutputStream();
+            try (InputStream in = exchange.getRequestBody()) {
+                byte[] buffer = new byte[4096];
+                for (int n; (n = in.read(buffer)) > 0; ) {
+                    if (body.size() + n > MAX_BODY_BYTES) {
+                        throw new IllegalArgumentException("Request body too large");
+                    }
+                    body.write(buffer, 0, n);
+                }
+            }
+            decode(body.toString(StandardCharsets.UTF_8), parameters);
+        }
+        return parameters;
+    }
+    
+    private static void decode(String encoded, Map<String, String> parameters) {
+        if (encoded == null || encoded.isEmpty()) {
+            return;
+        }
+        for (String pair : encoded.split("&")) {
+            int split = pair.indexOf('=');
+            String name = split < 0 ? pair : pair.substring(0, split);
+            String value = split < 0 ? "" : pair.substring(split + 1);
+            parameters.put(URLDecoder.decode(name, StandardCharsets.UTF_8),
+                           URLDecoder.decode(value, StandardCharsets.UTF_8));
+        }
+    }
+    
+    private static String required(Map<String, String> parameters, String name) {
+        String value = parameters.get(name);
+        if (value == null || value.isEmpty()) {
+            throw new IllegalArgumentException("Missing parameter: " + name);
+        }
+        return value;
+    }
+    
+    private static int integer(String value) {
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Not a whole number: " + value);
+        }
+    }
+    
+    private static BigDecimal amount(String value) {
+        try {
+            return new BigDecimal(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Not an amount: " + value);
+        }
+    }
+    
+    // A logged-in account, pinned from login until the session ends. A request
+    // still running when its session ends keeps the pin; the last one out
+    // releases it.
+    private final class Session {
+        final String token;
+        final User user;
+        private int active;    // requests in flight
+        private boolean ended;
+        private long lastUsed; // System.nanoTime()
+        
+        Session(String token, User user) {
+            this.token = token;
+            this.user = user;
+            this.lastUsed = System.nanoTime();
+        }
+        
+        // False once the session has ended
+        synchronized boolean begin() {
+            if (ended) {
+                return false;
+            }
+            active++;
+            lastUsed = System.nanoTime();
+            return true;
+        }
+        
+        void finish() {
+            boolean release;
+            synchronized (this) {
+                lastUsed = System.nanoTime();
+                release = --active == 0 && ended;
+            }
+            if (release) {
+                platform.releaseUser(user);
+            }
+        }
+        
+        synchronized boolean touch() {
+            lastUsed = System.nanoTime();
+            return !ended;
+        }
+        
+        void expireIfIdle(long now) {
+            synchronized (this) {
+                if (ended || active > 0 || now - lastUsed < TimeUnit.MILLISECONDS.toNanos(SESSION_IDLE_MILLIS)) {
+                    return;
+                }
+                ended = true;
+            }
+            unregister(true);
+        }
+        
+        void end() {
+            boolean release;
+            synchronized (this) {
+                if (ended) {
+                    return;
+                }
+                ended = true;
+                release = active == 0;
+            }
+            unregister(release);
+        }
+        
+        private void unregister(boolean release) {
+            sessions.remove(token, this);
+            sessionsByUser.remove(user.getUserId(), this);
+            if (release) {
+                platform.releaseUser(user);
+            }
+        }
+    }
+    
+    // Fails the request once a body grows past its limit
+    private static final class LimitedInputStream extends FilterInputStream {
+        private long remaining;
+        
+        LimitedInputStream(InputStream in, long limit) {
+            super(in);
+            this.remaining = limit;
+        }
+        
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0 && --remaining < 0) {
+                throw new IOException("Request body too large");
+            }
+            return b;
+        }
+        
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int n = super.read(buffer, offset, length);
+            if (n > 0 && (remaining -= n) < 0) {
+                throw new IOException("Request body too large");
+            }
+            return n;
+        }
+    }
+    
+    private static final class Response {
+        final int status;
+        final String body;
+        final String contentType;
+        
+        Response(int status, String body) {
+            this(status, body, "application/json");
+        }
+        
+        Response(int status, String body, String contentType) {
+            this.status = status;
+            this.body = body;
+            this.contentType = contentType;
+        }
+        
+        static Response error(int status, String message) {
+            StringBuilder json = new StringBuilder("{\"error\":");
+            return new Response(status, string(json, message).append('}').toString());
+        }
+    }
+}
@@ -0,0 +1,1139 @@
+package com.codealpha.trading;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Scanner;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.text.DecimalFormat;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+
+public class TradingPlatform {
+    private static final long SNAPSHOT_INTERVAL = 1000; // journal records between snapshots
+    private static final int HISTORY_PAGE_SIZE = 20;
+    private static final int BATCH_REJECTS_SHOWN = 20;
+    private static final int CHART_BARS = 20;
+    private static final int QUOTE_BUS_CAPACITY = 1024; // snapshots
+    private static final int QUOTE_BUS_THREADS = 2;
+    // Cross-check running aggregates against a full ledger replay at startup and in the performance view
+    private static final boolean VERIFY_AGGREGATES = Boolean.getBoolean("trading.verifyAggregates");
+    private static final int MATCHING_SHARDS = Integer.getInteger("trading.matchingShards",
+            Runtime.getRuntime().availableProcessors());
+    // Headless mode serves the HTTP and binary APIs instead of the console
+    private static final boolean HEADLESS = Boolean.getBoolean("trading.headless");
+    private static final int HTTP_PORT = Integer.getInteger("trading.httpPort", 8080);
+    private static final int BINARY_PORT = Integer.getInteger("trading.binaryPort", 8081);
+    private static final int SERVER_THREADS = Integer.getInteger("trading.serverThreads", 64);
+    private static final int RISK_THREADS = Integer.getInteger("trading.riskThreads",
+            Runtime.getRuntime().availableProcessors());
+    private static final int RISK_CORRELATIONS_SHOWN = 8; // symbols
+    
+    private MarketData marketData;
+    private AccountStore users;
+    private TradeJournal journal;
+    private HolderIndex holderIndex;
+    private MatchingEngine engine;
+    private TickStore tickStore; // null if the tick history could not be opened
+    private QuoteBus quoteBus;
+    private RiskEngine risk;
+    private User currentUser;
+    private Scanner scanner;
+    private DecimalFormat currencyFormat;
+    private DateTimeFormatter dateFormat;
+    private ConsoleRenderer renderer;
+    private TradingHttpServer httpServer;
+    private TradingBinaryServer binaryServer;
+    // Snapshots requested by network trades run here, off the journal and request threads
+    private final ExecutorService snapshotter = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "snapshot-writer");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final AtomicBoolean snapshotPending = new AtomicBoolean();
+    
+    public TradingPlatform() {
+        marketData = new MarketData();
+        restorePortfolios();
+        attachPortfolios();
+        engine = new MatchingEngine(marketData, MATCHING_SHARDS, this::onFill);
+        marketData.addSnapshotListener(engine::onSnapshot);
+        quoteBus = new QuoteBus(QUOTE_BUS_CAPACITY, QUOTE_BUS_THREADS);
+        marketData.addSnapshotListener(quoteBus::publish);
+        try {
+            tickStore = FileManager.openTickStore();
+            marketData.addSnapshotListener(tickStore::append);
+        } catch (IOException e) {
+            System.err.println("Error opening tick history: " + e.getMessage());
+        }
+        risk = new RiskEngine(tickStore, marketData::getSnapshot, RISK_THREADS);
+        scanner = new Scanner(System.in);
+        currencyFormat = new DecimalFormat("$#,##0.00");
+        dateFormat = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+        renderer = new ConsoleRenderer(System.out);
+        Metrics.registerMBean();
+    }
+    
+    // Accounts are read in lazily; only those with journal records newer than
+    // their stored image are read in here, to replay them
+    private void restorePortfolios() {
+        try {
+            users = FileManager.openAccounts();
+        } catch (IOException e) {
+            System.err.println("Error opening accounts: " + e.getMessage());
+            System.exit(1);
+        }
+        try {
+            journal = FileManager.openJournal();
+            journal.replay(0, (seq, userId, transaction) -> {
+                User user = users.acquireById(userId);
+                if (user == null) {
+                    return;
+                }
+                Portfolio portfolio = user.getPortfolio();
+                if (seq > portfolio.getJournalSeq()) {
+                    portfolio.replay(seq, transaction);
+                }
+                users.release(user);
+            });
+        } catch (IOException e) {
+            System.err.println("Error opening trade journal: " + e.getMessage());
+            System.exit(1);
+        }
+        if (VERIFY_AGGREGATES) {
+            for (User user : users.resident()) {
+                String mismatch = user.getPortfolio().verifyAggregates();
+                if (mismatch != null) {
+                    System.err.println("Aggregate mismatch for " + user.getUsername() + ": " + mismatch);
+                }
+            }
+        }
+    }
+    
+    // Keeps every resident portfolio's cached value current as prices tick
+    private void attachPortfolios() {
+        holderIndex = new HolderIndex();
+        marketData.addSnapshotListener(holderIndex::onSnapshot);
+        users.attach(holderIndex, marketData);
+    }
+    
+    public void start() {
+        System.out.println("=== Welcome to Stock Trading Platform ===");
+        
+        while (true) {
+            if (currentUser == null) {
+                showLoginMenu();
+            } else {
+                showMainMenu();
+            }
+        }
+    }
+    
+    private void showLoginMenu() {
+        System.out.println("\n1. Login");
+        System.out.println("2. Register");
+        System.out.println("3. Exit");
+        System.out.print("Choose an option: ");
+        
+        int choice = getIntInput();
+        
+        switch (choice) {
+            case 1:
+                login();
+                break;
+            case 2:
+                register();
+                break;
+            case 3:
+                exit();
+                break;
+            default:
+                System.out.println("Invalid option. Please try again.");
+        }
+    }
+    
+    private void showMainMenu() {
+        System.out.println("\n=== Main Menu ===");
+        System.out.println("1. View Market Data");
+        System.out.println("2. View Portfolio");
+        System.out.println("3. Buy Stock");
+        System.out.println("4. Sell Stock");
+        System.out.println("5. View Transaction History");
+        System.out.println("6. Portfolio Performance");
+        System.out.println("7. Place Limit Order");
+        System.out.println("8. Open Orders");
+        System.out.println("9. Cost Basis Method");
+        System.out.println("10. Price History");
+        System.out.println("11. Watch Quotes");
+        System.out.println("12. Trade Batch");
+        System.out.println("13. Portfolio Risk");
+        System.out.println("14. Logout");
+        System.out.print("Choose an option: ");
+        
+        int choice = getIntInput();
+        
+        switch (choice) {
+            case 1:
+                viewMarketData();
+                break;
+            case 2:
+                viewPortfolio();
+                break;
+            case 3:
+                buyStock();
+                break;
+            case 4:
+                sellStock();
+                break;
+            case 5:
+                viewTransactionHistory();
+                break;
+            case 6:
+                viewPortfolioPerformance();
+                break;
+            case 7:
+                placeLimitOrder();
+                break;
+            case 8:
+                viewOpenOrders();
+                break;
+            case 9:
+                chooseLotMethod();
+                break;
+            case 10:
+                viewPriceHistory();
+                break;
+            case 11:
+                watchQuotes();
+                break;
+            case 12:
+                tradeBatch();
+                break;
+            case 13:
+                viewPortfolioRisk();
+                break;
+            case 14:
+                logout();
+                break;
+            default:
+                System.out.println("Invalid option. Please try again.");
+        }
+    }
+    
+    private void login() {
+        System.out.print("Enter username: ");
+        String username = scanner.nextLine();
+        
+        User user = users.acquire(username);
+        if (user != null) {
+            currentUser = user;
+            System.out.println("Welcome back, " + username + "!");
+            return;
+        }
+        
+        System.out.println("User not found. Please register first.");
+    }
+    
+    private void register() {
+        System.out.print("Enter username: ");
+        String username = scanner.nextLine();
+        
+        String error = checkUsername(username);
+        if (error != null) {
+            System.out.println(error);
+            return;
+        }
+        
+        System.out.print("Enter email: ");
+        String email = scanner.nextLine();
+        
+        error = checkEmail(email);
+        if (error != null) {
+            System.out.println(error);
+            return;
+        }
+        
+        System.out.print("Enter initial cash amount: $");
+        BigDecimal initialCash = getBigDecimalInput();
+        
+        error = checkInitialCash(initialCash);
+        if (error != null) {
+            System.out.println(error);
+            return;
+        }
+        
+        if (createUser(username, email, initialCash) == null) {
+            System.out.println("Registration failed. Please try again.");
+            return;
+        }
+        
+        System.out.println("Registration successful! Please login.");
+    }
+    
+    private String checkUsername(String username) {
+        if (users.containsUsername(username)) {
+            return "Username already exists. Please choose another.";
+        }
+        if (username.isEmpty() || !UserStore.fits(username, UserStore.MAX_USERNAME_BYTES)) {
+            return "Username must be 1 to " + UserStore.MAX_USERNAME_BYTES + " characters.";
+        }
+        return null;
+    }
+    
+    private String checkEmail(String email) {
+        if (!UserStore.fits(email, UserStore.MAX_EMAIL_BYTES)) {
+            return "Email must be at most " + UserStore.MAX_EMAIL_BYTES + " characters.";
+        }
+        return null;
+    }
+    
+    private String checkInitialCash(BigDecimal initialCash) {
+        if (initialCash.signum() < 0) {
+            return "Initial cash must not be negative.";
+        }
+        if (!UserStore.fitsCash(initialCash)) {
+            return "Initial cash must be whole cents and at most " + UserStore.MAX_CASH + ".";
+        }
+        return null;
+    }
+    
+    // Returns null if the user could not be saved or the name was taken meanwhile
+    private User createUser(String username, String email, BigDecimal initialCash) {
+        String userId = "USER" + IdGenerator.nextId();
+        // Held at the scale the store keeps, so it reads back the same
+        User newUser = new User(userId, username, email, initialCash.setScale(2));
+        
+        if (!FileManager.saveUser(newUser) || !users.add(newUser)) {
+            return null;
+        }
+        return newUser;
+    }
+    
+    private void viewMarketData() {
+        renderer.newline().text("=== Market Data ===").newline();
+        renderer.text("Symbol").pad(8).text("Company").pad(20).text("Price").pad(12).text("Change").pad(12)
+                .text("Change%").pad(12).text("Last Updated").newline();
+        renderer.rule(85);
+        
+        MarketSnapshot market = marketData.getSnapshot();
+        for (int i = 0; i < market.size(); i++) {
+            Stock stock = market.getStock(i);
+            Quote quote = market.getQuote(i);
+            long change = quote.getPriceCents() - quote.getPreviousPriceCents();
+            long changePercent = quote.getPreviousPriceCents() == 0 ? 0
+                    : Money.scaleHalfUp(change, 10_000, quote.getPreviousPriceCents());
+            
+            renderer.text(stock.getSymbol()).pad(8)
+                    .text(stock.getName()).pad(20)
+                    .cents(quote.getPriceCents()).pad(12)
+                    .sign(change).cents(change).pad(11)
+                    .sign(change).percent(changePercent).pad(11)
+                    .dateTime(quote.getLastUpdated()).newline();
+        }
+        renderer.rule(85);
+        renderer.text("Price ticks: ").text(marketData.getTickMetrics().toString()).newline();
+        renderer.flush();
+    }
+    
+    private void viewPortfolio() {
+        Portfolio portfolio = currentUser.getPortfolio();
+        renderer.newline().text("=== Your Portfolio ===").newline();
+        renderer.text("Cash: ").cents(portfolio.getCashCents()).newline();
+        
+        if (portfolio.getPositionCount() == 0) {
+            renderer.text("No stock holdings.").newline();
+            renderer.flush();
+            return;
+        }
+        
+        renderer.text("Symbol").pad(8).text("Quantity").pad(12).text("Avg Cost").pad(12).text("Current").pad(12)
+                .text("Value").pad(12).text("Gain/Loss").newline();
+        renderer.rule(72);
+        
+        portfolio.forEachPosition((symbolId, quantity, avgCost, mark) -> {
+            long value = Money.times(mark, quantity);
+            long gainLoss = value - Money.times(avgCost, quantity);
+            
+            renderer.text(SymbolTable.symbolOf(symbolId)).pad(8)
+                    .number(quantity).pad(12)
+                    .cents(avgCost).pad(12)
+                    .cents(mark).pad(12)
+                    .cents(value).pad(12)
+                    .sign(gainLoss).cents(gainLoss).newline();
+        });
+        
+        long totalGainLoss = portfolio.getUnrealizedGainLossCents();
+        renderer.rule(72);
+        renderer.text("Total Portfolio Value: ").cents(portfolio.getPortfolioValueCents()).newline();
+        renderer.text("Total Gain/Loss: ").sign(totalGainLoss).cents(totalGainLoss).newline();
+        renderer.flush();
+    }
+    
+    private void buyStock() {
+        System.out.print("Enter stock symbol: ");
+        String symbol = scanner.nextLine().toUpperCase();
+        
+        Stock stock = marketData.getStock(symbol);
+        if (stock == null) {
+            System.out.println("Stock not found.");
+            return;
+        }
+        
+        System.out.println("Stock: " + stock.getName() + " (" + symbol + ")");
+        System.out.println("Current Price: " + currencyFormat.format(stock.getCurrentPrice()));
+        System.out.println("Available Cash: " + 
+                          currencyFormat.format(currentUser.getPortfolio().getAvailableCash()));
+        
+        System.out.print("Enter quantity to buy: ");
+        int quantity = getIntInput();
+        
+        if (quantity <= 0) {
+            System.out.println("Invalid quantity.");
+            return;
+        }
+        
+        BigDecimal totalCost = Money.toBigDecimal(Money.times(stock.getCurrentPriceCents(), quantity));
+        System.out.println("Total Cost: " + currencyFormat.format(totalCost));
+        
+        System.out.print("Confirm purchase? (y/n): ");
+        String confirm = scanner.nextLine();
+        
+        if (confirm.equalsIgnoreCase("y")) {
+            Order order = engine.submitMarket(currentUser.getPortfolio(), stock,
+                                              Transaction.Type.BUY, quantity).processed().join();
+            if (order.getStatus() == Order.Status.REJECTED) {
+                System.out.println("Insufficient funds.");
+            } else if (order.getStatus() == Order.Status.FILLED) {
+                System.out.println("Purchase successful!");
+            } else {
+                System.out.println("Price moved; bought " + order.getFilled() + " of " + quantity + " shares.");
+            }
+            awaitTrades();
+        } else {
+            System.out.println("Purchase cancelled.");
+        }
+    }
+    
+    private void sellStock() {
+        System.out.print("Enter stock symbol: ");
+        String symbol = scanner.nextLine().toUpperCase();
+        
+        Stock stock = marketData.getStock(symbol);
+        if (stock == null) {
+            System.out.println("Stock not found.");
+            return;
+        }
+        
+        Portfolio portfolio = currentUser.getPortfolio();
+        int holdings = portfolio.getQuantity(symbol);
+        
+        if (holdings == 0) {
+            System.out.println("You don't own any shares of " + symbol);
+            return;
+        }
+        
+        int available = portfolio.getAvailableShares(stock.getSymbolId());
+        
+        System.out.println("Stock: " + stock.getName() + " (" + symbol + ")");
+        System.out.println("Current Price: " + currencyFormat.format(stock.getCurrentPrice()));
+        System.out.println("Holdings: " + holdings + " shares in " + portfolio.getLotCount(symbol) +
+                          " lots, sold " + portfolio.getLotMethod());
+        if (available < holdings) {
+            System.out.println("Available to sell: " + available + " shares (rest held by open orders)");
+        }
+        
+        System.out.print("Enter quantity to sell: ");
+        int quantity = getIntInput();
+        
+        if (quantity <= 0 || quantity > available) {
+            System.out.println("Invalid quantity.");
+            return;
+        }
+        
+        BigDecimal totalValue = Money.toBigDecimal(Money.times(stock.getCurrentPriceCents(), quantity));
+        System.out.println("Total Value: " + currencyFormat.format(totalValue));
+        
+        System.out.print("Confirm sale? (y/n): ");
+        String confirm = scanner.nextLine();
+        
+        if (confirm.equalsIgnoreCase("y")) {
+            Order order = engine.submitMarket(portfolio, stock, Transaction.Type.SELL, quantity)
+                               .processed().join();
+            if (order.getStatus() == Order.Status.REJECTED) {
+                System.out.println("Sale failed.");
+            } else if (order.getStatus() == Order.Status.FILLED) {
+                System.out.println("Sale successful!");
+            } else {
+                System.out.println("Price moved; sold " + order.getFilled() + " of " + quantity + " shares.");
+            }
+            awaitTrades();
+        } else {
+            System.out.println("Sale cancelled.");
+        }
+    }
+    
+    private void placeLimitOrder() {
+        System.out.print("Enter stock symbol: ");
+        String symbol = scanner.nextLine().toUpperCase();
+        
+        Stock stock = marketData.getStock(symbol);
+        if (stock == null) {
+            System.out.println("Stock not found.");
+            return;
+        }
+        
+        System.out.println("Stock: " + stock.getName() + " (" + symbol + ")");
+        System.out.println("Current Price: " + currencyFormat.format(stock.getCurrentPrice()));
+        
+        System.out.print("Buy or sell? (b/s): ");
+        String sideInput = scanner.nextLine();
+        Transaction.Type side;
+        if (sideInput.equalsIgnoreCase("b")) {
+            side = Transaction.Type.BUY;
+        } else if (sideInput.equalsIgnoreCase("s")) {
+            side = Transaction.Type.SELL;
+        } else {
+            System.out.println("Invalid side.");
+            return;
+        }
+        
+        System.out.print("Enter quantity: ");
+        int quantity = getIntInput();
+        
+        if (quantity <= 0) {
+            System.out.println("Invalid quantity.");
+            return;
+        }
+        
+        System.out.print("Enter limit price: $");
+        long limitPrice = Money.of(getBigDecimalInput());
+        
+        if (limitPrice <= 0) {
+            System.out.println("Invalid price.");
+            return;
+        }
+        
+        Order order = engine.submitLimit(currentUser.getPortfolio(), stock, side, quantity, limitPrice)
+                            .processed().join();
+        switch (order.getStatus()) {
+            case REJECTED:
+                System.out.println(side == Transaction.Type.BUY ? "Insufficient funds." : "Insufficient shares.");
+                return;
+            case FILLED:
+                System.out.println("Order " + order.getOrderId() + " filled at " +
+                                  currencyFormat.format(order.getAverageFillPrice()) + ".");
+                break;
+            default:
+                System.out.println("Order " + order.getOrderId() + " placed; " + order.getFilled() +
+                                  " of " + quantity + " shares filled so far.");
+        }
+        awaitTrades();
+    }
+    
+    private void viewOpenOrders() {
+        List<Order> orders = engine.getOpenOrders(currentUser.getPortfolio());
+        System.out.println("\n=== Open Orders ===");
+        
+        if (orders.isEmpty()) {
+            System.out.println("No open orders.");
+            return;
+        }
+        
+        System.out.printf("%-8s %-8s %-6s %-10s %-10s %-12s%n",
+                         "Order", "Symbol", "Side", "Quantity", "Filled", "Limit");
+        for (Order order : orders) {
+            System.out.printf("%-8d %-8s %-6s %-10d %-10d %-12s%n",
+                            order.getOrderId(), order.getSymbol(), order.getSide(),
+                            order.getQuantity(), order.getFilled(),
+                            currencyFormat.format(order.getLimitPrice()));
+        }
+        
+        System.out.print("Enter order ID to cancel (0 to go back): ");
+        long orderId = getIntInput();
+        if (orderId == 0) {
+            return;
+        }
+        
+        for (Order order : orders) {
+            if (order.getOrderId() == orderId) {
+                boolean cancelled = engine.cancel(order).join();
+                System.out.println(cancelled ? "Order cancelled." : "Order is no longer open.");
+                return;
+            }
+        }
+        System.out.println("Order not found.");
+    }
+    
+    // Fills arrive on matching threads, for this user or for the other side of a match
+    private void onFill(Portfolio portfolio, Transaction transaction) {
+        portfolio.setJournalSeq(journal.append(portfolio.getUserId(), transaction));
+        if (tickStore != null) {
+            tickStore.recordTrade(SymbolTable.find(transaction.getStockSymbol()), transaction.getQuantity());
+        }
+    }
+    
+    // Waits until every trade journaled so far is on disk
+    private void awaitTrades() {
+        if (!journal.awaitDurable(journal.getLastSeq())) {
+            System.out.println("Warning: trade could not be saved.");
+        }
+        if (journal.getRecordsSinceCompaction() >= SNAPSHOT_INTERVAL) {
+            saveSnapshot();
+        }
+    }
+    
+    // Writes changed accounts to the portfolio store while trading carries on
+    private synchronized void saveSnapshot() {
+        long start = Metrics.start();
+        long seq = users.checkpoint(journal::getLastSeq);
+        Metrics.SNAPSHOT_SAVE.recordSince(start);
+        if (seq >= 0) {
+            try {
+                journal.compact(seq);
+            } catch (IOException e) {
+                System.err.println("Error compacting trade journal: " + e.getMessage());
+            }
+        }
+    }
+    
+    private void viewTransactionHistory() {
+        TransactionLedger ledger = currentUser.getPortfolio().getLedger();
+        
+        System.out.print("Filter by symbol (blank for all): ");
+        String symbol = scanner.nextLine().trim().toUpperCase();
+        System.out.print("Filter by date (yyyy-MM-dd, blank for all): ");
+        String dateInput = scanner.nextLine().trim();
+        
+        LocalDate date = null;
+        if (!dateInput.isEmpty()) {
+            try {
+                date = LocalDate.parse(dateInput);
+            } catch (DateTimeParseException e) {
+                System.out.println("Invalid date.");
+                return;
+            }
+        }
+        
+        // Matching record indexes; null means the whole ledger in order
+        int[] rows = null;
+        if (!symbol.isEmpty()) {
+            int symbolId = SymbolTable.find(symbol);
+            if (symbolId < 0) {
+                rows = new int[0];
+            } else if (date != null) {
+                rows = ledger.ofSymbol(symbolId, date.atStartOfDay(), date.plusDays(1).atStartOfDay());
+            } else {
+                rows = ledger.ofSymbol(symbolId);
+            }
+        } else if (date != null) {
+            rows = ledger.between(date.atStartOfDay(), date.plusDays(1).atStartOfDay());
+        }
+        int count = rows == null ? ledger.size() : rows.length;
+        
+        System.out.print("Rows per page (blank for " + HISTORY_PAGE_SIZE + ", 0 for no paging): ");
+        String pageInput = scanner.nextLine().trim();
+        int pageSize = HISTORY_PAGE_SIZE;
+        if (!pageInput.isEmpty()) {
+            try {
+                pageSize = Integer.parseInt(pageInput);
+            } catch (NumberFormatException e) {
+                pageSize = -1;
+            }
+            if (pageSize < 0) {
+                System.out.println("Invalid page size.");
+                return;
+            }
+        }
+        
+        renderer.newline().text("=== Transaction History ===").newline();
+        if (count == 0) {
+            renderer.text("No transactions.").newline();
+            renderer.flush();
+            return;
+        }
+        
+        // Without paging the rows stream out in buffer-sized blocks
+        for (int i = 0; i < count; i++) {
+            int index = rows == null ? i : rows[i];
+            long price = ledger.priceAt(index);
+            int quantity = ledger.quantityAt(index);
+            Transaction.Type type = ledger.typeAt(index);
+            renderer.text("TXN").number(ledger.idAt(index))
+                    .text(" | ").time(ledger.timeAt(index))
+                    .text(" | ").text(type.name()).text(" ").number(quantity)
+                    .text(" shares of ").text(SymbolTable.symbolOf(ledger.symbolIdAt(index)))
+                    .text(" at ").cents(price)
+                    .text(" | ").cents(Money.times(price, quantity));
+            if (type == Transaction.Type.SELL) {
+                long realized = ledger.realizedPnlAt(index);
+                renderer.text(" | P&L ").sign(realized).cents(realized)
+                        .text(" (").text(ledger.lotMethodAt(index).name()).text(")");
+            }
+            renderer.newline();
+            
+            if (pageSize > 0 && (i + 1) % pageSize == 0 && i + 1 < count) {
+                renderer.text("Showing ").number(i + 1).text(" of ").number(count)
+                        .text(". Press Enter for more, or q to stop: ");
+                renderer.flush();
+                if (scanner.nextLine().trim().equalsIgnoreCase("q")) {
+                    return;
+                }
+            }
+        }
+        renderer.flush();
+    }
+    
+    private void chooseLotMethod() {
+        Portfolio portfolio = currentUser.getPortfolio();
+        System.out.println("\nCurrent cost basis method: " + portfolio.getLotMethod());
+        LotMethod[] methods = LotMethod.values();
+        for (int i = 0; i < methods.length; i++) {
+            System.out.println((i + 1) + ". " + methods[i]);
+        }
+        System.out.print("Choose a method for future sells: ");
+        int choice = getIntInput();
+        
+        if (choice < 1 || choice > methods.length) {
+            System.out.println("Invalid option.");
+            return;
+        }
+        portfolio.setLotMethod(methods[choice - 1]);
+        saveSnapshot();
+        System.out.println("Future sells will use " + methods[choice - 1] + " cost basis.");
+    }
+    
+    private void viewPriceHistory() {
+        if (tickStore == null) {
+            System.out.println("Price history is not available.");
+            return;
+        }
+        System.out.print("Enter stock symbol: ");
+        String symbol = scanner.nextLine().trim().toUpperCase();
+        
+        Stock stock = marketData.getStock(symbol);
+        if (stock == null) {
+            System.out.println("Stock not found.");
+            return;
+        }
+        
+        System.out.print("Bar size (1 = second, 2 = minute, 3 = hour): ");
+        int choice = getIntInput();
+        BarSize[] sizes = BarSize.values();
+        if (choice < 1 || choice > sizes.length) {
+            System.out.println("Invalid option.");
+            return;
+        }
+        BarSize size = sizes[choice - 1];
+        
+        // The last CHART_BARS bar widths up to now
+        LocalDateTime to = LocalDateTime.now().plusSeconds(1);
+        LocalDateTime from = to.minusNanos(size.getNanos() * CHART_BARS);
+        List<Bar> bars = tickStore.bars(stock.getSymbolId(), from, to, size);
+        
+        System.out.println("\n=== " + symbol + " Price History ===");
+        if (bars.isEmpty()) {
+            System.out.println("No ticks recorded in that period.");
+            return;
+        }
+        renderer.text("Time").pad(20).text("Open").pad(12).text("High").pad(12).text("Low").pad(12)
+                .text("Close").pad(12).text("Volume").newline();
+        renderer.rule(80);
+        for (Bar bar : bars) {
+            renderer.dateTime(bar.getStart()).pad(20)
+                    .cents(bar.getOpenCents()).pad(12)
+                    .cents(bar.getHighCents()).pad(12)
+                    .cents(bar.getLowCents()).pad(12)
+                    .cents(bar.getCloseCents()).pad(12)
+                    .number(bar.getVolume()).newline();
+        }
+        renderer.flush();
+    }
+    
+    // Streams quotes for the chosen symbols as ticks arrive, until Enter is pressed
+    private void watchQuotes() {
+        System.out.print("Symbols to watch (comma separated, blank for all): ");
+        String input = scanner.nextLine().trim().toUpperCase();
+        
+        int[] symbolIds = null;
+        if (!input.isEmpty()) {
+            String[] symbols = input.split("\\s*,\\s*");
+            symbolIds = new int[symbols.length];
+            for (int i = 0; i < symbols.length; i++) {
+                Stock stock = marketData.getStock(symbols[i]);
+                if (stock == null) {
+                    System.out.println("Stock not found: " + symbols[i]);
+                    return;
+                }
+                symbolIds[i] = stock.getSymbolId();
+            }
+        }
+        
+        // A slow terminal only ever needs the latest prices
+        QuoteBus.Subscription subscription = quoteBus.subscribe(symbolIds, true, new QuoteBus.QuoteListener() {
+            @Override
+            public void onQuote(int symbolId, Quote quote) {
+                BigDecimal change = quote.getPriceChange();
+                String changeSymbol = change.signum() >= 0 ? "+" : "";
+                System.out.printf("%s %-8s %-12s %s%s%n",
+                                quote.getLastUpdated().format(dateFormat),
+                                SymbolTable.symbolOf(symbolId),
+                                currencyFormat.format(quote.getPrice()),
+                                changeSymbol,
+                                String.format("%.2f%%", quote.getPriceChangePercentage()));
+            }
+        });
+        System.out.println("Watching quotes. Press Enter to stop.");
+        scanner.nextLine();
+        subscription.cancel();
+        System.out.println("Stopped watching (" + subscription + ").");
+    }
+    
+    private void tradeBatch() {
+        System.out.print("CSV file of symbol,side,quantity rows: ");
+        String file = scanner.nextLine().trim();
+        
+        TradeBatch batch;
+        try (BufferedReader in = Files.newBufferedReader(Paths.get(file))) {
+            batch = TradeBatch.readCsv(in, currentUser.getUsername());
+        } catch (IOException e) {
+            System.out.println("Error reading trade batch: " + e.getMessage());
+            return;
+        }
+        if (batch.size() == 0) {
+            System.out.println("No orders in " + file + ".");
+            return;
+        }
+        if (!executeBatch(batch).join()) {
+            System.out.println("Warning: trades could not be saved.");
+        }
+        printBatchResult(batch);
+    }
+    
+    // Lists the orders that caused rejections; the rest of their accounts' orders are only counted
+    private static void printBatchResult(TradeBatch batch) {
+        System.out.printf("Filled %d of %d orders in %.3f ms (%,.0f orders/s).%n", batch.getFilled(), batch.size(),
+                          batch.getElapsedNanos() / 1e6, batch.getOrdersPerSecond());
+        int shown = 0;
+        int failed = 0;
+        int withAccount = 0;
+        for (int i = 0; i < batch.size(); i++) {
+            TradeBatch.Status status = batch.getStatus(i);
+            if (status == TradeBatch.Status.ACCOUNT_REJECTED) {
+                withAccount++;
+            } else if (status != TradeBatch.Status.FILLED) {
+                failed++;
+                if (shown < BATCH_REJECTS_SHOWN) {
+                    System.out.println("  Order " + (i + 1) + " (" + batch.getUsername(i) + " " + batch.getSymbol(i) +
+                                      "): " + status);
+                    shown++;
+                }
+            }
+        }
+        if (failed > shown) {
+            System.out.println("  ... " + (failed - shown) + " more rejected");
+        }
+        if (withAccount > 0) {
+            System.out.println("  " + withAccount + " orders not filled because their account had a rejected order");
+        }
+    }
+    
+    private void viewPortfolioPerformance() {
+        Portfolio portfolio = currentUser.getPortfolio();
+        BigDecimal currentValue = portfolio.getPortfolioValue();
+        
+        System.out.println("\n=== Portfolio Performance ===");
+        System.out.println("Current Portfolio Value: " + currencyFormat.format(currentValue));
+        System.out.println("Available Cash: " + currencyFormat.format(portfolio.getCash()));
+        
+        BigDecimal totalInvested = portfolio.getNetInvested();
+        BigDecimal realizedPnl = portfolio.getRealizedPnl();
+        
+        System.out.println("Total Invested: " + currencyFormat.format(totalInvested));
+        System.out.println("Realized P&L: " + (realizedPnl.signum() >= 0 ? "+" : "") +
+                          currencyFormat.format(realizedPnl));
+        System.out.println("Turnover: " + currencyFormat.format(portfolio.getTurnover()));
+        
+        if (VERIFY_AGGREGATES) {
+            String mismatch = portfolio.verifyAggregates();
+            System.out.println(mismatch == null ? "Aggregates verified against full replay."
+                                                : "Aggregate mismatch: " + mismatch);
+        }
+        
+        // Return on the starting balance; current value includes cash, so it is
+        // compared with the initial cash rather than with the amount invested
+        BigDecimal initialCash = currentUser.getInitialCash();
+        if (initialCash.compareTo(BigDecimal.ZERO) > 0) {
+            BigDecimal performancePercent = currentValue.subtract(initialCash)
+                                          .divide(initialCash, 4, BigDecimal.ROUND_HALF_UP)
+                                          .multiply(BigDecimal.valueOf(100));
+            
+            String performanceSymbol = performancePercent.compareTo(BigDecimal.ZERO) >= 0 ? "+" : "";
+            System.out.println("Performance: " + performanceSymbol + 
+                              String.format("%.2f%%", performancePercent));
+        }
+    }
+    
+    // Risk over one step of the tick history; cached until the next step
+    private void viewPortfolioRisk() {
+        RiskEngine.PortfolioRisk result = risk.portfolioRisk(currentUser.getPortfolio());
+        RiskModel model = result.getModel();
+        int confidence = (int) Math.round(RiskEngine.CONFIDENCE * 10000);
+        
+        renderer.newline().text("=== Portfolio Risk ===").newline();
+        renderer.text("History: ").number(model.getObservations()).text(" steps, ")
+                .number(model.getHistoryColumns()).text(" of ").number(model.getColumnCount())
+                .text(" symbols with ticks").newline();
+        if (result.getSymbolCount() == 0) {
+            renderer.text("No stock holdings.").newline();
+            renderer.flush();
+            return;
+        }
+        long value = result.getValueCents();
+        renderer.text("Holdings Value: ").cents(value).newline();
+        renderer.text("VaR ").percent(confidence).text(", historical: ").cents(result.getHistoricalVarCents()).newline();
+        renderer.text("VaR ").percent(confidence).text(", Monte Carlo (").number(model.getScenarioCount())
+                .text(" scenarios): ").cents(result.getMonteCarloVarCents()).newline();
+        renderer.text("Volatility per step: ").percent(Math.round(result.getVolatility() * 10000)).newline();
+        renderer.text("Beta: ").text(String.format("%.2f", result.getBeta())).newline();
+        
+        renderer.newline().text("Symbol").pad(8).text("Exposure").pad(16).text("Weight").pad(10)
+                .text("Volatility").newline();
+        renderer.rule(44);
+        for (int k = 0; k < result.getSymbolCount(); k++) {
+            int symbolId = result.getSymbolId(k);
+            long exposure = result.getExposureCents(k);
+            double volatility = model.getVolatility(model.columnOf(symbolId));
+            renderer.text(SymbolTable.symbolOf(symbolId)).pad(8)
+                    .cents(exposure).pad(16)
+                    .percent(value == 0 ? 0 : Math.round(exposure * 10000.0 / value)).pad(10)
+                    .percent(Math.round(volatility * 10000)).newline();
+        }
+        
+        int shown = Math.min(result.getSymbolCount(), RISK_CORRELATIONS_SHOWN);
+        if (shown > 1) {
+            renderer.newline().text("Correlation").pad(12);
+            for (int j = 0; j < shown; j++) {
+                renderer.text(SymbolTable.symbolOf(result.getSymbolId(j))).pad(8);
+            }
+            renderer.newline();
+            for (int i = 0; i < shown; i++) {
+                renderer.text(SymbolTable.symbolOf(result.getSymbolId(i))).pad(12);
+                for (int j = 0; j < shown; j++) {
+                    renderer.text(String.format("%.2f", result.getCorrelation(i, j))).pad(8);
+                }
+                renderer.newline();
+            }
+        }
+        renderer.flush();
+    }
+    
+    private void logout() {
+        saveSnapshot();
+        users.release(currentUser);
+        currentUser = null;
+        System.out.println("Logged out successfully.");
+    }
+    
+    private void exit() {
+        shutdown();
+        System.out.println("Thank you for using Stock Trading Platform!");
+        System.exit(0);
+    }
+    
+    void shutdown() {
+        if (httpServer != null) {
+            httpServer.stop();
+        }
+        if (binaryServer != null) {
+            binaryServer.stop();
+        }
+        engine.shutdown();
+        risk.shutdown();
+        saveSnapshot();
+        users.close();
+        journal.close();
+        marketData.stopPriceUpdates();
+        quoteBus.shutdown();
+        if (tickStore != null) {
+            tickStore.close();
+        }
+        Metrics.writeFile();
+    }
+    
+    // Serves the network APIs until the process is stopped
+    void serve(int httpPort, int binaryPort, int threads) throws IOException {
+        httpServer = new TradingHttpServer(this, httpPort, threads);
+        binaryServer = new TradingBinaryServer(this, binaryPort);
+        httpServer.start();
+        binaryServer.start();
+    }
+    
+    int getHttpPort() { return httpServer.getPort(); }
+    int getBinaryPort() { return binaryServer.getPort(); }
+    
+    // Operations shared with the network servers; safe to call from any thread
+    
+    // Pins the account for a session; pair with releaseUser()
+    User acquireUser(String username) {
+        return users.acquire(username);
+    }
+    
+    void releaseUser(User user) {
+        users.release(user);
+    }
+    
+    // Returns null on success, or why the account could not be created
+    String registerUser(String username, String email, BigDecimal initialCash) {
+        String error = checkUsername(username);
+        if (error == null) {
+            error = checkEmail(email);
+        }
+        if (error == null) {
+            error = checkInitialCash(initialCash);
+        }
+        if (error == null && createUser(username, email, initialCash) == null) {
+            error = "Registration failed. Please try again.";
+        }
+        return error;
+    }
+    
+    Stock findStock(String symbol) {
+        return marketData.getStock(symbol);
+    }
+    
+    MarketSnapshot getSnapshot() {
+        return marketData.getSnapshot();
+    }
+    
+    // A limit price of 0 submits a market order
+    Order submitOrder(Portfolio portfolio, Stock stock, Transaction.Type side, int quantity, long limitPrice) {
+        return limitPrice == 0 ? engine.submitMarket(portfolio, stock, side, quantity)
+                               : engine.submitLimit(portfolio, stock, side, quantity, limitPrice);
+    }
+    
+    List<Order> getOpenOrders(Portfolio portfolio) {
+        return engine.getOpenOrders(portfolio);
+    }
+    
+    RiskEngine.PortfolioRisk portfolioRisk(Portfolio portfolio) {
+        return risk.portfolioRisk(portfolio);
+    }
+    
+    RiskEngine.Book bookRisk() {
+        return risk.bookRisk(users);
+    }
+    
+    // Completes with true if the order was this portfolio's and still resting
+    CompletableFuture<Boolean> cancelOrder(Portfolio portfolio, long orderId) {
+        for (Order order : engine.getOpenOrders(portfolio)) {
+            if (order.getOrderId() == orderId) {
+                return engine.cancel(order);
+            }
+        }
+        return CompletableFuture.completedFuture(false);
+    }
+    
+    // Completes once every trade journaled so far is on disk, without
+    // blocking; snapshots that fall due are taken in the background
+    CompletableFuture<Boolean> tradesDurable() {
+        CompletableFuture<Boolean> durable = journal.whenDurable(journal.getLastSeq());
+        if (journal.getRecordsSinceCompaction() >= SNAPSHOT_INTERVAL && snapshotPending.compareAndSet(false, true)) {
+            snapshotter.execute(() -> {
+                snapshotPending.set(false);
+                saveSnapshot();
+            });
+        }
+        return durable;
+    }
+    
+    // Fills a batch at the current prices with its journal records held back
+    // for one commit; completes like tradesDurable()
+    CompletableFuture<Boolean> executeBatch(TradeBatch batch) {
+        journal.holdCommits();
+        try {
+            batch.execute(users, marketData.getSnapshot(), this::onFill);
+        } finally {
+            journal.releaseCommits();
+        }
+        return tradesDurable();
+    }
+    
+    private int getIntInput() {
+        while (true) {
+            try {
+                return Integer.parseInt(scanner.nextLine());
+            } catch (NumberFormatException e) {
+                System.out.print("Invalid input. Please enter a number: ");
+            }
+        }
+    }
+    
+    private BigDecimal getBigDecimalInput() {
+        while (true) {
+            try {
+                return new BigDecimal(scanner.nextLine());
+            } catch (NumberFormatException e) {
+                System.out.print("Invalid input. Please enter a valid amount: ");
+            }
+        }
+    }
+    
+    // "batch <file>": fills a CSV (username,symbol,side,quantity) or binary
+    // trade batch for any accounts and exits
+    private static void runBatch(TradingPlatform platform, Path file) {
+        TradeBatch batch = null;
+        try {
+            if (file.getFileName().toString().toLowerCase().endsWith(".csv")) {
+                try (BufferedReader in = Files.newBufferedReader(file)) {
+                    batch = TradeBatch.readCsv(in, null);
+                }
+            } else {
+                try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+                    batch = TradeBatch.readBinary(in);
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Error reading trade batch: " + e.getMessage());
+        }
+        if (batch != null) {
+            if (!platform.executeBatch(batch).join()) {
+                System.out.println("Warning: trades could not be saved.");
+            }
+            printBatchResult(batch);
+        }
+        platform.shutdown();
+    }
+    
+    public static void main(String[] args) {
+        TradingPlatform platform = new TradingPlatform();
+        if (args.length == 2 && args[0].equals("batch")) {
+            runBatch(platform, Paths.get(args[1]));
+            return;
+        }
+        if (!HEADLESS) {
+            platform.start();
+            return;
+        }
+        try {
+            platform.serve(HTTP_PORT, BINARY_PORT, SERVER_THREADS);
+        } catch (IOException e) {
+            System.err.println("Error starting server: " + e.getMessage());
+            platform.shutdown();
+            System.exit(1);
+        }
+        Runtime.getRuntime().addShutdownHook(new Thread(platform::shutdown, "shutdown"));
+        System.out.println("Serving HTTP on port " + platform.getHttpPort() +
+                          " and the binary protocol on port " + platform.getBinaryPort());
+    }
+}
@@ -0,0 +1,82 @@
+package com.codealpha.trading;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+class Transaction {
+    public enum Type { BUY, SELL }
+    
+    private long transactionId;
+    private String stockSymbol;
+    private Type type;
+    private int quantity;
+    private long price; // cents
+    private LotMethod lotMethod; // lots a sell was matched against
+    private long realizedPnl; // cents; zero for buys
+    private LocalDateTime timestamp;
+    
+    public Transaction(long transactionId, String stockSymbol, Type type, 
+                      int quantity, long price) {
+        this(transactionId, stockSymbol, type, quantity, price, LotMethod.FIFO, 0, LocalDateTime.now());
+    }
+    
+    Transaction(long transactionId, String stockSymbol, Type type, int quantity, long price,
+                LotMethod lotMethod, long realizedPnl, LocalDateTime timestamp) {
+        this.transactionId = transactionId;
+        this.stockSymbol = stockSymbol;
+        this.type = type;
+        this.quantity = quantity;
+        this.price = price;
+        this.lotMethod = lotMethod;
+        this.realizedPnl = realizedPnl;
+        this.timestamp = timestamp;
+    }
+    
+    public BigDecimal getTotalValue() {
+        return Money.toBigDecimal(getTotalValueCents());
+    }
+    
+    public long getTotalValueCents() {
+        return Money.times(price, quantity);
+    }
+    
+    void writeTo(DataOutput out) throws IOException {
+        out.writeLong(transactionId);
+        out.writeUTF(stockSymbol);
+        out.writeByte(type.ordinal());
+        out.writeByte(lotMethod.ordinal());
+        out.writeInt(quantity);
+        out.writeLong(price);
+        out.writeLong(realizedPnl);
+        out.writeLong(timestamp.toEpochSecond(ZoneOffset.UTC));
+        out.writeInt(timestamp.getNano());
+    }
+    
+    static Transaction readFrom(DataInput in) throws IOException {
+        long transactionId = in.readLong();
+        String stockSymbol = in.readUTF();
+        Type type = Type.values()[in.readByte()];
+        LotMethod lotMethod = LotMethod.values()[in.readByte()];
+        int quantity = in.readInt();
+        long price = in.readLong();
+        long realizedPnl = in.readLong();
+        LocalDateTime timestamp = LocalDateTime.ofEpochSecond(in.readLong(), in.readInt(), ZoneOffset.UTC);
+        return new Transaction(transactionId, stockSymbol, type, quantity, price, lotMethod, realizedPnl, timestamp);
+    }
+    
+    // Getters
+    public long getTransactionId() { return transactionId; }
+    public String getStockSymbol() { return stockSymbol; }
+    public Type getType() { return type; }
+    public int getQuantity() { return quantity; }
+    public BigDecimal getPrice() { return Money.toBigDecimal(price); }
+    public long getPriceCents() { return price; }
+    LotMethod getLotMethod() { return lotMethod; }
+    public BigDecimal getRealizedPnl() { return Money.toBigDecimal(realizedPnl); }
+    public long getRealizedPnlCents() { return realizedPnl; }
+    public LocalDateTime getTimestamp() { return timestamp; }
+}
\ No newline at end of file
@@ -0,0 +1,249 @@
+package com.codealpha.trading;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Append-only trade history in fixed-width records held off-heap, so a long
+// history costs the heap little more than a per-symbol int index. Records are
+// read by index through the column accessors; nothing is materialized unless
+// get() is called.
+//
+// There is a single writer (the owning portfolio, under its lock). Records
+// never change once written and size is published last, so readers may scan
+// any index below size() without locking.
+final class TransactionLedger {
+    private static final int RECORD_BYTES = 48;
+    private static final int ID = 0;
+    private static final int TIME = 8; // epoch nanos of the local timestamp read as UTC
+    private static final int PRICE = 16;
+    private static final int REALIZED = 24;
+    private static final int SYMBOL = 32;
+    private static final int QUANTITY = 36;
+    private static final int TYPE = 40;
+    private static final int LOT_METHOD = 41;
+    private static final int INITIAL_CAPACITY = 16;
+    private static final Transaction.Type[] TYPES = Transaction.Type.values();
+    private static final LotMethod[] LOT_METHODS = LotMethod.values();
+    
+    private volatile ByteBuffer records; // allocated on first append
+    private volatile int size;
+    private long lastTime = Long.MIN_VALUE;
+    private volatile boolean timeOrdered = true;
+    private final Map<Integer, IndexList> bySymbol = new ConcurrentHashMap<>();
+    
+    void append(Transaction transaction) {
+        append(transaction.getTransactionId(), SymbolTable.idOf(transaction.getStockSymbol()),
+               transaction.getType(), transaction.getQuantity(), transaction.getPriceCents(),
+               transaction.getLotMethod(), transaction.getRealizedPnlCents(), toTime(transaction.getTimestamp()));
+    }
+    
+    void append(long transactionId, int symbolId, Transaction.Type type, int quantity, long price,
+                LotMethod lotMethod, long realizedPnl, long time) {
+        ByteBuffer buffer = records;
+        int index = size;
+        if (buffer == null || (index + 1) * RECORD_BYTES > buffer.capacity()) {
+            buffer = grow(buffer, index);
+        }
+        int base = index * RECORD_BYTES;
+        buffer.putLong(base + ID, transactionId);
+        buffer.putLong(base + TIME, time);
+        buffer.putLong(base + PRICE, price);
+        buffer.putLong(base + REALIZED, realizedPnl);
+        buffer.putInt(base + SYMBOL, symbolId);
+        buffer.putInt(base + QUANTITY, quantity);
+        buffer.put(base + TYPE, (byte) type.ordinal());
+        buffer.put(base + LOT_METHOD, (byte) lotMethod.ordinal());
+        
+        if (time < lastTime) {
+            timeOrdered = false; // clock stepped back; range queries fall back to a scan
+        }
+        lastTime = Math.max(lastTime, time);
+        bySymbol.computeIfAbsent(symbolId, id -> new IndexList()).add(index);
+        size = index + 1;
+    }
+    
+    int size() {
+        return size;
+    }
+    
+    long idAt(int index) { return records.getLong(index * RECORD_BYTES + ID); }
+    long timeAt(int index) { return records.getLong(index * RECORD_BYTES + TIME); }
+    long priceAt(int index) { return records.getLong(index * RECORD_BYTES + PRICE); }
+    int symbolIdAt(int index) { return records.getInt(index * RECORD_BYTES + SYMBOL); }
+    int quantityAt(int index) { return records.getInt(index * RECORD_BYTES + QUANTITY); }
+    long realizedPnlAt(int index) { return records.getLong(index * RECORD_BYTES + REALIZED); }
+    Transaction.Type typeAt(int index) { return TYPES[records.get(index * RECORD_BYTES + TYPE)]; }
+    LotMethod lotMethodAt(int index) { return LOT_METHODS[records.get(index * RECORD_BYTES + LOT_METHOD)]; }
+    LocalDateTime timestampAt(int index) { return toTimestamp(timeAt(index)); }
+    
+    Transaction get(int index) {
+        return new Transaction(idAt(index), SymbolTable.symbolOf(symbolIdAt(index)), typeAt(index),
+                               quantityAt(index), priceAt(index), lotMethodAt(index), realizedPnlAt(index),
+                               timestampAt(index));
+    }
+    
+    // Indexes of records for one symbol, oldest first
+    int[] ofSymbol(int symbolId) {
+        IndexList list = bySymbol.get(symbolId);
+        return list == null ? new int[0] : list.toArray();
+    }
+    
+    // Indexes of records for one symbol with from <= timestamp < to, oldest first
+    int[] ofSymbol(int symbolId, LocalDateTime from, LocalDateTime to) {
+        long fromTime = toTime(from);
+        long untilTime = toTime(to);
+        IndexList matches = new IndexList();
+        for (int index : ofSymbol(symbolId)) {
+            long time = timeAt(index);
+            if (time >= fromTime && time < untilTime) {
+                matches.add(index);
+            }
+        }
+        return matches.toArray();
+    }
+    
+    // Indexes of records with from <= timestamp < to, oldest first
+    int[] between(LocalDateTime from, LocalDateTime to) {
+        long fromTime = toTime(from);
+        long untilTime = toTime(to);
+        int count = size;
+        if (timeOrdered) {
+            int start = lowerBound(fromTime, count);
+            int end = Math.max(start, lowerBound(untilTime, count));
+            int[] indexes = new int[end - start];
+            for (int i = 0; i < indexes.length; i++) {
+                indexes[i] = start + i;
+            }
+            return indexes;
+        }
+        IndexList matches = new IndexList();
+        for (int i = 0; i < count; i++) {
+            long time = timeAt(i);
+            if (time >= fromTime && time < untilTime) {
+                matches.add(i);
+            }
+        }
+        return matches.toArray();
+    }
+    
+    // Records from until to, with each symbol named once up front
+    void writeChunk(DataOutput out, int from, int to) throws IOException {
+        Map<Integer, Integer> codes = new HashMap<>(); // symbol id -> position in the chunk's list
+        for (int i = from; i < to; i++) {
+            codes.putIfAbsent(symbolIdAt(i), codes.size());
+        }
+        String[] symbols = new String[codes.size()];
+        codes.forEach((symbolId, code) -> symbols[code] = SymbolTable.symbolOf(symbolId));
+        out.writeInt(from);
+        out.writeInt(to - from);
+        out.writeInt(symbols.length);
+        for (String symbol : symbols) {
+            out.writeUTF(symbol);
+        }
+        for (int i = from; i < to; i++) {
+            out.writeLong(idAt(i));
+            out.writeInt(codes.get(symbolIdAt(i)));
+            out.writeByte(typeAt(i).ordinal());
+            out.writeByte(lotMethodAt(i).ordinal());
+            out.writeInt(quantityAt(i));
+            out.writeLong(priceAt(i));
+            out.writeLong(realizedPnlAt(i));
+            out.writeLong(timeAt(i));
+        }
+    }
+    
+    // Appends a chunk from writeChunk, which must start where the ledger ends
+    void readChunk(DataInput in) throws IOException {
+        int from = in.readInt();
+        int count = in.readInt();
+        if (from != size) {
+            throw new IOException("Ledger chunk starts at record " + from + " of " + size);
+        }
+        int[] symbolIds = new int[in.readInt()];
+        for (int i = 0; i < symbolIds.length; i++) {
+            symbolIds[i] = SymbolTable.idOf(in.readUTF());
+        }
+        for (int i = 0; i < count; i++) {
+            long transactionId = in.readLong();
+            int symbolId = symbolIds[in.readInt()];
+            Transaction.Type type = TYPES[in.readByte()];
+            LotMethod lotMethod = LOT_METHODS[in.readByte()];
+            int quantity = in.readInt();
+            long price = in.readLong();
+            long realizedPnl = in.readLong();
+            append(transactionId, symbolId, type, quantity, price, lotMethod, realizedPnl, in.readLong());
+        }
+    }
+    
+    private int lowerBound(long time, int count) {
+        int low = 0;
+        int high = count;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (timeAt(mid) < time) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+    
+    // Bytes of record storage plus the per-symbol index entries
+    long memoryBytes() {
+        ByteBuffer buffer = records;
+        return (buffer == null ? 0 : buffer.capacity()) + (long) size * Integer.BYTES;
+    }
+    
+    private ByteBuffer grow(ByteBuffer buffer, int count) {
+        int capacity = buffer == null ? INITIAL_CAPACITY : buffer.capacity() / RECORD_BYTES * 2;
+        ByteBuffer grown = ByteBuffer.allocateDirect(capacity * RECORD_BYTES).order(ByteOrder.nativeOrder());
+        if (buffer != null) {
+            ByteBuffer used = buffer.duplicate();
+            used.position(0).limit(count * RECORD_BYTES);
+            grown.put(used);
+            grown.clear();
+        }
+        records = grown;
+        return grown;
+    }
+    
+    static long toTime(LocalDateTime timestamp) {
+        return timestamp.toEpochSecond(ZoneOffset.UTC) * 1_000_000_000L + timestamp.getNano();
+    }
+    
+    private static LocalDateTime toTimestamp(long time) {
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(time, 1_000_000_000L),
+                                           (int) Math.floorMod(time, 1_000_000_000L), ZoneOffset.UTC);
+    }
+    
+    // Growable int array; readers see a prefix that was complete when count was read
+    private static final class IndexList {
+        private volatile int[] values = new int[4];
+        private volatile int count;
+        
+        void add(int value) {
+            int[] current = values;
+            if (count == current.length) {
+                current = Arrays.copyOf(current, current.length * 2);
+                values = current;
+            }
+            current[count] = value;
+            count++;
+        }
+        
+        int[] toArray() {
+            int n = count;
+            return Arrays.copyOf(values, n);
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package com.codealpha.trading;
+
+import java.util.SplittableRandom;
+
+// The original simulation: each tick moves every price by a uniform -5%..+5%
+public final class UniformPriceModel implements PriceModel {
+    private final double range = PriceModels.parameter("range", 0.1);
+    
+    @Override
+    public String name() {
+        return "uniform";
+    }
+    
+    @Override
+    public void step(double[] prices, int from, int to, SplittableRandom random, double[] scratch) {
+        for (int i = 0; i < to - from; i++) {
+            scratch[i] = (random.nextDouble() - 0.5) * range;
+        }
+        PriceModel.applyReturns(prices, scratch, from, to);
+    }
+}
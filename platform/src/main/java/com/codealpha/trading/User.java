@@ -1,3 +1,5 @@
+package com.codealpha.trading;
+
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
@@ -5,21 +7,37 @@ class User {
     private String userId;
     private String username;
     private String email;
+    private BigDecimal initialCash;
     private Portfolio portfolio;
     private LocalDateTime createdAt;
+    private int pins; // guarded by the user's AccountStore shard
     
     public User(String userId, String username, String email, BigDecimal initialCash) {
+        this(userId, username, email, initialCash, LocalDateTime.now());
+    }
+    
+    User(String userId, String username, String email, BigDecimal initialCash, LocalDateTime createdAt) {
         this.userId = userId;
         this.username = username;
         this.email = email;
+        this.initialCash = initialCash;
         this.portfolio = new Portfolio(userId, initialCash);
-        this.createdAt = LocalDateTime.now();
+        this.createdAt = createdAt;
     }
     
+    void restorePortfolio(Portfolio portfolio) {
+        this.portfolio = portfolio;
+    }
+    
+    void pin() { pins++; }
+    void unpin() { pins--; }
+    boolean isPinned() { return pins > 0; }
+    
     // Getters
     public String getUserId() { return userId; }
     public String getUsername() { return username; }
     public String getEmail() { return email; }
+    public BigDecimal getInitialCash() { return initialCash; }
     public Portfolio getPortfolio() { return portfolio; }
     public LocalDateTime getCreatedAt() { return createdAt; }
 }
@@ -0,0 +1,307 @@
+package com.codealpha.trading;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Consumer;
+
+// Fixed-layout user records in a memory-mapped file, with an open-addressing
+// index file keyed by userId and by username. The record file is the source
+// of truth; the index is rebuilt from it whenever it is missing or stale.
+class UserStore {
+    private static final int RECORDS_MAGIC = 0x55535253; // "USRS"
+    private static final int INDEX_MAGIC = 0x55494458;   // "UIDX"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 16;           // magic, version, count
+    
+    static final int MAX_USER_ID_BYTES = 32;
+    static final int MAX_USERNAME_BYTES = 32;
+    static final int MAX_EMAIL_BYTES = 96;
+    static final BigDecimal MAX_CASH = BigDecimal.valueOf(Long.MAX_VALUE, 2);
+    
+    // Record layout
+    private static final int USER_ID_OFFSET = 0;
+    private static final int USERNAME_OFFSET = USER_ID_OFFSET + 2 + MAX_USER_ID_BYTES;
+    private static final int EMAIL_OFFSET = USERNAME_OFFSET + 2 + MAX_USERNAME_BYTES;
+    private static final int CASH_OFFSET = EMAIL_OFFSET + 2 + MAX_EMAIL_BYTES; // long cents
+    private static final int CREATED_OFFSET = CASH_OFFSET + 8;
+    private static final int RECORD_SIZE = 192;
+    private static final int MAX_RECORDS = (Integer.MAX_VALUE - HEADER_SIZE) / RECORD_SIZE; // one mapping
+    
+    private static final int INITIAL_RECORDS = 1024;
+    private static final int INITIAL_INDEX_CAPACITY = 2048;
+    
+    private final FileChannel records;
+    private final FileChannel indexChannel;
+    private MappedByteBuffer recordMap;
+    private MappedByteBuffer indexMap;
+    private int count;
+    private int indexCapacity;
+    
+    private UserStore(FileChannel records, FileChannel indexChannel) {
+        this.records = records;
+        this.indexChannel = indexChannel;
+    }
+    
+    public static UserStore open(Path recordsPath, Path indexPath) throws IOException {
+        FileChannel records = FileChannel.open(recordsPath, StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            checkHeader(records, recordsPath);
+        } catch (IOException e) {
+            records.close();
+            throw e;
+        }
+        FileChannel index = FileChannel.open(indexPath, StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        UserStore store = new UserStore(records, index);
+        store.load();
+        return store;
+    }
+    
+    private void load() throws IOException {
+        if (records.size() == 0) {
+            mapRecords(INITIAL_RECORDS);
+            recordMap.putInt(0, RECORDS_MAGIC).putInt(4, VERSION).putInt(8, 0);
+        } else {
+            mapRecords(Math.max(INITIAL_RECORDS, (int) ((records.size() - HEADER_SIZE) / RECORD_SIZE)));
+        }
+        count = recordMap.getInt(8);
+        
+        boolean indexValid = indexChannel.size() >= HEADER_SIZE;
+        if (indexValid) {
+            indexCapacity = (int) ((indexChannel.size() - HEADER_SIZE) / (2 * Integer.BYTES));
+            indexMap = indexChannel.map(FileChannel.MapMode.READ_WRITE, 0, indexChannel.size());
+            indexValid = indexMap.getInt(0) == INDEX_MAGIC && indexMap.getInt(4) == VERSION
+                    && indexMap.getInt(8) == count && Integer.bitCount(indexCapacity) == 1;
+        }
+        if (!indexValid) {
+            rebuildIndex(Math.max(INITIAL_INDEX_CAPACITY, Integer.highestOneBit(Math.max(1, count)) * 4));
+        }
+    }
+    
+    // Checks the header of an existing file with a plain read, since mapping
+    // it would grow the file before it was known to be a user store
+    private static void checkHeader(FileChannel records, Path path) throws IOException {
+        long size = records.size();
+        if (size == 0) {
+            return;
+        }
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        while (header.hasRemaining()) {
+            if (records.read(header, header.position()) < 0) {
+                throw new IOException("Unrecognized user store format: " + path);
+            }
+        }
+        int count = header.getInt(8);
+        if (header.getInt(0) != RECORDS_MAGIC || header.getInt(4) != VERSION
+                || count < 0 || HEADER_SIZE + (long) count * RECORD_SIZE > size) {
+            throw new IOException("Unrecognized user store format: " + path);
+        }
+    }
+    
+    public synchronized int size() {
+        return count;
+    }
+    
+    // Appends a user; returns false if the userId or username is already taken
+    public synchronized boolean append(User user) {
+        return append(List.of(user)) == 1;
+    }
+    
+    // Appends users with the files forced once for all of them, skipping any
+    // whose userId or username is taken; returns how many were appended
+    public synchronized int append(Collection<User> users) {
+        int appended = 0;
+        for (User user : users) {
+            if (findRecord(0, user.getUserId()) >= 0 || findRecord(1, user.getUsername()) >= 0) {
+                continue;
+            }
+            try {
+                if (count == MAX_RECORDS) {
+                    throw new IOException("no room past " + MAX_RECORDS + " users");
+                }
+                if (HEADER_SIZE + (long) (count + 1) * RECORD_SIZE > recordMap.capacity()) {
+                    mapRecords((int) Math.min(count * 2L, MAX_RECORDS));
+                }
+                if ((count + 1) * 2 > indexCapacity) {
+                    rebuildIndex(indexCapacity * 2);
+                }
+            } catch (IOException e) {
+                System.err.println("Error growing user store: " + e.getMessage());
+                break;
+            }
+            
+            int position = HEADER_SIZE + count * RECORD_SIZE;
+            putString(position + USER_ID_OFFSET, user.getUserId(), MAX_USER_ID_BYTES);
+            putString(position + USERNAME_OFFSET, user.getUsername(), MAX_USERNAME_BYTES);
+            putString(position + EMAIL_OFFSET, user.getEmail(), MAX_EMAIL_BYTES);
+            recordMap.putLong(position + CASH_OFFSET, Money.of(user.getInitialCash()));
+            recordMap.putLong(position + CREATED_OFFSET, user.getCreatedAt().toEpochSecond(ZoneOffset.UTC));
+            recordMap.putInt(position + CREATED_OFFSET + 8, user.getCreatedAt().getNano());
+            
+            insert(0, user.getUserId(), count);
+            insert(1, user.getUsername(), count);
+            count++;
+            appended++;
+        }
+        if (appended > 0) {
+            // Make the records durable before the count that makes them visible
+            recordMap.force();
+            recordMap.putInt(8, count);
+            indexMap.putInt(8, count);
+            recordMap.force();
+            indexMap.force();
+        }
+        return appended;
+    }
+    
+    public synchronized User findById(String userId) {
+        int record = findRecord(0, userId);
+        return record < 0 ? null : readUser(record);
+    }
+    
+    public synchronized User findByUsername(String username) {
+        int record = findRecord(1, username);
+        return record < 0 ? null : readUser(record);
+    }
+    
+    public synchronized boolean containsUsername(String username) {
+        return findRecord(1, username) >= 0;
+    }
+    
+    // The user's position in the record file, which never changes, or -1
+    public synchronized int recordOf(String userId) {
+        return findRecord(0, userId);
+    }
+    
+    public synchronized void forEach(Consumer<User> consumer) {
+        for (int i = 0; i < count; i++) {
+            consumer.accept(readUser(i));
+        }
+    }
+    
+    public synchronized void close() {
+        try {
+            recordMap.force();
+            indexMap.force();
+            records.close();
+            indexChannel.close();
+        } catch (IOException e) {
+            System.err.println("Error closing user store: " + e.getMessage());
+        }
+    }
+    
+    static boolean fits(String value, int maxBytes) {
+        return value.getBytes(StandardCharsets.UTF_8).length <= maxBytes;
+    }
+    
+    // Whole cents within what a record holds. Trailing zeros are stripped
+    // first, so a huge exponent is compared without being expanded.
+    static boolean fitsCash(BigDecimal amount) {
+        return amount.stripTrailingZeros().scale() <= 2 && amount.abs().compareTo(MAX_CASH) <= 0;
+    }
+    
+    private User readUser(int record) {
+        int position = HEADER_SIZE + record * RECORD_SIZE;
+        String userId = getString(position + USER_ID_OFFSET);
+        String username = getString(position + USERNAME_OFFSET);
+        String email = getString(position + EMAIL_OFFSET);
+        BigDecimal initialCash = Money.toBigDecimal(recordMap.getLong(position + CASH_OFFSET));
+        LocalDateTime createdAt = LocalDateTime.ofEpochSecond(recordMap.getLong(position + CREATED_OFFSET),
+                recordMap.getInt(position + CREATED_OFFSET + 8), ZoneOffset.UTC);
+        return new User(userId, username, email, initialCash, createdAt);
+    }
+    
+    // table 0 is keyed by userId, table 1 by username
+    private int findRecord(int table, String key) {
+        int mask = indexCapacity - 1;
+        int slot = hash(key) & mask;
+        while (true) {
+            int entry = indexMap.getInt(slotOffset(table, slot));
+            if (entry == 0) {
+                return -1;
+            }
+            int record = entry - 1;
+            if (keyEquals(record, table == 0 ? USER_ID_OFFSET : USERNAME_OFFSET, key)) {
+                return record;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+    
+    private void insert(int table, String key, int record) {
+        int mask = indexCapacity - 1;
+        int slot = hash(key) & mask;
+        while (indexMap.getInt(slotOffset(table, slot)) != 0) {
+            slot = (slot + 1) & mask;
+        }
+        indexMap.putInt(slotOffset(table, slot), record + 1);
+    }
+    
+    private void rebuildIndex(int capacity) throws IOException {
+        indexCapacity = capacity;
+        indexChannel.truncate(0);
+        indexMap = indexChannel.map(FileChannel.MapMode.READ_WRITE, 0,
+                HEADER_SIZE + (long) capacity * 2 * Integer.BYTES);
+        indexMap.putInt(0, INDEX_MAGIC).putInt(4, VERSION).putInt(8, 0);
+        for (int i = 0; i < count; i++) {
+            int position = HEADER_SIZE + i * RECORD_SIZE;
+            insert(0, getString(position + USER_ID_OFFSET), i);
+            insert(1, getString(position + USERNAME_OFFSET), i);
+        }
+        indexMap.putInt(8, count);
+        indexMap.force();
+    }
+    
+    private void mapRecords(int capacity) throws IOException {
+        recordMap = records.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE + (long) capacity * RECORD_SIZE);
+    }
+    
+    private int slotOffset(int table, int slot) {
+        return HEADER_SIZE + (table * indexCapacity + slot) * Integer.BYTES;
+    }
+    
+    private boolean keyEquals(int record, int fieldOffset, String key) {
+        int position = HEADER_SIZE + record * RECORD_SIZE + fieldOffset;
+        byte[] bytes = key.getBytes(StandardCharsets.UTF_8);
+        if (recordMap.getShort(position) != bytes.length) {
+            return false;
+        }
+        for (int i = 0; i < bytes.length; i++) {
+            if (recordMap.get(position + 2 + i) != bytes[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    private void putString(int position, String value, int maxBytes) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > maxBytes) {
+            throw new IllegalArgumentException("Value too long: " + value);
+        }
+        recordMap.putShort(position, (short) bytes.length);
+        recordMap.put(position + 2, bytes);
+    }
+    
+    private String getString(int position) {
+        byte[] bytes = new byte[recordMap.getShort(position)];
+        recordMap.get(position + 2, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+    
+    private static int hash(String key) {
+        int h = key.hashCode() * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
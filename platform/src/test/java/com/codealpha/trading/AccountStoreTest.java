@@ -0,0 +1,116 @@
+package com.codealpha.trading;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class AccountStoreTest {
+    private static final Stock STOCK = new Stock("AST1", "Account Store Test 1", new BigDecimal("10.00"));
+    // Room for two accounts that have not traded
+    private static final long TWO_ACCOUNTS = 2 * new Portfolio("SIZE", 0L).estimateBytes() + 1;
+    
+    @TempDir
+    Path dir;
+    
+    private UserStore users;
+    private PortfolioStore portfolios;
+    
+    @BeforeEach
+    void openStores() throws IOException {
+        users = UserStore.open(dir.resolve("users.dat"), dir.resolve("users.idx"));
+        portfolios = PortfolioStore.open(dir, users);
+        for (int i = 1; i <= 4; i++) {
+            assertTrue(users.append(new User("USER" + i, "user" + i, "", new BigDecimal("1000.00"))));
+        }
+    }
+    
+    @AfterEach
+    void closeStores() throws IOException {
+        portfolios.close();
+        users.close();
+    }
+    
+    @Test
+    void evictsLeastRecentlyUsed() {
+        AccountStore accounts = new AccountStore(1, users, portfolios, TWO_ACCOUNTS);
+        User first = accounts.findById("USER1");
+        accounts.findById("USER2");
+        assertSame(first, accounts.findById("USER1")); // USER2 is now the eldest
+        accounts.findById("USER3");
+        assertEquals(Set.of("USER1", "USER3"), residentIds(accounts));
+        
+        accounts.findByUsername("user4");
+        assertEquals(Set.of("USER3", "USER4"), residentIds(accounts));
+        assertNotSame(first, accounts.findById("USER1"));
+        assertEquals(4, accounts.size());
+    }
+    
+    @Test
+    void writesBackChangedAccountsOnEviction() {
+        AccountStore accounts = new AccountStore(1, users, portfolios, 1);
+        Portfolio traded = accounts.findById("USER1").getPortfolio();
+        assertTrue(traded.buyStock(STOCK, 3));
+        assertTrue(traded.sellStock(STOCK, 1));
+        
+        // A budget of one byte leaves room for nothing but the latest lookup
+        accounts.findById("USER2");
+        assertEquals(Set.of("USER2"), residentIds(accounts));
+        
+        Portfolio read = accounts.findById("USER1").getPortfolio();
+        assertNotSame(traded, read);
+        assertEquals(2, read.getQuantity("AST1"));
+        assertEquals(traded.getCash(), read.getCash());
+        assertEquals(traded.getLedger().size(), read.getLedger().size());
+        assertNull(read.verifyAggregates());
+    }
+    
+    @Test
+    void keepsPinnedAndOrderHoldingAccounts() {
+        AccountStore accounts = new AccountStore(1, users, portfolios, 1);
+        User pinned = accounts.acquire("user1");
+        User ordering = accounts.findById("USER2");
+        assertTrue(ordering.getPortfolio().reserveCash(100));
+        accounts.findById("USER3");
+        assertEquals(Set.of("USER1", "USER2", "USER3"), residentIds(accounts));
+        
+        accounts.release(pinned);
+        ordering.getPortfolio().releaseCash(100);
+        accounts.findById("USER4");
+        assertEquals(Set.of("USER4"), residentIds(accounts));
+    }
+    
+    @Test
+    void checkpointWritesResidentChanges() throws IOException {
+        AccountStore accounts = new AccountStore(1, users, portfolios, Long.MAX_VALUE);
+        Portfolio portfolio = accounts.findById("USER1").getPortfolio();
+        assertTrue(portfolio.buyStock(STOCK, 5));
+        assertTrue(portfolio.isDirty());
+        
+        assertEquals(7, accounts.checkpoint(() -> 7));
+        assertEquals(Set.of("USER1"), residentIds(accounts));
+        Portfolio stored = portfolios.read("USER1");
+        assertEquals(5, stored.getQuantity("AST1"));
+        assertEquals(portfolio.getCash(), stored.getCash());
+    }
+    
+    private static Set<String> residentIds(AccountStore accounts) {
+        Set<String> ids = new TreeSet<>();
+        for (User user : accounts.resident()) {
+            ids.add(user.getUserId());
+        }
+        return ids;
+    }
+}
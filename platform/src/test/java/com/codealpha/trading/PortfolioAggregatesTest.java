@@ -0,0 +1,74 @@
+package com.codealpha.trading;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+import org.junit.jupiter.api.Test;
+
+class PortfolioAggregatesTest {
+    private static final Stock FIRST = new Stock("AGT1", "Aggregates Test 1", new BigDecimal("10.00"));
+    private static final Stock SECOND = new Stock("AGT2", "Aggregates Test 2", new BigDecimal("20.00"));
+    
+    @Test
+    void runningAggregatesMatchTheLedger() {
+        Portfolio portfolio = new Portfolio("USER1", new BigDecimal("100000.00"));
+        assertNull(portfolio.verifyAggregates());
+        
+        portfolio.executeBuy(FIRST.getSymbolId(), 10, 1000);
+        portfolio.executeBuy(FIRST.getSymbolId(), 10, 1250);
+        portfolio.executeBuy(SECOND.getSymbolId(), 7, 2003);
+        portfolio.executeSell(FIRST.getSymbolId(), 4, 1400);
+        portfolio.setLotMethod(LotMethod.LIFO);
+        portfolio.executeSell(FIRST.getSymbolId(), 4, 900);
+        portfolio.setLotMethod(LotMethod.AVERAGE);
+        portfolio.executeSell(SECOND.getSymbolId(), 3, 2100);
+        // An order fill against reserved cash
+        assertTrue(portfolio.reserveCash(5 * 1300));
+        portfolio.settleBuy(FIRST.getSymbolId(), 5, 1290, 1300);
+        assertNull(portfolio.verifyAggregates());
+        
+        // Closing out both positions
+        portfolio.executeSell(FIRST.getSymbolId(), 17, 1100);
+        portfolio.executeSell(SECOND.getSymbolId(), 4, 1900);
+        assertEquals(0, portfolio.getPositionCount());
+        assertEquals(new BigDecimal("0.00"), portfolio.getAvailableCash().subtract(portfolio.getCash()));
+        assertEquals(portfolio.getCash().subtract(new BigDecimal("100000.00")), portfolio.getRealizedPnl());
+        assertEquals(portfolio.getTurnover(), portfolio.getTurnover("AGT1").add(portfolio.getTurnover("AGT2")));
+        assertNull(portfolio.verifyAggregates());
+    }
+    
+    @Test
+    void replayedTradesVerifyLikeLiveOnes() {
+        Portfolio live = new Portfolio("USER1", new BigDecimal("100000.00"));
+        live.executeBuy(FIRST.getSymbolId(), 10, 1000);
+        live.executeBuy(FIRST.getSymbolId(), 10, 1250);
+        live.setLotMethod(LotMethod.LIFO);
+        live.executeSell(FIRST.getSymbolId(), 15, 1400);
+        
+        Portfolio replayed = new Portfolio("USER1", new BigDecimal("100000.00"));
+        for (int i = 0; i < live.getLedger().size(); i++) {
+            replayed.replay(i + 1, live.getLedger().get(i));
+        }
+        assertNull(replayed.verifyAggregates());
+        assertEquals(live.getRealizedPnl(), replayed.getRealizedPnl());
+        assertEquals(live.getCash(), replayed.getCash());
+        assertEquals(3, replayed.getJournalSeq());
+    }
+    
+    @Test
+    void reportsASellWhoseRecordedPnlDisagrees() {
+        Portfolio portfolio = new Portfolio("USER1", new BigDecimal("100000.00"));
+        portfolio.executeBuy(FIRST.getSymbolId(), 10, 1000);
+        // Replays at a P&L of 50.00, but was recorded as 9.99
+        portfolio.replay(new Transaction(1, "AGT1", Transaction.Type.SELL, 5, 2000, LotMethod.FIFO, 999,
+                                         LocalDateTime.of(2024, 1, 1, 9, 30)));
+        String mismatch = portfolio.verifyAggregates();
+        assertNotNull(mismatch);
+        assertTrue(mismatch.startsWith("realized P&L 5000 != sum of recorded sells 999"), mismatch);
+    }
+}
@@ -0,0 +1,105 @@
+package com.codealpha.trading;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class PortfolioStoreTest {
+    @TempDir
+    Path dir;
+    
+    @Test
+    void ledgerWrittenInTailsReadsBackWhole() throws IOException {
+        UserStore users = openUsers();
+        PortfolioStore store = PortfolioStore.open(dir, users);
+        Portfolio portfolio = newAccount(users, "USER1");
+        Stock stock = new Stock("PST1", "Portfolio Store Test 1", new BigDecimal("10.00"));
+        for (int round = 1; round <= 40; round++) {
+            for (int i = 0; i < round; i++) {
+                portfolio.buyStock(stock, 1);
+            }
+            store.write(List.of(portfolio));
+            Portfolio read = store.read("USER1");
+            assertEquals(ids(portfolio), ids(read));
+            assertNull(read.verifyAggregates());
+        }
+        store.sync();
+        store.close();
+        
+        store = PortfolioStore.open(dir, users);
+        assertEquals(ids(portfolio), ids(store.read("USER1")));
+        store.close();
+        users.close();
+    }
+    
+    @Test
+    void compactionKeepsLedgerChains() throws IOException {
+        UserStore users = openUsers();
+        PortfolioStore store = PortfolioStore.open(dir, users);
+        Portfolio portfolio = newAccount(users, "USER1");
+        List<Stock> stocks = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            stocks.add(new Stock("PSC" + i, "Portfolio Store Compaction " + i, new BigDecimal("1.00")));
+            portfolio.buyStock(stocks.get(i), 1);
+        }
+        // Each write leaves the previous image stale, until the log is rewritten
+        for (int i = 0; !Files.exists(dir.resolve("portfolios-1.log")); i++) {
+            assertTrue(i < 10_000, "log never compacted");
+            portfolio.buyStock(stocks.get(i % stocks.size()), 1);
+            store.write(List.of(portfolio));
+            store.sync();
+        }
+        assertEquals(ids(portfolio), ids(store.read("USER1")));
+        portfolio.buyStock(stocks.get(0), 1);
+        store.write(List.of(portfolio));
+        store.close();
+        
+        store = PortfolioStore.open(dir, users);
+        Portfolio read = store.read("USER1");
+        assertEquals(ids(portfolio), ids(read));
+        assertNull(read.verifyAggregates());
+        store.close();
+        users.close();
+    }
+    
+    @Test
+    void foreignIndexIsLeftAsItWas() throws IOException {
+        UserStore users = openUsers();
+        byte[] foreign = {(byte) 0xAC, (byte) 0xED, 0, 5, 's', 'r', 0, 0};
+        Files.write(dir.resolve("portfolios.idx"), foreign);
+        assertThrows(IOException.class, () -> PortfolioStore.open(dir, users));
+        assertArrayEquals(foreign, Files.readAllBytes(dir.resolve("portfolios.idx")));
+        users.close();
+    }
+    
+    private UserStore openUsers() throws IOException {
+        return UserStore.open(dir.resolve("users.dat"), dir.resolve("users.idx"));
+    }
+    
+    private static Portfolio newAccount(UserStore users, String userId) {
+        User user = new User(userId, userId.toLowerCase(), "", new BigDecimal("1000000"));
+        assertTrue(users.append(user));
+        return user.getPortfolio();
+    }
+    
+    private static List<Long> ids(Portfolio portfolio) {
+        TransactionLedger ledger = portfolio.getLedger();
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < ledger.size(); i++) {
+            ids.add(ledger.idAt(i));
+        }
+        return ids;
+    }
+}
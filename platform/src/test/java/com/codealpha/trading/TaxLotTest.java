@@ -0,0 +1,86 @@
+package com.codealpha.trading;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.math.BigDecimal;
+
+import org.junit.jupiter.api.Test;
+
+class TaxLotTest {
+    private static final Stock STOCK = new Stock("TLT1", "Tax Lot Test 1", new BigDecimal("10.00"));
+    
+    @Test
+    void fifoClosesOldestLotsFirst() {
+        Portfolio portfolio = twoLots(LotMethod.FIFO);
+        Transaction sell = portfolio.executeSell(STOCK.getSymbolId(), 5, 3000);
+        assertEquals(new BigDecimal("100.00"), sell.getRealizedPnl());
+        assertEquals(2, portfolio.getLotCount("TLT1"));
+        assertEquals(new BigDecimal("16.67"), portfolio.getAvgCost("TLT1"));
+        
+        // Across the rest of the first lot and into the second
+        sell = portfolio.executeSell(STOCK.getSymbolId(), 10, 3000);
+        assertEquals(new BigDecimal("150.00"), sell.getRealizedPnl());
+        assertEquals(1, portfolio.getLotCount("TLT1"));
+        assertEquals(new BigDecimal("20.00"), portfolio.getAvgCost("TLT1"));
+        assertEquals(new BigDecimal("250.00"), portfolio.getRealizedPnl());
+        assertNull(portfolio.verifyAggregates());
+    }
+    
+    @Test
+    void lifoClosesNewestLotsFirst() {
+        Portfolio portfolio = twoLots(LotMethod.LIFO);
+        Transaction sell = portfolio.executeSell(STOCK.getSymbolId(), 5, 3000);
+        assertEquals(new BigDecimal("50.00"), sell.getRealizedPnl());
+        assertEquals(2, portfolio.getLotCount("TLT1"));
+        assertEquals(new BigDecimal("13.33"), portfolio.getAvgCost("TLT1"));
+        
+        sell = portfolio.executeSell(STOCK.getSymbolId(), 10, 3000);
+        assertEquals(new BigDecimal("150.00"), sell.getRealizedPnl());
+        assertEquals(1, portfolio.getLotCount("TLT1"));
+        assertEquals(new BigDecimal("10.00"), portfolio.getAvgCost("TLT1"));
+        assertNull(portfolio.verifyAggregates());
+    }
+    
+    @Test
+    void averageClosesAtTheAverageCost() {
+        Portfolio portfolio = twoLots(LotMethod.AVERAGE);
+        Transaction sell = portfolio.executeSell(STOCK.getSymbolId(), 5, 3000);
+        assertEquals(new BigDecimal("75.00"), sell.getRealizedPnl());
+        assertEquals(new BigDecimal("15.00"), portfolio.getAvgCost("TLT1"));
+        
+        // A basis of 10.00 over three shares: each sell rounds its share of
+        // the basis, and closing out settles what is left
+        portfolio = new Portfolio("USER2", new BigDecimal("1000.00"));
+        portfolio.setLotMethod(LotMethod.AVERAGE);
+        portfolio.executeBuy(STOCK.getSymbolId(), 2, 333);
+        portfolio.executeBuy(STOCK.getSymbolId(), 1, 334);
+        assertEquals(new BigDecimal("1.67"), portfolio.executeSell(STOCK.getSymbolId(), 1, 500).getRealizedPnl());
+        assertEquals(new BigDecimal("1.66"), portfolio.executeSell(STOCK.getSymbolId(), 1, 500).getRealizedPnl());
+        assertEquals(new BigDecimal("1.67"), portfolio.executeSell(STOCK.getSymbolId(), 1, 500).getRealizedPnl());
+        assertEquals(0, portfolio.getQuantity("TLT1"));
+        assertEquals(new BigDecimal("5.00"), portfolio.getRealizedPnl());
+        assertNull(portfolio.verifyAggregates());
+    }
+    
+    @Test
+    void closingOutSettlesTheWholeBasis() {
+        for (LotMethod method : LotMethod.values()) {
+            Portfolio portfolio = twoLots(method);
+            Transaction sell = portfolio.executeSell(STOCK.getSymbolId(), 20, 3000);
+            assertEquals(new BigDecimal("300.00"), sell.getRealizedPnl(), method.name());
+            assertEquals(method, sell.getLotMethod());
+            assertEquals(0, portfolio.getLotCount("TLT1"));
+            assertEquals(0, portfolio.getPositionCount());
+        }
+    }
+    
+    // 10 shares at 10.00, then 10 at 20.00
+    private static Portfolio twoLots(LotMethod method) {
+        Portfolio portfolio = new Portfolio("USER1", new BigDecimal("1000.00"));
+        portfolio.setLotMethod(method);
+        portfolio.executeBuy(STOCK.getSymbolId(), 10, 1000);
+        portfolio.executeBuy(STOCK.getSymbolId(), 10, 2000);
+        return portfolio;
+    }
+}
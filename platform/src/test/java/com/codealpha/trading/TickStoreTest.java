@@ -0,0 +1,52 @@
+package com.codealpha.trading;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class TickStoreTest {
+    @TempDir
+    Path dir;
+    
+    @Test
+    void scanFindsRangesAcrossSegments() throws IOException {
+        Stock stock = new Stock("TST1", "Tick Store Test 1", new BigDecimal("50.00"));
+        MarketData market = new MarketData(List.of(stock));
+        // Every open starts a segment
+        for (int run = 0; run < 4; run++) {
+            TickStore store = TickStore.open(dir);
+            for (int i = 0; i < 5; i++) {
+                market.updateAllPrices();
+                store.append(market.getSnapshot());
+            }
+            store.close();
+        }
+        
+        TickStore store = TickStore.open(dir);
+        assertEquals(4, store.getSegmentCount());
+        List<Long> times = times(store, stock.getSymbolId(), Long.MIN_VALUE, Long.MAX_VALUE);
+        assertEquals(20, times.size());
+        for (int i = 1; i < times.size(); i++) {
+            assertTrue(times.get(i) >= times.get(i - 1));
+        }
+        assertEquals(times.subList(7, 20), times(store, stock.getSymbolId(), times.get(7), Long.MAX_VALUE));
+        assertEquals(times.subList(3, 12), times(store, stock.getSymbolId(), times.get(3), times.get(12)));
+        assertEquals(List.of(), times(store, stock.getSymbolId(), times.get(19) + 1, Long.MAX_VALUE));
+        assertEquals(0, store.scan(SymbolTable.idOf("TST2"), Long.MIN_VALUE, Long.MAX_VALUE, (t, p, v) -> { }));
+        store.close();
+    }
+    
+    private static List<Long> times(TickStore store, int symbolId, long from, long until) {
+        List<Long> times = new ArrayList<>();
+        store.scan(symbolId, from, until, (time, price, volume) -> times.add(time));
+        return times;
+    }
+}
@@ -0,0 +1,45 @@
+package com.codealpha.trading;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class TradeBatchTest {
+    private static final Stock STOCK = new Stock("TBT1", "Trade Batch Test 1", new BigDecimal("10.00"));
+    
+    @TempDir
+    Path dir;
+    
+    @Test
+    void accountsAreReleasedOneByOne() throws IOException {
+        UserStore users = UserStore.open(dir.resolve("users.dat"), dir.resolve("users.idx"));
+        PortfolioStore portfolios = PortfolioStore.open(dir, users);
+        TradeBatch batch = new TradeBatch();
+        for (int i = 1; i <= 4; i++) {
+            assertTrue(users.append(new User("USER" + i, "user" + i, "", new BigDecimal("1000.00"))));
+            batch.add("user" + i, "TBT1", Transaction.Type.BUY, 2);
+        }
+        batch.add("nobody", "TBT1", Transaction.Type.BUY, 1);
+        
+        // A budget of one byte keeps only pinned accounts and the latest lookup
+        AccountStore accounts = new AccountStore(1, users, portfolios, 1);
+        int[] mostResident = new int[1];
+        int filled = batch.execute(accounts, new MarketData(List.of(STOCK)).getSnapshot(), (portfolio, transaction) ->
+                mostResident[0] = Math.max(mostResident[0], accounts.resident().size()));
+        assertEquals(4, filled);
+        assertEquals(1, mostResident[0]);
+        assertEquals(TradeBatch.Status.UNKNOWN_ACCOUNT, batch.getStatus(4));
+        for (int i = 1; i <= 4; i++) {
+            assertEquals(2, accounts.findById("USER" + i).getPortfolio().getQuantity("TBT1"));
+        }
+        portfolios.close();
+        users.close();
+    }
+}
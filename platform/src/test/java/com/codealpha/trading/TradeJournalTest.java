@@ -0,0 +1,86 @@
+package com.codealpha.trading;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class TradeJournalTest {
+    @TempDir
+    Path dir;
+    
+    @Test
+    void sequenceCarriesOnAfterCompactionAndReopen() throws IOException {
+        Path path = dir.resolve("trades.journal");
+        TradeJournal journal = TradeJournal.open(path);
+        long last = appendTrades(journal, 5);
+        journal.compact(last);
+        assertEquals(0, journal.getRecordsSinceCompaction());
+        journal.close();
+        
+        journal = TradeJournal.open(path);
+        assertEquals(5, journal.getLastSeq());
+        assertEquals(6, journal.append("USER1", buy(6)));
+        journal.close();
+    }
+    
+    @Test
+    void replayAfterCompactionSeesOnlyLaterRecords() throws IOException {
+        Path path = dir.resolve("trades.journal");
+        TradeJournal journal = TradeJournal.open(path);
+        appendTrades(journal, 5);
+        journal.compact(3);
+        journal.append("USER2", buy(6));
+        journal.close();
+        
+        journal = TradeJournal.open(path);
+        assertEquals(List.of(4L, 5L, 6L), replayed(journal, 0));
+        assertEquals(List.of(6L), replayed(journal, 5));
+        journal.close();
+    }
+    
+    @Test
+    void tornTailIsDroppedOnOpen() throws IOException {
+        Path path = dir.resolve("trades.journal");
+        TradeJournal journal = TradeJournal.open(path);
+        appendTrades(journal, 3);
+        journal.close();
+        long intact = Files.size(path);
+        Files.write(path, new byte[] {0, 0, 0, 40, 1, 2, 3}, StandardOpenOption.APPEND);
+        
+        journal = TradeJournal.open(path);
+        assertEquals(intact, Files.size(path));
+        assertEquals(3, journal.getLastSeq());
+        assertEquals(4, journal.append("USER1", buy(4)));
+        assertTrue(journal.awaitDurable(4));
+        assertEquals(List.of(1L, 2L, 3L, 4L), replayed(journal, 0));
+        journal.close();
+    }
+    
+    private static long appendTrades(TradeJournal journal, int count) {
+        long seq = 0;
+        for (int i = 1; i <= count; i++) {
+            seq = journal.append("USER" + i % 2, buy(i));
+        }
+        assertTrue(journal.awaitDurable(seq));
+        return seq;
+    }
+    
+    private static List<Long> replayed(TradeJournal journal, long afterSeq) throws IOException {
+        List<Long> seqs = new ArrayList<>();
+        journal.replay(afterSeq, (seq, userId, transaction) -> seqs.add(seq));
+        return seqs;
+    }
+    
+    private static Transaction buy(long id) {
+        return new Transaction(id, "AAPL", Transaction.Type.BUY, 10, 15_000);
+    }
+}
@@ -0,0 +1,44 @@
+package com.codealpha.trading;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class UserStoreTest {
+    @TempDir
+    Path dir;
+    
+    @Test
+    void usersReadBackAfterReopen() throws IOException {
+        UserStore users = open();
+        assertTrue(users.append(new User("USER1", "user1", "user1@example.com", new BigDecimal("250.50"))));
+        users.close();
+        
+        users = open();
+        assertEquals(1, users.size());
+        assertEquals(new BigDecimal("250.50"), users.findByUsername("user1").getInitialCash());
+        users.close();
+    }
+    
+    @Test
+    void foreignFileIsLeftAsItWas() throws IOException {
+        // The start of a Java object stream, as versions before the store wrote
+        byte[] foreign = {(byte) 0xAC, (byte) 0xED, 0, 5, 's', 'r', 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0};
+        Files.write(dir.resolve("users.dat"), foreign);
+        assertThrows(IOException.class, this::open);
+        assertArrayEquals(foreign, Files.readAllBytes(dir.resolve("users.dat")));
+    }
+    
+    private UserStore open() throws IOException {
+        return UserStore.open(dir.resolve("users.dat"), dir.resolve("users.idx"));
+    }
+}